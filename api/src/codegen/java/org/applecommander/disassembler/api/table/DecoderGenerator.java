@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.table;
+
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.sweet16.InstructionSetSWEET16;
+import org.applecommander.disassembler.api.table.DecoderSpec.Entry;
+import org.applecommander.disassembler.api.table.DecoderSpec.Field;
+import org.applecommander.disassembler.api.table.DecoderSpec.Op;
+import org.applecommander.disassembler.api.table.DecoderSpec.Operand;
+import org.applecommander.disassembler.api.table.DecoderSpec.Prefix;
+import org.applecommander.disassembler.api.table.DecoderSpec.Table;
+import org.applecommander.disassembler.api.z80.InstructionSetZ80;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Generates a straight-line {@link InstructionDecoder} for each {@link DecoderSpec}: one {@code tableswitch} per
+ * opcode table, and one small method per distinct instruction with its length, mnemonic and operand text as
+ * constants. Each method stays well under the JIT's huge method limit. Run by the {@code generateDecoders} task
+ * with the output directory as the only argument; it writes {@code java/} and {@code resources/} below it.
+ */
+public class DecoderGenerator {
+    static final String PACKAGE = "org.applecommander.disassembler.api.table.generated";
+    /** A format with a single hexadecimal or decimal conversion, such as "#$%02X" or "R%d". */
+    static final Pattern SIMPLE_FORMAT = Pattern.compile("([^%]*)%(?:0([1-9]))?([Xd])([^%]*)");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("usage: DecoderGenerator <output directory>");
+        }
+        Path output = Path.of(args[0]);
+        Path sources = output.resolve("java").resolve(PACKAGE.replace('.', '/'));
+        Path services = output.resolve("resources/META-INF/services");
+        Files.createDirectories(sources);
+        Files.createDirectories(services);
+        try (Stream<Path> stale = Files.list(sources)) {
+            for (Path file : stale.toList()) {
+                Files.delete(file);
+            }
+        }
+
+        List<DecoderSpec> specs = List.of(
+                InstructionSet6502.for6502().decoderSpec(),
+                InstructionSet6502.for65C02().decoderSpec(),
+                InstructionSet6502.for6502withIllegalInstructions().decoderSpec(),
+                InstructionSetSWEET16.forSWEET16().decoderSpec(),
+                InstructionSetZ80.forZ80().decoderSpec());
+        StringBuilder registry = new StringBuilder();
+        for (DecoderSpec spec : specs) {
+            String className = "Decoder" + spec.name().replaceAll("[^A-Za-z0-9]", "");
+            Files.writeString(sources.resolve(className + ".java"), new DecoderGenerator(spec, className).generate());
+            registry.append(PACKAGE).append('.').append(className).append('\n');
+        }
+        Files.writeString(services.resolve(InstructionDecoder.class.getName()), registry.toString());
+    }
+
+    private final DecoderSpec spec;
+    private final String className;
+    private final Map<String,Integer> tableIndex = new HashMap<>();
+    private final int[] tableOffset;
+    private final Map<Op,Integer> methods = new LinkedHashMap<>();
+    private final Map<String,Integer> texts = new LinkedHashMap<>();
+
+    DecoderGenerator(DecoderSpec spec, String className) {
+        TableDecoder.compile(spec);     // validates the description
+        this.spec = spec;
+        this.className = className;
+        List<Table> tables = spec.tables();
+        for (int t=0; t<tables.size(); t++) {
+            tableIndex.put(tables.get(t).name(), t);
+        }
+        tableOffset = new int[tables.size()];
+        for (Table table : tables) {
+            for (Entry entry : table.entries()) {
+                if (entry instanceof Prefix prefix) {
+                    tableOffset[tableIndex.get(prefix.table())] = prefix.opcodeOffset();
+                }
+            }
+        }
+    }
+
+    String generate() {
+        StringBuilder tables = new StringBuilder();
+        for (int t=0; t<spec.tables().size(); t++) {
+            generateTable(tables, t);
+        }
+        StringBuilder ops = new StringBuilder();
+        methods.forEach((op, n) -> generateOp(ops, op, n));
+
+        StringBuilder out = new StringBuilder();
+        out.append("// Generated by DecoderGenerator from the ").append(spec.name())
+           .append(" decoder description. Do not edit.\n");
+        out.append("package ").append(PACKAGE).append(";\n\n");
+        out.append("import org.applecommander.disassembler.api.Instruction;\n");
+        out.append("import org.applecommander.disassembler.api.Instruction.Operand;\n");
+        out.append("import org.applecommander.disassembler.api.Program;\n");
+        out.append("import org.applecommander.disassembler.api.table.InstructionDecoder;\n\n");
+        out.append("import java.util.Optional;\n\n");
+        out.append("public final class ").append(className).append(" implements InstructionDecoder {\n");
+        texts.forEach((text, n) -> out.append("    private static final Operand TEXT").append(n)
+                .append(" = new Operand(\"%s\", ").append(literal(text)).append(", Optional.empty());\n"));
+        out.append("    private static final String[] HEX = new String[256];\n");
+        out.append("    static {\n");
+        out.append("        for (int i=0; i<256; i++) {\n");
+        out.append("            HEX[i] = String.format(\"%02X\", i);\n");
+        out.append("        }\n");
+        out.append("    }\n\n");
+        out.append("    @Override\n");
+        out.append("    public String name() {\n");
+        out.append("        return ").append(literal(spec.name())).append(";\n");
+        out.append("    }\n\n");
+        out.append("    @Override\n");
+        out.append("    public Instruction decodeOne(Program program) {\n");
+        out.append("        return table0(program, program.currentAddress());\n");
+        out.append("    }\n");
+        out.append(tables);
+        out.append(ops);
+        out.append("""
+
+                    private static Instruction finish(Program program, Instruction.Builder builder, int address, int length) {
+                        int op = program.peekUnsignedByte();
+                        builder.code(program.read(length));
+                        program.listener().instruction(address, length, op);
+                        return builder.get();
+                    }
+                    private static String hex(int value, int width) {
+                        String digits = Integer.toHexString(value).toUpperCase();
+                        return digits.length() >= width ? digits : "0".repeat(width - digits.length()) + digits;
+                    }
+                    private static String hex2(int value) {
+                        return value >= 0 && value < 0x100 ? HEX[value] : hex(value, 2);
+                    }
+                    private static String hex4(int value) {
+                        return value >= 0 && value < 0x10000 ? HEX[value >> 8].concat(HEX[value & 0xff]) : hex(value, 4);
+                    }
+                }
+                """);
+        return out.toString();
+    }
+
+    private void generateTable(StringBuilder out, int t) {
+        Table table = spec.tables().get(t);
+        out.append("\n    /** Opcode table ").append(table.name()).append(". */\n");
+        out.append("    private static Instruction table").append(t).append("(Program program, int address) {\n");
+        out.append("        return switch (program.peekUnsignedByte(").append(tableOffset[t]).append(")) {\n");
+        for (int b=0; b<DecoderSpec.TABLE_SIZE; b++) {
+            String call = switch (table.entries().get(b)) {
+                case Prefix prefix -> "table" + tableIndex.get(prefix.table());
+                case Op op -> "op" + methods.computeIfAbsent(op, o -> methods.size());
+            };
+            out.append(String.format("            case 0x%02X -> %s(program, address);%n", b, call));
+        }
+        out.append("            default -> throw new IllegalStateException();\n");
+        out.append("        };\n");
+        out.append("    }\n");
+    }
+
+    private void generateOp(StringBuilder out, Op op, int n) {
+        List<String> operands = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (Operand operand : op.operands()) {
+            if (operand.field().kind() == DecoderSpec.Kind.NONE) {
+                operands.add("TEXT" + texts.computeIfAbsent(operand.template(), t -> texts.size()));
+                continue;
+            }
+            String v = "v" + values.size();
+            values.add(String.format("        int %s = %s;%n", v, field(operand.field())));
+            if (operand.address()) {
+                operands.add(String.format("new Operand(%s, %s, Optional.of(%s))",
+                        literal(operand.template()), format(operand.format(), v), v));
+            } else {
+                operands.add(String.format("new Operand(\"%%s\", %s, Optional.empty())",
+                        format(operand.template().replace("%s", operand.format()), v)));
+            }
+        }
+        out.append("\n    /** ").append(op.mnemonic());
+        op.operands().stream().map(Operand::template).reduce((a, b) -> a + "," + b)
+                .ifPresent(s -> out.append(' ').append(s.replace("%s", "value")));
+        out.append(" */\n");
+        out.append("    private static Instruction op").append(n).append("(Program program, int address) {\n");
+        values.forEach(out::append);
+        out.append("        Instruction.Builder builder = Instruction.at(address).mnemonic(")
+           .append(literal(op.mnemonic())).append(')');
+        for (String operand : operands) {
+            out.append("\n                .operand(").append(operand).append(')');
+        }
+        out.append(";\n");
+        out.append("        return finish(program, builder, address, ").append(op.length()).append(");\n");
+        out.append("    }\n");
+    }
+
+    private static String field(Field field) {
+        return switch (field.kind()) {
+            case NONE -> "0";
+            case BITS -> {
+                String b = "program.peekUnsignedByte(" + field.offset() + ")";
+                if (field.shift() != 0) {
+                    b = "(" + b + " >> " + field.shift() + ")";
+                }
+                yield field.mask() == 0xff && field.shift() == 0 ? b : b + " & 0x" + Integer.toHexString(field.mask());
+            }
+            case WORD -> "program.peekUnsignedShort(" + field.offset() + ")";
+            case RELATIVE -> String.format("(address + %d + program.peekSignedByte(%d)) & 0x%x",
+                    field.base(), field.offset(), field.mask());
+            case RELATIVE_UNSIGNED -> String.format("address + %d + program.peekUnsignedByte(%d)",
+                    field.base(), field.offset());
+        };
+    }
+
+    /** An expression formatting the variable as {@link String#format} would, without parsing the format. */
+    private static String format(String format, String v) {
+        Matcher m = SIMPLE_FORMAT.matcher(format);
+        if (!m.matches()) {
+            return String.format("String.format(%s, %s)", literal(format), v);
+        }
+        String width = m.group(2);
+        String conversion;
+        if (m.group(3).equals("d")) {
+            if (width != null) {
+                return String.format("String.format(%s, %s)", literal(format), v);
+            }
+            conversion = "Integer.toString(" + v + ")";
+        } else if ("2".equals(width)) {
+            conversion = "hex2(" + v + ")";
+        } else if ("4".equals(width)) {
+            conversion = "hex4(" + v + ")";
+        } else {
+            conversion = "hex(" + v + ", " + (width == null ? 1 : width) + ")";
+        }
+        StringBuilder expression = new StringBuilder();
+        if (!m.group(1).isEmpty()) {
+            expression.append(literal(m.group(1))).append(" + ");
+        }
+        expression.append(conversion);
+        if (!m.group(4).isEmpty()) {
+            expression.append(" + ").append(literal(m.group(4)));
+        }
+        return expression.toString();
+    }
+
+    private static String literal(String s) {
+        return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.z80.InstructionSetZ80;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding cost with no listener versus the counting listener. Each benchmark runs in its own fork, so the
+ * "none" case sees only {@link DecodeListener#NONE} at the call sites, as an application without a listener
+ * would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DecodeListenerBenchmark {
+    @Param({ "6502", "Z80" })
+    public String cpu;
+
+    private byte[] code;
+    private InstructionSet instructionSet;
+
+    @Setup
+    public void setup() {
+        code = new byte[16 * 1024];
+        new Random(6502).nextBytes(code);
+        instructionSet = switch (cpu) {
+            case "6502" -> InstructionSet6502.for6502();
+            case "Z80" -> InstructionSetZ80.forZ80();
+            default -> throw new IllegalArgumentException(cpu);
+        };
+    }
+
+    @Benchmark
+    public void none(Blackhole blackhole) {
+        instructionSet.decode(new Program(code, 0x800), blackhole::consume);
+    }
+
+    @Benchmark
+    public long counting(Blackhole blackhole) {
+        CountingDecodeListener listener = new CountingDecodeListener();
+        instructionSet.decode(new Program(code, 0x800, listener), blackhole::consume);
+        return listener.instructions();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.sweet16.InstructionSetSWEET16;
+import org.applecommander.disassembler.api.table.TableInstructionSet;
+import org.applecommander.disassembler.api.z80.InstructionSetZ80;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The decoders generated at build time versus the table-driven decoder compiled from the same descriptions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TableDecoderBenchmark {
+    @Param({ "6502", "SWEET16", "Z80" })
+    public String cpu;
+
+    private byte[] code;
+    private InstructionSet generated;
+    private InstructionSet table;
+
+    @Setup
+    public void setup() {
+        code = new byte[16 * 1024];
+        new Random(6502).nextBytes(code);
+        switch (cpu) {
+            case "6502" -> {
+                InstructionSet6502 instructionSet = InstructionSet6502.for6502();
+                generated = instructionSet;
+                table = TableInstructionSet.of(instructionSet.decoderSpec(), instructionSet.defaults());
+            }
+            case "SWEET16" -> {
+                InstructionSetSWEET16 instructionSet = InstructionSetSWEET16.forSWEET16();
+                generated = instructionSet;
+                table = TableInstructionSet.of(instructionSet.decoderSpec(), instructionSet.defaults());
+            }
+            case "Z80" -> {
+                InstructionSetZ80 instructionSet = InstructionSetZ80.forZ80();
+                generated = instructionSet;
+                table = TableInstructionSet.of(instructionSet.decoderSpec(), instructionSet.defaults());
+            }
+            default -> throw new IllegalArgumentException(cpu);
+        }
+    }
+
+    @Benchmark
+    public void generated(Blackhole blackhole) {
+        generated.decode(new Program(code, 0x800), blackhole::consume);
+    }
+
+    @Benchmark
+    public void table(Blackhole blackhole) {
+        table.decode(new Program(code, 0x800), blackhole::consume);
+    }
+}
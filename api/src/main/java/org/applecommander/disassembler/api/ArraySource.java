@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/** A {@link MemorySource} over an array, which may have zero padding after the code. */
+final class ArraySource implements MemorySource {
+    private final byte[] code;
+    private final int length;
+
+    ArraySource(byte[] code, int length) {
+        this.code = Objects.requireNonNull(code);
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int getUnsignedByte(int offset) {
+        return offset >= 0 && offset < code.length ? Byte.toUnsignedInt(code[offset]) : 0;
+    }
+
+    /** Bytes outside the array read as zero, as for {@link #getUnsignedByte(int)}. */
+    @Override
+    public byte[] copy(int offset, int length) {
+        if (offset >= 0 && offset + length <= code.length) {
+            return Arrays.copyOfRange(code, offset, offset + length);
+        }
+        byte[] bytes = new byte[length];
+        int from = Math.max(0, offset);
+        int to = Math.min(code.length, offset + length);
+        if (from < to) System.arraycopy(code, from, bytes, from - offset, to - from);
+        return bytes;
+    }
+
+    /** Slices are copied, so that they are arrays as well. */
+    @Override
+    public MemorySource slice(int offset, int length) {
+        return new ArraySource(copy(offset, length), length);
+    }
+
+    @Override
+    public byte[] array() {
+        return code;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.nio.ByteBuffer;
+
+/** A {@link MemorySource} over a buffer, read with absolute gets so its position is never changed. */
+final class BufferSource implements MemorySource {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int length;
+
+    BufferSource(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.start = buffer.position();
+        this.length = buffer.remaining();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int getUnsignedByte(int offset) {
+        return offset >= 0 && offset < length ? Byte.toUnsignedInt(buffer.get(start + offset)) : 0;
+    }
+
+    @Override
+    public byte[] array() {
+        if (buffer.hasArray() && buffer.arrayOffset() + start == 0 && buffer.array().length == length) {
+            return buffer.array();
+        }
+        return null;
+    }
+}
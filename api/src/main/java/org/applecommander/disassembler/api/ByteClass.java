@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable set of byte values, used to ask a {@link ByteScanner} how many bytes of a kind are in a range
+ * (invalid opcodes, high-bit text, and so on).
+ */
+public final class ByteClass {
+    private final long[] bits = new long[4];
+
+    private ByteClass() {
+        // use the factory methods
+    }
+
+    /** The byte values (0-255) matching the predicate. */
+    public static ByteClass of(IntPredicate predicate) {
+        ByteClass byteClass = new ByteClass();
+        for (int b=0; b<256; b++) {
+            if (predicate.test(b)) byteClass.bits[b >> 6] |= 1L << b;
+        }
+        return byteClass;
+    }
+    /** The listed byte values. */
+    public static ByteClass of(int... values) {
+        ByteClass byteClass = new ByteClass();
+        for (int b : values) byteClass.bits[(b & 0xff) >> 6] |= 1L << b;
+        return byteClass;
+    }
+    /** The byte values from low to high, inclusive. */
+    public static ByteClass range(int low, int high) {
+        return of(b -> b >= low && b <= high);
+    }
+
+    public boolean contains(int b) {
+        return (bits[(b & 0xff) >> 6] & 1L << b) != 0;
+    }
+    public ByteClass or(ByteClass other) {
+        ByteClass byteClass = new ByteClass();
+        for (int i=0; i<bits.length; i++) byteClass.bits[i] = bits[i] | other.bits[i];
+        return byteClass;
+    }
+
+    /**
+     * Lookup table for SIMD scanners, indexed by the low nibble of a byte. Bit n of entry l is set when
+     * {@code (half * 8 + n) << 4 | l} is in this class; half 0 covers high nibbles 0-7 and half 1 covers 8-F.
+     */
+    public byte[] nibbleTable(int half) {
+        byte[] table = new byte[16];
+        for (int l=0; l<16; l++) {
+            for (int n=0; n<8; n++) {
+                if (contains((half * 8 + n) << 4 | l)) table[l] |= (byte) (1 << n);
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.stream.IntStream;
+
+/**
+ * Bulk byte scanning for pre-analysis of large images: counts of a {@link ByteClass} per range or per window, and
+ * pattern search. {@link #get()} picks the fastest implementation available; the {@code acdasm-vector} component
+ * provides one built on {@code jdk.incubator.vector} when that module is enabled
+ * ({@code --add-modules jdk.incubator.vector}), and otherwise the scalar one is used.
+ * <p/>
+ * Ranges are offsets from (inclusive) to (exclusive). Patterns are byte values 0-255, with a negative value matching
+ * any byte; {@code { 0x20, 0xED, 0xFD }} finds {@code JSR $FDED} and {@code { 0x20, -1, -1 }} finds any {@code JSR}.
+ */
+public interface ByteScanner {
+    /** The fastest scanner available in this runtime. */
+    static ByteScanner get() {
+        return ScalarByteScanner.PREFERRED;
+    }
+    /** The plain Java scanner, always available. */
+    static ByteScanner scalar() {
+        return ScalarByteScanner.INSTANCE;
+    }
+
+    String name();
+
+    /** Count the bytes in the range that are in the class. */
+    int count(byte[] data, int from, int to, ByteClass bytes);
+
+    /** Offset of the first match of the pattern that starts in the range and fits in the data, or -1. */
+    int indexOf(byte[] data, int from, int to, int[] pattern);
+
+    /** Counts of the bytes in the class for each consecutive window of the range; the last may be short. */
+    default int[] windowCounts(byte[] data, int from, int to, int window, ByteClass bytes) {
+        if (window <= 0) throw new IllegalArgumentException("Window must be positive: " + window);
+        int[] counts = new int[(to - from + window - 1) / window];
+        for (int i=0; i<counts.length; i++) {
+            int start = from + i * window;
+            counts[i] = count(data, start, Math.min(to, start + window), bytes);
+        }
+        return counts;
+    }
+
+    /** Offsets of every match of the pattern starting in the range. Matches may overlap. */
+    default int[] indexesOf(byte[] data, int from, int to, int[] pattern) {
+        IntStream.Builder matches = IntStream.builder();
+        int offset = indexOf(data, from, to, pattern);
+        while (offset >= 0) {
+            matches.add(offset);
+            offset = indexOf(data, offset + 1, to, pattern);
+        }
+        return matches.build().toArray();
+    }
+
+    default int count(Program program, ByteClass bytes) {
+        return count(program.code(), 0, program.length(), bytes);
+    }
+    default int[] windowCounts(Program program, int window, ByteClass bytes) {
+        return windowCounts(program.code(), 0, program.length(), window, bytes);
+    }
+    default int[] indexesOf(Program program, int[] pattern) {
+        return indexesOf(program.code(), 0, program.length(), pattern);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * What an instruction does to the flow of control, by mnemonic, for the 6502 family, SWEET16, Z80 and p-code.
+ * <p/>
+ * Z80 jumps with a condition are branches, and so is a conditional {@code RET}, which has no target. SWEET16
+ * {@code RTN} is also a branch without a target: it ends the SWEET16 code and continues with the next instruction
+ * as 6502 code. Indirect jumps, such as {@code JMP ($03F2)} or {@code JP (HL)}, have no known target.
+ */
+public enum ControlFlow {
+    /** Continues with the next instruction. */
+    NEXT,
+    /** Ends a block; continues with a target or the next instruction. */
+    BRANCH,
+    /** Ends a block; continues with a target. */
+    JUMP,
+    /** Goes to a target and comes back to the next instruction. */
+    CALL,
+    /** Ends a block and returns to the caller. */
+    RETURN,
+    /** Ends a block and stops: break, halt or exit. */
+    STOP;
+
+    private static final Map<String,ControlFlow> MNEMONICS = Map.ofEntries(
+            // 6502, 65C02 and the undocumented JAM
+            Map.entry("BCC", BRANCH), Map.entry("BCS", BRANCH), Map.entry("BEQ", BRANCH), Map.entry("BMI", BRANCH),
+            Map.entry("BNE", BRANCH), Map.entry("BPL", BRANCH), Map.entry("BVC", BRANCH), Map.entry("BVS", BRANCH),
+            Map.entry("BRA", JUMP), Map.entry("JMP", JUMP), Map.entry("JSR", CALL), Map.entry("RTS", RETURN),
+            Map.entry("RTI", RETURN), Map.entry("BRK", STOP), Map.entry("JAM", STOP),
+            // SWEET16
+            Map.entry("BC", BRANCH), Map.entry("BM", BRANCH), Map.entry("BM1", BRANCH), Map.entry("BNC", BRANCH),
+            Map.entry("BNM1", BRANCH), Map.entry("BNZ", BRANCH), Map.entry("BP", BRANCH), Map.entry("BZ", BRANCH),
+            Map.entry("RTN", BRANCH), Map.entry("BR", JUMP), Map.entry("BS", CALL), Map.entry("RS", RETURN),
+            Map.entry("BK", STOP),
+            // Z80; JP, JR, CALL and RET also depend on their condition
+            Map.entry("DJNZ", BRANCH), Map.entry("JP", JUMP), Map.entry("JR", JUMP), Map.entry("CALL", CALL),
+            Map.entry("RST", CALL), Map.entry("RET", RETURN), Map.entry("RETI", RETURN), Map.entry("RETN", RETURN),
+            Map.entry("HALT", STOP),
+            // p-code
+            Map.entry("FJP", BRANCH), Map.entry("EFJ", BRANCH), Map.entry("NFJ", BRANCH), Map.entry("UJP", JUMP),
+            Map.entry("XJP", JUMP), Map.entry("CBP", CALL), Map.entry("CGP", CALL), Map.entry("CIP", CALL),
+            Map.entry("CLP", CALL), Map.entry("CXP", CALL), Map.entry("RBP", RETURN), Map.entry("RNP", RETURN),
+            Map.entry("RPU", RETURN), Map.entry("XIT", STOP));
+    private static final int[] NO_TARGETS = {};
+
+    public static ControlFlow of(Instruction instruction) {
+        ControlFlow flow = MNEMONICS.getOrDefault(instruction.mnemonic(), NEXT);
+        // Z80 conditions are a first operand: JP NZ,0300H or RET NZ
+        return switch (instruction.mnemonic()) {
+            case "JP", "JR" -> instruction.operandCount() == 2 ? BRANCH : flow;
+            case "RET" -> instruction.operandCount() == 1 ? BRANCH : flow;
+            default -> flow;
+        };
+    }
+
+    /** True when the instruction is the last of its block. */
+    public boolean endsBlock() {
+        return this == BRANCH || this == JUMP || this == RETURN || this == STOP;
+    }
+
+    /** True when control may continue with the next instruction. */
+    public boolean fallsThrough() {
+        return this == NEXT || this == BRANCH || this == CALL;
+    }
+
+    /**
+     * The addresses a branch, jump or call goes to directly; an indirect jump has none. A p-code {@code XJP} goes to
+     * each of its cases and to its default.
+     */
+    public static int[] targets(Instruction instruction) {
+        if (of(instruction) == NEXT) {
+            return NO_TARGETS;
+        }
+        int[] targets = new int[instruction.operandCount()];
+        int size = 0;
+        for (int i=0; i<instruction.operandCount(); i++) {
+            Instruction.Operand operand = instruction.operand(i);
+            if (operand.hasAddress() && "%s".equals(operand.opFmt())) {
+                targets[size++] = operand.addressValue();
+            }
+            else if ("XJP".equals(instruction.mnemonic()) && operand.value().startsWith("UJP $")) {
+                targets[size++] = Integer.parseInt(operand.value().substring(5), 16);
+            }
+        }
+        return size == targets.length ? targets : Arrays.copyOf(targets, size);
+    }
+}
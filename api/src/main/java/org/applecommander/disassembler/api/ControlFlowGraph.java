@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The basic blocks of a decoded stream and the edges between them.
+ * <p/>
+ * A block starts at the first instruction, at every branch, jump or call target in the stream, and after every
+ * instruction that {@link ControlFlow#endsBlock() ends a block}. Blocks and edges are kept in flat arrays in
+ * compressed sparse row form: block b is instructions {@code [blockStart(b), blockEnd(b))} and has edges
+ * {@code [edgeStart(b), edgeEnd(b))}. An edge to an address outside the stream has no target block. Building is
+ * linear in the number of instructions.
+ */
+public final class ControlFlowGraph {
+    /** Edge kinds, in the order the edges of a block are listed. */
+    public enum Edge {
+        /** A call from any instruction of the block. */
+        CALL,
+        /** A taken branch. */
+        TAKEN,
+        /** An unconditional jump. */
+        JUMP,
+        /** On to the next instruction, after the last of the block. */
+        FALLTHROUGH
+    }
+
+    private static final Edge[] EDGES = Edge.values();
+
+    private final List<Instruction> instructions;
+    private final int[] blockStarts;
+    private final int[] edgeStarts;
+    private final int[] edgeTargets;
+    private final int[] edgeAddresses;
+    private final byte[] edgeKinds;
+
+    private ControlFlowGraph(List<Instruction> instructions, int[] blockStarts, int[] edgeStarts, int[] edgeTargets,
+                             int[] edgeAddresses, byte[] edgeKinds) {
+        this.instructions = instructions;
+        this.blockStarts = blockStarts;
+        this.edgeStarts = edgeStarts;
+        this.edgeTargets = edgeTargets;
+        this.edgeAddresses = edgeAddresses;
+        this.edgeKinds = edgeKinds;
+    }
+
+    /** Split a decoded stream, in address order, into blocks. */
+    public static ControlFlowGraph build(List<Instruction> instructions) {
+        int count = instructions.size();
+        Instruction[] stream = instructions.toArray(new Instruction[0]);
+        AddressIndex index = new AddressIndex(stream);
+
+        // Flow and targets of every instruction, also in compressed rows
+        ControlFlow[] flows = new ControlFlow[count];
+        int[] targetStarts = new int[count + 1];
+        int[] targets = new int[Math.max(16, count / 4)];
+        boolean[] leaders = new boolean[count];
+        for (int i=0; i<count; i++) {
+            flows[i] = ControlFlow.of(stream[i]);
+            int[] these = ControlFlow.targets(stream[i]);
+            if (targetStarts[i] + these.length > targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(2 * targets.length, targetStarts[i] + these.length));
+            }
+            System.arraycopy(these, 0, targets, targetStarts[i], these.length);
+            targetStarts[i+1] = targetStarts[i] + these.length;
+            for (int target : these) {
+                int at = index.find(target);
+                if (at >= 0) leaders[at] = true;
+            }
+            if (flows[i].endsBlock() && i+1 < count) {
+                leaders[i+1] = true;
+            }
+        }
+        if (count > 0) {
+            leaders[0] = true;
+        }
+
+        int blockCount = 0;
+        int[] blockOf = new int[count];
+        for (int i=0; i<count; i++) {
+            if (leaders[i]) blockCount++;
+            blockOf[i] = blockCount - 1;
+        }
+        int[] blockStarts = new int[blockCount + 1];
+        for (int i=0, b=0; i<count; i++) {
+            if (leaders[i]) blockStarts[b++] = i;
+        }
+        blockStarts[blockCount] = count;
+
+        EdgeBuffer edges = new EdgeBuffer(blockCount);
+        for (int b=0; b<blockCount; b++) {
+            int last = blockStarts[b+1] - 1;
+            for (int i=blockStarts[b]; i<=last; i++) {
+                if (flows[i] == ControlFlow.CALL) {
+                    edges.from = edges.size;
+                    for (int t=targetStarts[i]; t<targetStarts[i+1]; t++) {
+                        int at = index.find(targets[t]);
+                        edges.add(Edge.CALL, at < 0 ? -1 : blockOf[at], targets[t]);
+                    }
+                }
+            }
+            ControlFlow flow = flows[last];
+            if (flow == ControlFlow.BRANCH || flow == ControlFlow.JUMP) {
+                Edge kind = flow == ControlFlow.BRANCH ? Edge.TAKEN : Edge.JUMP;
+                edges.from = edges.size;
+                for (int t=targetStarts[last]; t<targetStarts[last+1]; t++) {
+                    int at = index.find(targets[t]);
+                    edges.add(kind, at < 0 ? -1 : blockOf[at], targets[t]);
+                }
+            }
+            if (flow.fallsThrough()) {
+                Instruction instruction = stream[last];
+                int next = instruction.address() + instruction.code().length;
+                boolean inStream = last+1 < count && stream[last+1].address() == next;
+                edges.from = edges.size;
+                edges.add(Edge.FALLTHROUGH, inStream ? b+1 : -1, next);
+            }
+            edges.starts[b+1] = edges.size;
+        }
+        return new ControlFlowGraph(instructions, blockStarts, edges.starts, Arrays.copyOf(edges.targets, edges.size),
+                Arrays.copyOf(edges.addresses, edges.size), Arrays.copyOf(edges.kinds, edges.size));
+    }
+
+    public List<Instruction> instructions() {
+        return instructions;
+    }
+
+    public int blockCount() {
+        return blockStarts.length - 1;
+    }
+
+    /** Index of the first instruction of a block. */
+    public int blockStart(int block) {
+        return blockStarts[block];
+    }
+
+    /** Index after the last instruction of a block. */
+    public int blockEnd(int block) {
+        return blockStarts[block+1];
+    }
+
+    public int blockAddress(int block) {
+        return instructions.get(blockStarts[block]).address();
+    }
+
+    /** The block of the instruction at an index. */
+    public int blockOf(int instruction) {
+        int found = Arrays.binarySearch(blockStarts, 0, blockStarts.length - 1, instruction);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    public int edgeCount() {
+        return edgeTargets.length;
+    }
+
+    public int edgeStart(int block) {
+        return edgeStarts[block];
+    }
+
+    public int edgeEnd(int block) {
+        return edgeStarts[block+1];
+    }
+
+    /** The block an edge goes to, or -1 when its address is outside the stream. */
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public int edgeAddress(int edge) {
+        return edgeAddresses[edge];
+    }
+
+    public Edge edgeKind(int edge) {
+        return EDGES[edgeKinds[edge]];
+    }
+
+    /**
+     * Write the graph in Graphviz DOT form, a block at a time. Blocks are boxes listing their instructions; calls are
+     * dashed, taken branches green and jumps bold. Addresses outside the stream are plain text nodes.
+     *
+     * @param labels Labels to show for addresses, as from decoding.
+     */
+    public void writeDot(Appendable out, String name, Map<Integer,String> labels) throws IOException {
+        out.append("digraph ");
+        dotString(out, name);
+        out.append(" {\n  node [shape=box, fontname=\"Courier\"];\n");
+        Set<Integer> outside = new HashSet<>();
+        for (int b=0; b<blockCount(); b++) {
+            StringBuilder text = new StringBuilder();
+            for (int i=blockStart(b); i<blockEnd(b); i++) {
+                Instruction instruction = instructions.get(i);
+                String label = labels.get(instruction.address());
+                text.append(String.format("%04X- ", instruction.address()));
+                if (label != null) text.append(label).append(' ');
+                text.append(instruction.mnemonic());
+                for (int o=0; o<instruction.operandCount(); o++) {
+                    Instruction.Operand operand = instruction.operand(o);
+                    String operandLabel = operand.hasAddress() ? labels.get(operand.addressValue()) : null;
+                    text.append(o == 0 ? " " : ",");
+                    text.append(operandLabel != null ? operand.format(operandLabel) : operand.format());
+                }
+                text.append('\n');
+            }
+            out.append("  b").append(Integer.toString(b)).append(" [label=");
+            dotString(out, text.toString());
+            out.append("];\n");
+            for (int e=edgeStart(b); e<edgeEnd(b); e++) {
+                String to = "b" + edgeTarget(e);
+                if (edgeTarget(e) < 0) {
+                    to = "a" + edgeAddress(e);
+                    if (outside.add(edgeAddress(e))) {
+                        String label = labels.get(edgeAddress(e));
+                        out.append("  ").append(to).append(" [shape=plaintext, label=");
+                        dotString(out, String.format("$%04X", edgeAddress(e)) + (label != null ? " " + label : ""));
+                        out.append("];\n");
+                    }
+                }
+                out.append("  b").append(Integer.toString(b)).append(" -> ").append(to);
+                out.append(switch (edgeKind(e)) {
+                    case CALL -> " [style=dashed];\n";
+                    case TAKEN -> " [color=darkgreen];\n";
+                    case JUMP -> " [style=bold];\n";
+                    case FALLTHROUGH -> ";\n";
+                });
+            }
+        }
+        out.append("}\n");
+    }
+
+    /**
+     * Write the graph as one line of JSON:
+     * <pre>
+     * {"name":"HELLO","blocks":[{"address":768,"end":775,"instructions":3,
+     *  "edges":[{"kind":"taken","block":2,"address":781},{"kind":"fallthrough","block":1,"address":775}]},...]}
+     * </pre>
+     * The end is the address after the last instruction; an edge outside the stream has no block.
+     */
+    public void writeJson(Appendable out, String name) throws IOException {
+        out.append("{\"name\":");
+        jsonString(out, name);
+        out.append(",\"blocks\":[");
+        for (int b=0; b<blockCount(); b++) {
+            Instruction last = instructions.get(blockEnd(b) - 1);
+            out.append(b == 0 ? "{" : ",{");
+            out.append("\"address\":").append(Integer.toString(blockAddress(b)));
+            out.append(",\"end\":").append(Integer.toString(last.address() + last.code().length));
+            out.append(",\"instructions\":").append(Integer.toString(blockEnd(b) - blockStart(b)));
+            out.append(",\"edges\":[");
+            for (int e=edgeStart(b); e<edgeEnd(b); e++) {
+                out.append(e == edgeStart(b) ? "{" : ",{");
+                out.append("\"kind\":\"").append(edgeKind(e).name().toLowerCase()).append('"');
+                if (edgeTarget(e) >= 0) {
+                    out.append(",\"block\":").append(Integer.toString(edgeTarget(e)));
+                }
+                out.append(",\"address\":").append(Integer.toString(edgeAddress(e))).append('}');
+            }
+            out.append("]}");
+        }
+        out.append("]}\n");
+    }
+
+    /** A quoted DOT string; new lines become left justified line breaks. */
+    private static void dotString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i=0; i<value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"', '\\' -> out.append('\\').append(ch);
+                case '\n' -> out.append("\\l");
+                default -> out.append(ch);
+            }
+        }
+        out.append('"');
+    }
+
+    private static void jsonString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i=0; i<value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"', '\\' -> out.append('\\').append(ch);
+                case '\n' -> out.append("\\n");
+                default -> {
+                    if (ch < 0x20) {
+                        out.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        out.append(ch);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Instruction index by address: a table over the address range when it is not much larger than the stream,
+     * which it is not for a memory image, or a map.
+     */
+    private static class AddressIndex {
+        private final int low;
+        private final int[] table;
+        private final Map<Integer,Integer> map;
+
+        AddressIndex(Instruction[] stream) {
+            int low = Integer.MAX_VALUE, high = Integer.MIN_VALUE;
+            for (Instruction instruction : stream) {
+                low = Math.min(low, instruction.address());
+                high = Math.max(high, instruction.address());
+            }
+            this.low = low;
+            if (stream.length == 0 || (long) high - low < Math.max(0x10000, 4L * stream.length)) {
+                this.table = new int[stream.length == 0 ? 0 : high - low + 1];
+                this.map = null;
+                Arrays.fill(table, -1);
+                for (int i=stream.length-1; i>=0; i--) {
+                    table[stream[i].address() - low] = i;
+                }
+            }
+            else {
+                this.table = null;
+                this.map = new HashMap<>();
+                for (int i=0; i<stream.length; i++) {
+                    map.putIfAbsent(stream[i].address(), i);
+                }
+            }
+        }
+
+        int find(int address) {
+            if (table != null) {
+                long at = (long) address - low;
+                return at >= 0 && at < table.length ? table[(int) at] : -1;
+            }
+            return map.getOrDefault(address, -1);
+        }
+    }
+
+    /** Growing edge arrays; the edges added since from are kept unique, as an XJP may list a case more than once. */
+    private static class EdgeBuffer {
+        final int[] starts;
+        int[] targets;
+        int[] addresses;
+        byte[] kinds;
+        int size;
+        int from;
+
+        EdgeBuffer(int blockCount) {
+            this.starts = new int[blockCount + 1];
+            int capacity = Math.max(16, 2 * blockCount);
+            this.targets = new int[capacity];
+            this.addresses = new int[capacity];
+            this.kinds = new byte[capacity];
+        }
+
+        void add(Edge kind, int target, int address) {
+            for (int e=from; e<size; e++) {
+                if (addresses[e] == address) return;
+            }
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, 2 * size);
+                addresses = Arrays.copyOf(addresses, 2 * size);
+                kinds = Arrays.copyOf(kinds, 2 * size);
+            }
+            targets[size] = target;
+            addresses[size] = address;
+            kinds[size++] = (byte) kind.ordinal();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+/**
+ * A {@link DecodeListener} that counts everything, including instructions by opcode. Not thread safe; use one
+ * per decoding thread.
+ */
+public class CountingDecodeListener implements DecodeListener {
+    private long decodes;
+    private long instructions;
+    private long bytes;
+    private long dataEntries;
+    private long modeSwitches;
+    private long labels;
+    private final long[] opcodes = new long[256];
+
+    @Override
+    public void decodeStart(int startAddress, int length) {
+        decodes++;
+    }
+    @Override
+    public void instruction(int address, int length, int opcode) {
+        bytes += length;
+        if (opcode < 0) {
+            dataEntries++;
+        }
+        else {
+            instructions++;
+            opcodes[opcode]++;
+        }
+    }
+    @Override
+    public void modeSwitch(int address, String instructionSet) {
+        modeSwitches++;
+    }
+    @Override
+    public void labelCreated(int address) {
+        labels++;
+    }
+
+    /** Number of programs decoded. */
+    public long decodes() {
+        return decodes;
+    }
+    /** Number of instructions decoded, not including data entries. */
+    public long instructions() {
+        return instructions;
+    }
+    /** Number of bytes in all instructions and data entries. */
+    public long bytes() {
+        return bytes;
+    }
+    /** Number of data entries, such as p-code jump table entries. */
+    public long dataEntries() {
+        return dataEntries;
+    }
+    public long modeSwitches() {
+        return modeSwitches;
+    }
+    public long labels() {
+        return labels;
+    }
+    /** Number of instructions with the given first byte. */
+    public long opcode(int opcode) {
+        return opcodes[opcode & 0xff];
+    }
+}
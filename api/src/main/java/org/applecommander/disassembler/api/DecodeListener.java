@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+/**
+ * Receives decoding events with primitive arguments, for metrics and sampling. The listener travels with
+ * the {@link Program}, and the instruction sets and {@link Disassembler} call it as they work. All methods
+ * default to doing nothing; with only {@link #NONE} in use the calls are monomorphic and empty, so the JIT
+ * inlines them away.
+ * <p/>
+ * Calls are made on the decoding thread. A listener used by several threads must do its own synchronization.
+ */
+public interface DecodeListener {
+    DecodeListener NONE = new DecodeListener() {};
+
+    /** An instruction set starts decoding a program. */
+    default void decodeStart(int startAddress, int length) {}
+    /**
+     * One instruction was decoded. The opcode is the first byte of the instruction, or -1 for entries that are
+     * data (such as the p-code jump table).
+     */
+    default void instruction(int address, int length, int opcode) {}
+    /** The switching 6502 instruction set changed CPU; the name is that of the new instruction set. */
+    default void modeSwitch(int address, String instructionSet) {}
+    /** The instruction set finished decoding the program. */
+    default void decodeEnd(int instructions) {}
+    /** The {@link Disassembler} created a label for a target address within the program. */
+    default void labelCreated(int address) {}
+}
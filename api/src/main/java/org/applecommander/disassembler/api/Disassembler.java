@@ -19,8 +19,11 @@ package org.applecommander.disassembler.api;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -29,7 +32,11 @@ import java.util.Set;
 import org.ini4j.Ini;
 import org.ini4j.Profile.Section;
 
+import org.applecommander.disassembler.api.jfr.DecodeEvent;
+import org.applecommander.disassembler.api.jfr.LabelDiscoveryEvent;
+import org.applecommander.disassembler.api.jfr.LabelGroupEvent;
 import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.symbols.SymbolTable;
 
 /**
  * Disassembler is the primary interface to disassemble a program.
@@ -49,61 +56,148 @@ import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
  * </pre>
  */
 public class Disassembler {
-    private static final Ini ini = new Ini();
+    /**
+     * Label groups from {@code addresses.ini}, already converted to addresses. Note that the native image
+     * initializes this class at build time, so the file is only parsed while building the image.
+     */
+    private static final Map<String,Map<Integer,String>> LABEL_GROUPS;
     static {
         try (InputStream is = Disassembler.class.getResourceAsStream("/addresses.ini")) {
+            Ini ini = new Ini();
             ini.load(is);
+            Map<String,Map<Integer,String>> groups = new LinkedHashMap<>();
+            for (Section section : ini.values()) {
+                Map<Integer,String> labels = new LinkedHashMap<>();
+                for (Map.Entry<String,String> entry : section.entrySet()) {
+                    Optional<Integer> address = convert(entry.getValue());
+                    address.ifPresent(integer -> labels.putIfAbsent(integer, entry.getKey()));
+                }
+                groups.put(section.getName(), Collections.unmodifiableMap(labels));
+            }
+            LABEL_GROUPS = Collections.unmodifiableMap(groups);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
     /** Returns the label groups defined in the {@code addresses.ini} file. */
     public static Set<String> labelGroups() {
-        return ini.keySet();
+        return LABEL_GROUPS.keySet();
+    }
+    /** Returns the (unmodifiable) addresses and labels of one label group. */
+    public static Map<Integer,String> labelGroup(String name) {
+        Map<Integer,String> group = LABEL_GROUPS.get(name);
+        if (group == null) {
+            throw new RuntimeException(String.format("Section '%s' not defined.", name));
+        }
+        return group;
     }
 
     private int startAddress;
     private int bytesToSkip;
     private int bytesToDecode;
-    private byte[] code;
+    private MemorySource source;
     private InstructionSet instructionSet;
+    private PhaseListener listener = PhaseListener.NONE;
+    private DecodeListener decodeListener = DecodeListener.NONE;
+    private RegionClassifier regionClassifier;
+    private SignatureLibrary signatures;
+    private SymbolTable symbols = SymbolTable.EMPTY;
+    private InstructionInterner interner;
 
     /** Initiate the disassembly. */
     public static Builder with(byte[] code) {
         return new Builder(code);
     }
+    /** Initiate the disassembly of any source, such as a memory mapped file or a {@link RelocatingView}. */
+    public static Builder with(MemorySource source) {
+        return new Builder(source);
+    }
     
     private List<Instruction> decode(Map<Integer,String> labels) {
         // Create a subset of the original code and adjust starting address accordingly
         if (bytesToSkip > 0 || bytesToDecode > 0) {
-            byte[] dest = new byte[bytesToDecode == 0 ? code.length - bytesToSkip : bytesToDecode];
-            System.arraycopy(code, bytesToSkip, dest, 0, dest.length);
-            code = dest;
+            source = source.slice(bytesToSkip, bytesToDecode == 0 ? source.length() - bytesToSkip : bytesToDecode);
             startAddress+= bytesToSkip;
         }
 
-        Program program = new Program(code,startAddress);
-        List<Instruction> assembly = instructionSet.decode(program);
+        Program program = new Program(source, startAddress, decodeListener);
+        if (signatures != null) {
+            listener.start(Phase.MATCH_SIGNATURES);
+            signatures.label(program, labels);
+            listener.end(Phase.MATCH_SIGNATURES);
+        }
+        listener.start(Phase.DECODE);
+        DecodeEvent decodeEvent = new DecodeEvent();
+        decodeEvent.begin();
+        List<Instruction> assembly = decode(program);
+        if (source instanceof RelocatingView view) {
+            assembly = new ArrayList<>(assembly);
+            assembly.replaceAll(instruction -> view.symbolize(instruction, instruction.address() - startAddress));
+        }
+        if (interner != null) {
+            assembly = new ArrayList<>(assembly);
+            interner.internAll(assembly);
+        }
+        decodeEvent.end();
+        if (decodeEvent.shouldCommit()) {
+            decodeEvent.instructionSet = instructionSet.name();
+            decodeEvent.startAddress = startAddress;
+            decodeEvent.bytes = source.length();
+            decodeEvent.instructions = assembly.size();
+            decodeEvent.commit();
+        }
+        listener.end(Phase.DECODE);
 
         // Gather all the instructions and identify all target addresses
-        assembly.forEach(instruction -> {
-            instruction.addressRef().flatMap(Instruction.Operand::address).ifPresent(address -> {
-                if ((address >= startAddress) && (address < startAddress + code.length)) {
-                    labels.computeIfAbsent(address, addr -> String.format("L%04X", addr));
-                }
-            });
-        });
+        listener.start(Phase.DISCOVER_LABELS);
+        LabelDiscoveryEvent discoveryEvent = new LabelDiscoveryEvent();
+        discoveryEvent.begin();
+        for (Instruction instruction : assembly) {
+            int address = instruction.addressRefValue();
+            if (address != Instruction.NO_ADDRESS && (address >= startAddress)
+                    && (address < startAddress + source.length()) && !labels.containsKey(address)) {
+                labels.put(address, String.format("L%04X", address));
+                decodeListener.labelCreated(address);
+            }
+        }
+        discoveryEvent.end();
+        if (discoveryEvent.shouldCommit()) {
+            discoveryEvent.instructions = assembly.size();
+            discoveryEvent.labels = labels.size();
+            discoveryEvent.commit();
+        }
+        listener.end(Phase.DISCOVER_LABELS);
 
         return assembly;
     }
     
+    private List<Instruction> decode(Program program) {
+        if (regionClassifier == null) {
+            return instructionSet.decode(program);
+        }
+        List<Instruction> assembly = new ArrayList<>();
+        for (RegionClassifier.Region region : regionClassifier.classify(program)) {
+            if (region.kind() == RegionClassifier.Kind.CODE) {
+                MemorySource slice = source.slice(region.start(), region.end() - region.start());
+                instructionSet.decode(new Program(slice, startAddress + region.start(), decodeListener), assembly::add);
+            }
+            else {
+                regionClassifier.emit(program, region, assembly::add);
+            }
+        }
+        return assembly;
+    }
+
     public static class Builder {
         private final Set<String> sections = new HashSet<>();
         private final Disassembler disassembler = new Disassembler();
         
         public Builder(byte[] code) {
+            this(MemorySource.of(code));
+        }
+        public Builder(MemorySource source) {
             disassembler.startAddress = 0x300;
-            disassembler.code = code;
+            disassembler.source = source;
             disassembler.instructionSet = InstructionSet6502.for6502();
         }
         /** Decode without preserving labels. */
@@ -115,17 +209,27 @@ public class Disassembler {
             assert labels != null;
             assert disassembler.instructionSet != null;
             // merge in all selected sections
+            disassembler.listener.start(Phase.MERGE_LABELS);
+            disassembler.symbols.labels().forEach(labels::putIfAbsent);
             for (String name : sections) {
-                Section section = ini.get(name);
-                if (section == null) {
+                Map<Integer,String> group = LABEL_GROUPS.get(name);
+                if (group == null) {
                     throw new RuntimeException(String.format("Section '%s' not defined.", name));
                 }
-                for (Map.Entry<String,String> entry : section.entrySet()) {
-                    Optional<Integer> address = convert(entry.getValue());
-                    address.ifPresent(integer -> labels.putIfAbsent(integer, entry.getKey()));
+                LabelGroupEvent event = new LabelGroupEvent();
+                event.begin();
+                int before = labels.size();
+                group.forEach(labels::putIfAbsent);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.group = name;
+                    event.labels = group.size();
+                    event.added = labels.size() - before;
+                    event.commit();
                 }
             }
-            
+            disassembler.listener.end(Phase.MERGE_LABELS);
+
             return disassembler.decode(labels);
         }
         /** The starting address for the disassembly. */
@@ -148,6 +252,39 @@ public class Disassembler {
             disassembler.instructionSet = instructionSet;
             return this;
         }
+        /** Receive the start and end of each phase of the disassembly. */
+        public Builder listener(PhaseListener listener) {
+            disassembler.listener = listener;
+            return this;
+        }
+        /** Receive decoding events; see {@link DecodeListener}. */
+        public Builder decodeListener(DecodeListener listener) {
+            disassembler.decodeListener = listener;
+            return this;
+        }
+        /**
+         * Classify data regions before decoding and emit them as directives. Null (the default) decodes everything,
+         * since a region misread as data hides the code in it.
+         */
+        public Builder dataRegions(RegionClassifier classifier) {
+            disassembler.regionClassifier = classifier;
+            return this;
+        }
+        /** Labels from symbol files; these take precedence over label groups but not over labels passed to decode. */
+        public Builder symbols(SymbolTable symbols) {
+            disassembler.symbols = symbols;
+            return this;
+        }
+        /** Label routines found by signature, wherever they are; null (the default) skips matching. */
+        public Builder signatures(SignatureLibrary signatures) {
+            disassembler.signatures = signatures;
+            return this;
+        }
+        /** Share repeated instruction parts through the interner; null (the default) keeps instructions as decoded. */
+        public Builder interner(InstructionInterner interner) {
+            disassembler.interner = interner;
+            return this;
+        }
         /** Add any label groups requested. Allows "All" and "None". */
         public Builder section(List<String> names) {
             if (names != null) {
@@ -157,6 +294,30 @@ public class Disassembler {
         }
     }
 
+    /** The phases of {@link Builder#decode(Map)}, in order. */
+    public enum Phase {
+        MERGE_LABELS,
+        MATCH_SIGNATURES,
+        DECODE,
+        DISCOVER_LABELS;
+
+        /** A short name suitable for reports, such as "merge-labels". */
+        public String label() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    /**
+     * Notified as each {@link Phase} starts and ends, on the thread calling {@code decode}. Intended for
+     * timing; a listener should not hold on to the disassembler's work.
+     */
+    public interface PhaseListener {
+        PhaseListener NONE = new PhaseListener() {};
+
+        default void start(Phase phase) {}
+        default void end(Phase phase) {}
+    }
+
     /** Add support for "$801" and "0x801" instead of just decimal like 2049. */
     public static Optional<Integer> convert(String value) {
         if (value == null) {
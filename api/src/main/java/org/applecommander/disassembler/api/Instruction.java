@@ -17,6 +17,7 @@
 package org.applecommander.disassembler.api;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +33,25 @@ import java.util.Optional;
  */
 public record Instruction(int address, byte[] code, String mnemonic, List<Operand> operands,
                           Optional<String> description) {
+    /** Returned by {@link #addressRefValue()} and {@link Operand#addressValue()} when there is no address. */
+    public static final int NO_ADDRESS = -1;
+
+    /** Instructions are equal when all components are, comparing the code bytes by content. */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Instruction other && address == other.address && Arrays.equals(code, other.code)
+                && mnemonic.equals(other.mnemonic) && operands.equals(other.operands)
+                && description.equals(other.description);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = address;
+        hash = 31 * hash + Arrays.hashCode(code);
+        hash = 31 * hash + mnemonic.hashCode();
+        hash = 31 * hash + operands.hashCode();
+        return 31 * hash + description.hashCode();
+    }
 
     public Optional<Operand> addressRef() {
         for (Operand operand : operands) {
@@ -41,6 +61,30 @@ public record Instruction(int address, byte[] code, String mnemonic, List<Operan
         }
         return Optional.empty();
     }
+    /** True when an operand refers to an address. Unlike {@link #addressRef()}, this allocates nothing. */
+    public boolean hasAddressRef() {
+        return addressRefValue() != NO_ADDRESS;
+    }
+    /** The address of the operand {@link #addressRef()} would return, or {@link #NO_ADDRESS}. */
+    public int addressRefValue() {
+        for (int i=0; i<operands.size(); i++) {
+            int address = operands.get(i).addressValue();
+            if (address != NO_ADDRESS) {
+                return address;
+            }
+        }
+        return NO_ADDRESS;
+    }
+    public int operandCount() {
+        return operands.size();
+    }
+    public Operand operand(int index) {
+        return operands.get(index);
+    }
+    /** The description, or null when there is none. */
+    public String descriptionOrNull() {
+        return description.orElse(null);
+    }
 
     /**
      * An operand represents a single operand.
@@ -59,6 +103,13 @@ public record Instruction(int address, byte[] code, String mnemonic, List<Operan
         public String format(String label) {
             return String.format(opFmt, label);
         }
+        public boolean hasAddress() {
+            return address.isPresent();
+        }
+        /** The address without boxing, or {@link #NO_ADDRESS}. */
+        public int addressValue() {
+            return address.isPresent() ? address.get() : NO_ADDRESS;
+        }
     }
 
     /**
@@ -113,6 +164,12 @@ public record Instruction(int address, byte[] code, String mnemonic, List<Operan
             operands.add(new OpBuilder("%s").value(fmt, values).get());
             return this;
         }
+        /** Add an operand built ahead of time, such as a constant register name. */
+        public Builder operand(Operand operand) {
+            assert operand != null;
+            operands.add(operand);
+            return this;
+        }
         public Builder description(String description) {
             assert description != null;
             this.description = description;
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Aligns two decoded instruction streams, for instance two revisions of a ROM, and reports what changed.
+ * <p/>
+ * Instructions are compared by mnemonic and operands. An address operand that points inside the images is compared
+ * only by its format, so code that moved does not show up as changed just because its jump, branch and data targets
+ * moved with it. Addresses outside both images, such as monitor entry points, are compared exactly.
+ * <p/>
+ * The alignment is Myers' O(ND) difference algorithm, in its linear space form: it finds the middle snake of
+ * each range and recurses on either side. Changes are passed to the consumer in order, as they are found, and
+ * only the removed and inserted instructions of the current hunk are held back to pair them up.
+ */
+public final class InstructionDiff {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public enum Kind {
+        /** The same instruction on both sides. */
+        SAME,
+        /** Only in the left stream. */
+        REMOVED,
+        /** Only in the right stream. */
+        INSERTED,
+        /** A left instruction replaced by a right one. */
+        CHANGED
+    }
+
+    /**
+     * One aligned position.
+     *
+     * @param left The left instruction, or null when inserted.
+     * @param right The right instruction, or null when removed.
+     */
+    public record Change(Kind kind, Instruction left, Instruction right) {}
+
+    private final List<Instruction> left;
+    private final List<Instruction> right;
+    private final long[] a;
+    private final long[] b;
+    private final Consumer<Change> sink;
+    // Edits since the last instruction both sides share, as index ranges
+    private int removedFrom, removedTo, insertedFrom, insertedTo;
+
+    private InstructionDiff(List<Instruction> left, List<Instruction> right, Consumer<Change> sink) {
+        this.left = left;
+        this.right = right;
+        int low = Math.min(low(left), low(right));
+        int high = Math.max(high(left), high(right));
+        this.a = keys(left, low, high);
+        this.b = keys(right, low, high);
+        this.sink = sink;
+    }
+
+    /** Align the two streams and pass every position, including unchanged ones, to the consumer in order. */
+    public static void diff(List<Instruction> left, List<Instruction> right, Consumer<Change> sink) {
+        InstructionDiff diff = new InstructionDiff(left, right, sink);
+        diff.compare(0, diff.a.length, 0, diff.b.length);
+        diff.flush();
+    }
+
+    private static int low(List<Instruction> instructions) {
+        return instructions.isEmpty() ? Integer.MAX_VALUE : instructions.get(0).address();
+    }
+
+    private static int high(List<Instruction> instructions) {
+        if (instructions.isEmpty()) {
+            return Integer.MIN_VALUE;
+        }
+        Instruction last = instructions.get(instructions.size() - 1);
+        return last.address() + last.code().length;
+    }
+
+    /** The comparison keys of a stream, ignoring addresses in the range [low, high). */
+    static long[] keys(List<Instruction> instructions, int low, int high) {
+        long[] keys = new long[instructions.size()];
+        for (int i=0; i<keys.length; i++) {
+            keys[i] = key(instructions.get(i), low, high);
+        }
+        return keys;
+    }
+
+    /** A hash of the instruction text, ignoring addresses in the range [low, high). */
+    static long key(Instruction instruction, int low, int high) {
+        long hash = hash(FNV_OFFSET, instruction.mnemonic());
+        for (int i=0; i<instruction.operandCount(); i++) {
+            Instruction.Operand operand = instruction.operand(i);
+            hash = hash(hash ^ ',', operand.opFmt());
+            int address = operand.addressValue();
+            if (address == Instruction.NO_ADDRESS || address < low || address >= high) {
+                hash = hash(hash ^ '=', operand.value());
+            }
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String text) {
+        for (int i=0; i<text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /** Align a[aLow, aHigh) with b[bLow, bHigh). */
+    private void compare(int aLow, int aHigh, int bLow, int bHigh) {
+        while (aLow < aHigh && bLow < bHigh && a[aLow] == b[bLow]) {
+            same(aLow++, bLow++);
+        }
+        int suffix = 0;
+        while (aLow < aHigh && bLow < bHigh && a[aHigh-1] == b[bHigh-1]) {
+            aHigh--;
+            bHigh--;
+            suffix++;
+        }
+        if (aLow == aHigh || bLow == bHigh) {
+            removed(aLow, aHigh);
+            inserted(bLow, bHigh);
+        }
+        else {
+            long split = middleSnake(aLow, aHigh, bLow, bHigh);
+            if (split < 0) {
+                removed(aLow, aHigh);
+                inserted(bLow, bHigh);
+            }
+            else {
+                int x = (int) (split >>> 32);
+                int y = (int) split;
+                compare(aLow, x, bLow, y);
+                compare(x, aHigh, y, bHigh);
+            }
+        }
+        for (int i=0; i<suffix; i++) {
+            same(aHigh+i, bHigh+i);
+        }
+    }
+
+    /**
+     * Find where the forward and reverse searches meet, as x << 32 | y in absolute indexes, or -1 when the ranges
+     * have nothing in common. Both ranges are non-empty and differ at both ends.
+     */
+    private long middleSnake(int aLow, int aHigh, int bLow, int bHigh) {
+        final int n = aHigh - aLow;
+        final int m = bHigh - bLow;
+        final int maxD = (n + m + 1) / 2;
+        final int offset = maxD;
+        final int delta = n - m;
+        final boolean odd = (delta & 1) != 0;
+        int[] forward = new int[2 * maxD + 2];
+        int[] reverse = new int[2 * maxD + 2];
+        Arrays.fill(forward, -1);
+        Arrays.fill(reverse, -1);
+        forward[offset + 1] = 0;
+        reverse[offset + 1] = 0;
+        // Diagonals that ran off the edge of the grid are skipped in later rounds
+        int forwardStart = 0, forwardEnd = 0, reverseStart = 0, reverseEnd = 0;
+        for (int d=0; d<maxD; d++) {
+            for (int k=-d+forwardStart; k<=d-forwardEnd; k+=2) {
+                int index = offset + k;
+                int x = k == -d || (k != d && forward[index-1] < forward[index+1])
+                        ? forward[index+1] : forward[index-1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aLow+x] == b[bLow+y]) {
+                    x++;
+                    y++;
+                }
+                forward[index] = x;
+                if (x > n) {
+                    forwardEnd += 2;
+                }
+                else if (y > m) {
+                    forwardStart += 2;
+                }
+                else if (odd) {
+                    int reverseIndex = offset + delta - k;
+                    if (reverseIndex >= 0 && reverseIndex < reverse.length && reverse[reverseIndex] != -1
+                            && x >= n - reverse[reverseIndex]) {
+                        return (long) (aLow + x) << 32 | (bLow + y);
+                    }
+                }
+            }
+            for (int k=-d+reverseStart; k<=d-reverseEnd; k+=2) {
+                int index = offset + k;
+                int x = k == -d || (k != d && reverse[index-1] < reverse[index+1])
+                        ? reverse[index+1] : reverse[index-1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aHigh-x-1] == b[bHigh-y-1]) {
+                    x++;
+                    y++;
+                }
+                reverse[index] = x;
+                if (x > n) {
+                    reverseEnd += 2;
+                }
+                else if (y > m) {
+                    reverseStart += 2;
+                }
+                else if (!odd) {
+                    int forwardIndex = offset + delta - k;
+                    if (forwardIndex >= 0 && forwardIndex < forward.length && forward[forwardIndex] != -1) {
+                        int forwardX = forward[forwardIndex];
+                        int forwardY = offset + forwardX - forwardIndex;
+                        if (forwardX >= n - x) {
+                            return (long) (aLow + forwardX) << 32 | (bLow + forwardY);
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void same(int i, int j) {
+        flush();
+        sink.accept(new Change(Kind.SAME, left.get(i), right.get(j)));
+    }
+
+    private void removed(int from, int to) {
+        if (from == to) return;
+        if (removedFrom == removedTo) removedFrom = from;
+        removedTo = to;
+    }
+
+    private void inserted(int from, int to) {
+        if (from == to) return;
+        if (insertedFrom == insertedTo) insertedFrom = from;
+        insertedTo = to;
+    }
+
+    /** Report the pending edits, pairing removed and inserted instructions in order as changes. */
+    private void flush() {
+        int removedCount = removedTo - removedFrom;
+        int insertedCount = insertedTo - insertedFrom;
+        int paired = Math.min(removedCount, insertedCount);
+        for (int i=0; i<paired; i++) {
+            sink.accept(new Change(Kind.CHANGED, left.get(removedFrom+i), right.get(insertedFrom+i)));
+        }
+        for (int i=paired; i<removedCount; i++) {
+            sink.accept(new Change(Kind.REMOVED, left.get(removedFrom+i), null));
+        }
+        for (int i=paired; i<insertedCount; i++) {
+            sink.accept(new Change(Kind.INSERTED, null, right.get(insertedFrom+i)));
+        }
+        removedFrom = removedTo = insertedFrom = insertedTo = 0;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shares one copy of the parts of decoded instructions that repeat: the code bytes, mnemonic, operands and
+ * description. Keep an interner for as long as instructions are kept, for instance across a corpus, and pass every
+ * decoded instruction through {@link #intern(Instruction)}.
+ * <p/>
+ * Parts are shared when they are equal, whatever instruction set decoded them. That also covers address-dependent
+ * instructions: a relative branch only shares its parts with branches from the same bytes to the same target. The
+ * returned instruction is the first one interned when it is at the same address. Otherwise it is a new one that
+ * reuses those parts. Code arrays are shared, so they must not be modified.
+ * <p/>
+ * The interner is thread safe and grows with the number of distinct instructions; {@link #clear()} drops them.
+ */
+public final class InstructionInterner {
+    private final ConcurrentMap<Shape,Instruction> shapes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Instruction.Operand,Instruction.Operand> operands = new ConcurrentHashMap<>();
+
+    /** An instruction equal to the given one, built from shared parts. */
+    public Instruction intern(Instruction instruction) {
+        Instruction canonical = shapes.computeIfAbsent(new Shape(instruction), shape -> canonical(instruction));
+        if (canonical.address() == instruction.address()) {
+            return canonical;
+        }
+        return new Instruction(instruction.address(), canonical.code(), canonical.mnemonic(), canonical.operands(),
+                canonical.description());
+    }
+
+    /** Intern every instruction in the list, in place. */
+    public void internAll(List<Instruction> instructions) {
+        instructions.replaceAll(this::intern);
+    }
+
+    /** Number of distinct instructions, ignoring address. */
+    public int size() {
+        return shapes.size();
+    }
+
+    public void clear() {
+        shapes.clear();
+        operands.clear();
+    }
+
+    private Instruction canonical(Instruction instruction) {
+        List<Instruction.Operand> shared = instruction.operands().stream()
+                .map(operand -> operands.computeIfAbsent(operand, o -> o))
+                .toList();
+        return new Instruction(instruction.address(), instruction.code(), instruction.mnemonic().intern(), shared,
+                instruction.description());
+    }
+
+    /** Everything except the address. */
+    private record Shape(byte[] code, String mnemonic, List<Instruction.Operand> operands, Optional<String> description) {
+        Shape(Instruction instruction) {
+            this(instruction.code(), instruction.mnemonic(), instruction.operands(), instruction.description());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shape other && Arrays.equals(code, other.code) && mnemonic.equals(other.mnemonic)
+                    && operands.equals(other.operands) && description.equals(other.description);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Arrays.hashCode(code);
+            hash = 31 * hash + mnemonic.hashCode();
+            hash = 31 * hash + operands.hashCode();
+            return 31 * hash + description.hashCode();
+        }
+    }
+}
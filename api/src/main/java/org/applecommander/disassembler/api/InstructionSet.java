@@ -18,15 +18,27 @@ package org.applecommander.disassembler.api;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * InstructionSet is the core mechanism to decode a given program.
  */
 public interface InstructionSet {
+    /** A short name for the instruction set, such as "6502" or "Z80". */
+    default String name() {
+        return getClass().getSimpleName();
+    }
     /** Provides default values that are useful when setting up the Disassembler. */
     Defaults defaults();
     /** Decodes a program into a set of instructions. */
     List<Instruction> decode(Program program);
+    /**
+     * Decodes a program, handing each instruction to the consumer as it is decoded instead of collecting them.
+     * The built-in instruction sets all stream; the default is for other implementations.
+     */
+    default void decode(Program program, Consumer<Instruction> consumer) {
+        decode(program).forEach(consumer);
+    }
     /**
      * Generates an "opcode table" that can be used to generate documentation.
      * Each table is 256 bytes; most have 1 but Z80 has 3.
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders instructions as listing lines. The layout is compiled once from a template of literal text and
+ * fields: {@code {address}}, {@code {bytes}}, {@code {label}}, {@code {mnemonic}}, {@code {operands}} and
+ * {@code {description}}. A field may give a minimum width and a maximum, as in {@code {label:10.10}}; text is
+ * left aligned. {@code {bytes}} is one "XX " per byte, padded to the bytes per line; longer instructions
+ * continue on following lines, except {@code .FILL}. {@code {description}} is "; " and the description, when
+ * there is one and descriptions are on.
+ * <p/>
+ * Each line is written to a reusable buffer, as UTF-8 with the platform line separator, with hex from lookup tables.
+ * A renderer is not thread safe.
+ */
+public final class ListingRenderer {
+    /** The listing with labels. */
+    public static final String LABELED = "{address}- {bytes} {label:10.10} {mnemonic:5} {operands:30} {description}";
+    /** The listing without labels. */
+    public static final String RAW = "{address}- {bytes} {mnemonic:5} {operands:30}{description}";
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private enum Element { LITERAL, ADDRESS, BYTES, LABEL, MNEMONIC, OPERANDS, DESCRIPTION }
+
+    private final int bytesPerLine;
+    private final boolean descriptions;
+    // Compiled layout, one entry per field or literal
+    private final Element[] elements;
+    private final byte[][] literals;
+    private final int[] minWidths;
+    private final int[] maxWidths;
+    private byte[] buffer = new byte[256];
+    private int length;
+
+    private ListingRenderer(String layout, int bytesPerLine, boolean descriptions) {
+        this.bytesPerLine = bytesPerLine;
+        this.descriptions = descriptions;
+        List<Element> elements = new ArrayList<>();
+        List<byte[]> literals = new ArrayList<>();
+        List<int[]> widths = new ArrayList<>();
+        int i = 0;
+        while (i < layout.length()) {
+            int open = layout.indexOf('{', i);
+            if (open < 0) open = layout.length();
+            if (open > i) {
+                elements.add(Element.LITERAL);
+                literals.add(layout.substring(i, open).getBytes(StandardCharsets.UTF_8));
+                widths.add(new int[] { 0, Integer.MAX_VALUE });
+            }
+            if (open == layout.length()) break;
+            int close = layout.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed '{' in layout: " + layout);
+            }
+            String spec = layout.substring(open + 1, close);
+            int colon = spec.indexOf(':');
+            String name = colon >= 0 ? spec.substring(0, colon) : spec;
+            int[] width = { 0, Integer.MAX_VALUE };
+            if (colon >= 0) {
+                String[] parts = spec.substring(colon + 1).split("\\.", -1);
+                try {
+                    width[0] = Integer.parseInt(parts[0]);
+                    if (parts.length > 1) width[1] = Integer.parseInt(parts[1]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(String.format("Bad width in layout field '{%s}'.", spec));
+                }
+            }
+            Element element = Arrays.stream(Element.values())
+                    .filter(f -> f != Element.LITERAL && f.name().equalsIgnoreCase(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format(
+                            "Unknown layout field '{%s}'; expecting address, bytes, label, mnemonic, operands or description.",
+                            name)));
+            elements.add(element);
+            literals.add(null);
+            widths.add(width);
+            i = close + 1;
+        }
+        this.elements = elements.toArray(new Element[0]);
+        this.literals = literals.toArray(new byte[0][]);
+        this.minWidths = widths.stream().mapToInt(w -> w[0]).toArray();
+        this.maxWidths = widths.stream().mapToInt(w -> w[1]).toArray();
+    }
+
+    /** Compile a layout; throws IllegalArgumentException for unknown fields or bad widths. */
+    public static ListingRenderer compile(String layout, int bytesPerLine) {
+        return compile(layout, bytesPerLine, true);
+    }
+    /** Compile a layout, leaving {@code {description}} blank when descriptions are off. */
+    public static ListingRenderer compile(String layout, int bytesPerLine, boolean descriptions) {
+        return new ListingRenderer(layout, bytesPerLine, descriptions);
+    }
+
+    public int bytesPerLine() {
+        return bytesPerLine;
+    }
+
+    /** Render the instruction, including any continuation lines, replacing the buffer contents. */
+    public ListingRenderer render(Instruction instruction, Map<Integer,String> labels) {
+        length = 0;
+        byte[] code = instruction.code();
+        for (int e=0; e<elements.length; e++) {
+            int start = length;
+            switch (elements[e]) {
+                case LITERAL -> append(literals[e]);
+                case ADDRESS -> hex(instruction.address(), 4);
+                case BYTES -> {
+                    for (int i=0; i<bytesPerLine; i++) {
+                        if (i < code.length) {
+                            hex(code[i] & 0xff, 2);
+                            append(' ');
+                        } else {
+                            append(' ');
+                            append(' ');
+                            append(' ');
+                        }
+                    }
+                }
+                case LABEL -> append(labels.get(instruction.address()));
+                case MNEMONIC -> append(instruction.mnemonic());
+                case OPERANDS -> operands(instruction, labels);
+                case DESCRIPTION -> {
+                    String description = descriptions ? instruction.descriptionOrNull() : null;
+                    if (description != null) {
+                        append(';');
+                        append(' ');
+                        append(description);
+                    }
+                }
+            }
+            if (maxWidths[e] != Integer.MAX_VALUE) {
+                truncate(start, maxWidths[e]);
+            }
+            pad(start, minWidths[e]);
+        }
+        append(NEWLINE);
+
+        if (code.length > bytesPerLine && !".FILL".equals(instruction.mnemonic())) {
+            for (int i=bytesPerLine; i<code.length; i++) {
+                if (i % bytesPerLine == 0) {
+                    if (i > bytesPerLine) append(NEWLINE);
+                    hex(instruction.address() + i, 4);
+                    append('-');
+                    append(' ');
+                }
+                hex(code[i] & 0xff, 2);
+                append(' ');
+            }
+            append(NEWLINE);
+        }
+        return this;
+    }
+
+    /** Write the rendered lines. */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    /** The rendered lines, for callers that need text. */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void operands(Instruction instruction, Map<Integer,String> labels) {
+        for (int i=0; i<instruction.operandCount(); i++) {
+            if (i > 0) append(',');
+            Instruction.Operand operand = instruction.operand(i);
+            String label = operand.hasAddress() ? labels.get(operand.addressValue()) : null;
+            String value = label != null ? label : operand.value();
+            String opFmt = operand.opFmt();
+            int s = opFmt.indexOf("%s");
+            if (s >= 0 && opFmt.indexOf('%', s + 2) < 0 && opFmt.lastIndexOf('%', s - 1) < 0) {
+                append(opFmt, 0, s);
+                append(value);
+                append(opFmt, s + 2, opFmt.length());
+            } else {
+                String text = label != null ? operand.format(label) : operand.format();
+                append(text);
+            }
+        }
+    }
+
+    /** Pad with spaces to the minimum width, counting characters rather than UTF-8 bytes. */
+    private void pad(int start, int width) {
+        int chars = chars(start);
+        while (chars++ < width) {
+            append(' ');
+        }
+    }
+
+    private void truncate(int start, int max) {
+        int chars = 0;
+        for (int i=start; i<length; i++) {
+            if ((buffer[i] & 0xc0) != 0x80 && chars++ == max) {
+                length = i;
+                return;
+            }
+        }
+    }
+
+    private int chars(int start) {
+        int chars = 0;
+        for (int i=start; i<length; i++) {
+            if ((buffer[i] & 0xc0) != 0x80) chars++;
+        }
+        return chars;
+    }
+
+    private void hex(int value, int digits) {
+        int needed = digits;
+        while (needed < 8 && (value >>> (needed * 4)) != 0) {
+            needed++;
+        }
+        ensure(needed);
+        for (int i=needed-1; i>=0; i--) {
+            buffer[length++] = HEX[(value >>> (i * 4)) & 0xf];
+        }
+    }
+
+    private void append(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void append(char ch) {
+        ensure(1);
+        buffer[length++] = (byte) ch;
+    }
+
+    private void append(String text) {
+        if (text != null) {
+            append(text, 0, text.length());
+        }
+    }
+
+    private void append(String text, int from, int to) {
+        ensure(to - from);
+        for (int i=from; i<to; i++) {
+            char ch = text.charAt(i);
+            if (ch >= 0x80) {
+                append(text.substring(i, to).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer[length++] = (byte) ch;
+        }
+    }
+
+    private void ensure(int more) {
+        if (length + more > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + more));
+        }
+    }
+}
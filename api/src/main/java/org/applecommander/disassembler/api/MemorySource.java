@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to the bytes of a program, by offset from its first byte. A {@link Program} is a cursor over a
+ * source, so every instruction set can decode from an array, a buffer or memory mapped file, a sparse memory image
+ * or a {@link RelocatingView}.
+ * <p/>
+ * Reading outside the source, or from a gap in a sparse image, gives 0. Sources are read-only and may be shared
+ * between threads.
+ */
+public interface MemorySource {
+    /** The bytes of an array, which is not copied. */
+    static MemorySource of(byte[] code) {
+        return new ArraySource(code, code.length);
+    }
+    /**
+     * The first length bytes of an array whose remaining bytes are all zero. Decoding reads past the last instruction
+     * straight from the padding instead of checking for the end of the code.
+     */
+    static MemorySource padded(byte[] code, int length) {
+        if (length < 0 || length > code.length) {
+            throw new IllegalArgumentException(String.format("Invalid length %d for %d bytes.", length, code.length));
+        }
+        for (int i=length; i<code.length; i++) {
+            if (code[i] != 0) {
+                throw new IllegalArgumentException(String.format("Padding at offset %d is not zero.", i));
+            }
+        }
+        return new ArraySource(code, length);
+    }
+    /** The bytes of a buffer from its position to its limit, read in place. */
+    static MemorySource of(ByteBuffer buffer) {
+        return new BufferSource(buffer);
+    }
+    /** The bytes of a file, memory mapped. */
+    static MemorySource map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to map.");
+            }
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    int length();
+
+    /** The unsigned byte at an offset, or 0 outside the source. */
+    int getUnsignedByte(int offset);
+
+    /** The little endian unsigned word at an offset. */
+    default int getUnsignedShort(int offset) {
+        return getUnsignedByte(offset) | getUnsignedByte(offset + 1) << 8;
+    }
+
+    /** A copy of length bytes from an offset; bytes outside the source are 0. */
+    default byte[] copy(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i=0; i<length; i++) {
+            bytes[i] = (byte) getUnsignedByte(offset + i);
+        }
+        return bytes;
+    }
+
+    /** A source of length bytes from an offset. */
+    default MemorySource slice(int offset, int length) {
+        return new SliceSource(this, offset, length);
+    }
+
+    /**
+     * The bytes as an array from offset 0, or null when they are not kept that way. Every byte of the array past
+     * {@link #length()} is zero, so it may be read anywhere without checking the length. Not to be modified.
+     */
+    default byte[] array() {
+        return null;
+    }
+}
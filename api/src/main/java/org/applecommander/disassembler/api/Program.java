@@ -23,28 +23,51 @@ import java.util.Objects;
  * Program is a state class that tracks where decoding is, what the address is, and provides
  * a few helper methods to assist with various data types. Note that "get" reads from an absolute
  * position (always from 0) while "peek" reads from a relative position (from offset).
+ * <p/>
+ * A program is a cursor over a {@link MemorySource}. Sources kept as arrays are read directly, with the one check
+ * against the array length; past the end of the code, a padded array is still read directly.
  */
 public class Program {
     static final int ADDRESS_SPACE = 64 * 1024; //64k Address Space
+    private static final byte[] NO_ARRAY = new byte[0];
 
     private final int baseAddress;
-    private final byte[] code;
+    private final MemorySource source;
+    private final int length;
+    // The source's array, or an empty one so every read goes to the source
+    private final byte[] array;
+    private byte[] code;
+    private final DecodeListener listener;
     private int offset;
 
     public Program(byte[] code, int address) {
-        Objects.requireNonNull(code);
+        this(code, address, DecodeListener.NONE);
+    }
+    public Program(byte[] code, int address, DecodeListener listener) {
+        this(MemorySource.of(code), address, listener);
+    }
+    public Program(MemorySource source, int address) {
+        this(source, address, DecodeListener.NONE);
+    }
+    public Program(MemorySource source, int address, DecodeListener listener) {
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(listener);
         this.baseAddress = address;
-        this.code = code;
+        this.source = source;
+        this.length = source.length();
+        byte[] array = source.array();
+        this.array = array == null ? NO_ARRAY : array;
+        this.listener = listener;
         this.offset = 0;
     }
 
     /** Length of code. */
     public int length() {
-        return code.length;
+        return length;
     }
     /** Test if there are more bytes to process. */
     public boolean hasMore() {
-        return offset < code.length;
+        return offset < length;
     }
     /** Get an unsigned byte at the current offset. Does not advance the offset value. */
     public int peekUnsignedByte() {
@@ -52,7 +75,7 @@ public class Program {
     }
     /** Get an unsigned byte at the current offset + n. Does not advance the offset value. */
     public int peekUnsignedByte(int n) {
-        return offset+n < code.length ? Byte.toUnsignedInt(code[offset+n]) : 0;
+        return getUnsignedByte(offset+n);
     }
     /** Get an unsigned short (2 bytes, little endian) at the current offset + n. Does not advance the offset value. */
     public int peekUnsignedShort(int n) {
@@ -60,17 +83,26 @@ public class Program {
     }
     /** Get a *signed* byte at the current offset + n. Does not advance the offset value. */
     public int peekSignedByte(int n) {
-        return offset+n < code.length ? code[offset+n] : 0;
+        return (byte) getUnsignedByte(offset+n);
     }
     /** Read n bytes. Advances offset. Used to read all bytes that are part of an instruction. */
     public byte[] read(int n) {
-        byte[] x = Arrays.copyOfRange(code, offset, offset+n);
+        byte[] x = array.length > 0 ? Arrays.copyOfRange(array, offset, offset+n) : source.copy(offset, n);
         offset += n;
         return x;
     }
+    /** Skip n bytes. Advances offset without copying them. */
+    public void skip(int n) {
+        offset += n;
+    }
+    /** Move to an offset, for decoders that follow the flow of the code. */
+    public void seek(int offset) {
+        this.offset = offset;
+    }
     /** Get an unsigned byte from specified offset. This is not relative like the others. */
     public int getUnsignedByte(int n) {
-        return n < code.length ? Byte.toUnsignedInt(code[n]) : 0;
+        byte[] array = this.array;
+        return n < array.length ? Byte.toUnsignedInt(array[n]) : source.getUnsignedByte(n);
     }
     /** Get the current offset. */
     public int currentOffset() {
@@ -80,6 +112,27 @@ public class Program {
     public int baseAddress() {
         return baseAddress;
     }
+    /** The source of the bytes. */
+    public MemorySource source() {
+        return source;
+    }
+    /**
+     * The code as an array of exactly its length, for bulk scanning; not to be modified. Sources that are not such
+     * an array, including padded ones, are copied out the first time.
+     */
+    byte[] code() {
+        if (array.length == length) {
+            return array;
+        }
+        if (code == null) {
+            code = source.copy(0, length);
+        }
+        return code;
+    }
+    /** The listener to notify while decoding this program. */
+    public DecodeListener listener() {
+        return listener;
+    }
     /** Get the current address. Note that the address is wrapped across the address space. Currently, 64K. */
     public int currentAddress() {
         return (baseAddress+offset) % ADDRESS_SPACE; //wrap around to 0 if address exceeds the address space
@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.mos6502.Opcode6502;
+
+/**
+ * Splits a program into code and likely data before decoding, so data is emitted as directives instead of
+ * junk instructions. Classification is linear in the program size:
+ * <ol>
+ * <li>one pass over the bytes finds fill runs (8+ identical bytes) and high-bit ASCII text (8+ bytes, mostly
+ *     letters, digits and spaces);</li>
+ * <li>one linear decode collects instruction starts and the table bytes reached by indexed and indirect
+ *     operands; a word table is 6+ distinct little-endian words whose first word is reached through both of its
+ *     bytes by instructions close together (as in {@code LDA TABLE,X} and {@code LDA TABLE+1,X}), and which all
+ *     point at instruction starts in the program, or one byte before them for tables used with RTS;</li>
+ * <li>one linear decode over the remaining code keeps instructions whole at region boundaries and marks
+ *     stretches where 3 of the last 8 instructions are invalid as plain bytes, until 8 valid instructions
+ *     in a row show up again.</li>
+ * </ol>
+ * The heuristics are deliberately conservative; anything uncertain stays code.
+ */
+public class RegionClassifier {
+    static final int MIN_FILL = 8;
+    static final int MIN_TEXT = 8;
+    static final int MIN_WORDS = 6;
+    static final int MAX_REFERENCE_GAP = 32;
+    static final int WINDOW = 8;
+    static final int MAX_INVALID = 3;
+    static final int TEXT_PER_LINE = 12;
+    static final int BYTES_PER_LINE = 3;
+    static final int DENSITY_WINDOW = 256;
+    /** High-bit ASCII and carriage returns. */
+    static final ByteClass TEXT_BYTES = ByteClass.range(0xa0, 0xfe).or(ByteClass.of(0x8d));
+    /** Space, digits and capital letters. */
+    static final ByteClass WORD_BYTES = ByteClass.of(0xa0)
+            .or(ByteClass.range(0xb0, 0xb9))
+            .or(ByteClass.range(0xc1, 0xda));
+
+    /** A classifier using the opcode lengths and invalid opcodes of a 6502 family instruction set. */
+    public static RegionClassifier for6502(InstructionSet6502 instructionSet) {
+        return new RegionClassifier(op -> instructionSet.addressMode(op).getInstructionLength(),
+                op -> instructionSet.opcode(op) == Opcode6502.ZZZ,
+                op -> instructionSet.opcode(op) == Opcode6502.ZZZ ? 0 : switch (instructionSet.addressMode(op)) {
+                    case ABSX, ABSY -> 1;
+                    case INDABSX -> 2;
+                    default -> 0;
+                });
+    }
+
+    private final IntUnaryOperator instructionLength;
+    private final IntPredicate invalidOpcode;
+    private final IntUnaryOperator tableReach;
+    private final ByteClass invalidBytes;
+
+    /** A classifier where the 16-bit operand of any valid 3 byte instruction reaches one byte of a table. */
+    public RegionClassifier(IntUnaryOperator instructionLength, IntPredicate invalidOpcode) {
+        this(instructionLength, invalidOpcode,
+                op -> instructionLength.applyAsInt(op) == 3 && !invalidOpcode.test(op) ? 1 : 0);
+    }
+    /**
+     * A classifier where tableReach gives the number of table bytes the 16-bit operand of an opcode reaches: 1 for
+     * an indexed load of one byte of each entry, 2 for an indexed indirect jump, and 0 for anything else.
+     */
+    public RegionClassifier(IntUnaryOperator instructionLength, IntPredicate invalidOpcode,
+                            IntUnaryOperator tableReach) {
+        this.instructionLength = instructionLength;
+        this.invalidOpcode = invalidOpcode;
+        this.tableReach = tableReach;
+        this.invalidBytes = ByteClass.of(invalidOpcode);
+    }
+
+    /** Classify the whole program into adjacent regions, in address order. */
+    public List<Region> classify(Program program) {
+        int length = program.length();
+        Kind[] kinds = new Kind[length];
+        Arrays.fill(kinds, Kind.CODE);
+        byte[] code = program.code();
+        ByteScanner scanner = ByteScanner.get();
+        scanFill(program, kinds);
+        scanText(code, scanner, kinds);
+        scanWords(program, kinds);
+        scanCode(program, kinds, scanner.windowCounts(code, 0, length, DENSITY_WINDOW, invalidBytes));
+
+        List<Region> regions = new ArrayList<>();
+        int start = 0;
+        for (int i=1; i<=length; i++) {
+            if (i == length || kinds[i] != kinds[start]) {
+                regions.add(new Region(start, i, kinds[start]));
+                start = i;
+            }
+        }
+        return regions;
+    }
+
+    private static void scanFill(Program program, Kind[] kinds) {
+        int length = program.length();
+        int fillStart = 0;
+        for (int i=1; i<=length; i++) {
+            if (i == length || program.getUnsignedByte(i) != program.getUnsignedByte(fillStart)) {
+                if (i - fillStart >= MIN_FILL) mark(kinds, fillStart, i, Kind.FILL);
+                fillStart = i;
+            }
+        }
+    }
+
+    /**
+     * Text: runs of high-bit ASCII, mostly alphanumeric. A run of {@value #MIN_TEXT} bytes covers a whole window of
+     * half that size, so only windows the scanner counts as all text are extended into runs.
+     */
+    private static void scanText(byte[] code, ByteScanner scanner, Kind[] kinds) {
+        int window = MIN_TEXT / 2;
+        int[] counts = scanner.windowCounts(code, 0, code.length, window, TEXT_BYTES);
+        int scanned = 0;
+        for (int w=0; w<counts.length; w++) {
+            int start = w * window;
+            int end = Math.min(code.length, start + window);
+            if (start < scanned || counts[w] < end - start) continue;
+            while (start > 0 && TEXT_BYTES.contains(code[start - 1])) start--;
+            while (end < code.length && TEXT_BYTES.contains(code[end])) end++;
+            int words = scanner.count(code, start, end, WORD_BYTES);
+            if (end - start >= MIN_TEXT && words * 4 >= (end - start) * 3) mark(kinds, start, end, Kind.TEXT);
+            scanned = end;
+        }
+    }
+
+    private void scanWords(Program program, Kind[] kinds) {
+        int length = program.length();
+        int base = program.baseAddress();
+        boolean[] starts = new boolean[length];
+        int[] referrer = new int[length];       // offset of an instruction reaching each byte, or -1
+        Arrays.fill(referrer, -1);
+        int i = 0;
+        while (i < length) {
+            if (kinds[i] != Kind.CODE) {
+                i++;
+                continue;
+            }
+            int op = program.getUnsignedByte(i);
+            if (!invalidOpcode.test(op)) {
+                starts[i] = true;
+                int reach = tableReach.applyAsInt(op);
+                if (reach > 0 && i + 2 < length) {
+                    int target = wordAt(program, i + 1) - base;
+                    for (int n=Math.max(0, target); n<Math.min(length, target + reach); n++) referrer[n] = i;
+                }
+            }
+            i += instructionLength.applyAsInt(op);
+        }
+        // Words are checked once for each alignment, and for both exact and "address - 1" targets
+        for (int parity=0; parity<2; parity++) {
+            for (int adjust=0; adjust<2; adjust++) {
+                int start = parity;
+                int offset = parity;
+                for (; offset<length; offset+=2) {
+                    if (!isEntry(program, kinds, starts, offset, adjust)) {
+                        closeWords(program, kinds, referrer, start, offset);
+                        start = offset + 2;
+                    }
+                }
+                closeWords(program, kinds, referrer, start, offset);
+            }
+        }
+    }
+    /** A table entry is a word outside any other region that points at an instruction start in the program. */
+    private static boolean isEntry(Program program, Kind[] kinds, boolean[] starts, int offset, int adjust) {
+        if (offset + 1 >= kinds.length || kinds[offset] != Kind.CODE || kinds[offset + 1] != Kind.CODE) return false;
+        int target = wordAt(program, offset) + adjust - program.baseAddress();
+        return target >= 0 && target < starts.length && starts[target];
+    }
+    /** Keep a run of entries from its first word reached through both bytes, if enough distinct entries remain. */
+    private static void closeWords(Program program, Kind[] kinds, int[] referrer, int start, int end) {
+        while (start < end && !isTableStart(referrer, start)) start += 2;
+        int count = (end - start) / 2;
+        if (count < MIN_WORDS) return;
+        int[] words = new int[count];
+        for (int i=0; i<count; i++) words[i] = wordAt(program, start + i*2);
+        if (Arrays.stream(words).distinct().count() < MIN_WORDS) return;
+        mark(kinds, start, end, Kind.WORDS);
+    }
+    private static boolean isTableStart(int[] referrer, int offset) {
+        return referrer[offset] >= 0 && referrer[offset + 1] >= 0
+                && Math.abs(referrer[offset] - referrer[offset + 1]) <= MAX_REFERENCE_GAP;
+    }
+    private static int wordAt(Program program, int offset) {
+        return program.getUnsignedByte(offset) | program.getUnsignedByte(offset + 1) << 8;
+    }
+
+    /** The density is the count of invalid opcode bytes in each window; windows without any skip the test. */
+    private void scanCode(Program program, Kind[] kinds, int[] invalidDensity) {
+        int length = program.length();
+        int[] starts = new int[WINDOW];
+        boolean[] invalid = new boolean[WINDOW];
+        int count = 0;
+        int invalidCount = 0;
+        int dataEnd = -1;       // while in a stretch of bytes, where it currently ends
+        int i = 0;
+        while (i < length) {
+            if (kinds[i] != Kind.CODE) {
+                count = 0;
+                invalidCount = 0;
+                dataEnd = -1;
+                i++;
+                continue;
+            }
+            int op = program.getUnsignedByte(i);
+            int end = Math.min(length, i + instructionLength.applyAsInt(op));
+            // An instruction that runs into a data region wins over the data
+            for (int j=i+1; j<end; j++) kinds[j] = Kind.CODE;
+            boolean bad = invalidDensity[i / DENSITY_WINDOW] > 0 && invalidOpcode.test(op);
+
+            if (dataEnd >= 0) {
+                // Stay in data until a full window of valid instructions shows up
+                if (bad) {
+                    mark(kinds, dataEnd, end, Kind.BYTES);
+                    dataEnd = end;
+                    count = 0;
+                }
+                else if (++count == WINDOW) {
+                    dataEnd = -1;
+                    count = 0;
+                    invalidCount = 0;
+                }
+                i = end;
+                continue;
+            }
+
+            int slot = count % WINDOW;
+            if (count >= WINDOW && invalid[slot]) invalidCount--;
+            starts[slot] = i;
+            invalid[slot] = bad;
+            if (bad) invalidCount++;
+            count++;
+            if (invalidCount >= MAX_INVALID) {
+                int from = starts[count < WINDOW ? 0 : count % WINDOW];
+                mark(kinds, from, end, Kind.BYTES);
+                dataEnd = end;
+                count = 0;
+            }
+            i = end;
+        }
+    }
+
+    private static void mark(Kind[] kinds, int start, int end, Kind kind) {
+        for (int i=start; i<end; i++) kinds[i] = kind;
+    }
+
+    /** Emit a data region as directives. Code regions are left to the instruction set. */
+    public void emit(Program program, Region region, Consumer<Instruction> consumer) {
+        int base = program.baseAddress();
+        switch (region.kind()) {
+            case CODE -> throw new IllegalArgumentException("Code regions are decoded by the instruction set.");
+            case FILL -> consumer.accept(Instruction.at(address(base, region.start()))
+                    .mnemonic(".FILL")
+                    .opValue("%d", region.end() - region.start())
+                    .opValue("$%02X", program.getUnsignedByte(region.start()))
+                    .code(bytes(program, region.start(), region.end()))
+                    .get());
+            case WORDS -> {
+                for (int i=region.start(); i+1<region.end(); i+=2) {
+                    consumer.accept(Instruction.at(address(base, i))
+                            .mnemonic(".ADDR")
+                            .opAddress("%s", "$%04X", program.getUnsignedByte(i) | program.getUnsignedByte(i+1) << 8)
+                            .code(bytes(program, i, i+2))
+                            .get());
+                }
+                if ((region.end() - region.start()) % 2 == 1) {
+                    emitBytes(program, region.end() - 1, region.end(), consumer);
+                }
+            }
+            case TEXT -> {
+                for (int i=region.start(); i<region.end(); i+=TEXT_PER_LINE) {
+                    int end = Math.min(region.end(), i + TEXT_PER_LINE);
+                    Instruction.Builder builder = Instruction.at(address(base, i)).mnemonic(".ASC");
+                    StringBuilder text = new StringBuilder();
+                    for (int j=i; j<end; j++) {
+                        int b = program.getUnsignedByte(j);
+                        if (b == 0x8d) {
+                            if (!text.isEmpty()) builder.opValue("\"%s\"", text.toString());
+                            builder.opValue("$%02X", b);
+                            text.setLength(0);
+                        }
+                        else {
+                            text.append((char) (b & 0x7f));
+                        }
+                    }
+                    if (!text.isEmpty()) builder.opValue("\"%s\"", text.toString());
+                    consumer.accept(builder.code(bytes(program, i, end)).get());
+                }
+            }
+            case BYTES -> emitBytes(program, region.start(), region.end(), consumer);
+        }
+    }
+    private static void emitBytes(Program program, int start, int end, Consumer<Instruction> consumer) {
+        int base = program.baseAddress();
+        for (int i=start; i<end; i+=BYTES_PER_LINE) {
+            int lineEnd = Math.min(end, i + BYTES_PER_LINE);
+            Instruction.Builder builder = Instruction.at(address(base, i)).mnemonic(".BYTE");
+            for (int j=i; j<lineEnd; j++) builder.opValue("$%02X", program.getUnsignedByte(j));
+            consumer.accept(builder.code(bytes(program, i, lineEnd)).get());
+        }
+    }
+    private static int address(int base, int offset) {
+        return (base + offset) % Program.ADDRESS_SPACE;
+    }
+    private static byte[] bytes(Program program, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i=0; i<bytes.length; i++) bytes[i] = (byte) program.getUnsignedByte(start + i);
+        return bytes;
+    }
+
+    public enum Kind {
+        CODE, TEXT, WORDS, FILL, BYTES
+    }
+
+    /** A region of the program, from start (inclusive) to end (exclusive) as offsets into the program. */
+    public record Region(int start, int end, Kind kind) {}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A read-only view of relocatable code in a larger buffer, such as an assembly procedure in a Pascal CODEFILE
+ * segment, as a {@link MemorySource}. The buffer is never copied or changed; each relocated word is worked out
+ * when its bytes are read.
+ * <p/>
+ * Relocation sites are given as positions in the buffer of little endian words. Sites whose base is known have
+ * it added; sites whose base is only known at run time are left as they are and named, so an address operand read
+ * from one is shown as, for example, {@code SEG+$0012}, and is not labeled.
+ * <p/>
+ * For example:
+ * <pre>
+ * {@code
+ * RelocatingView code = RelocatingView.over(data, enterIC, endIC)
+ *                                     .relocate(procRelativeReloc, endIC)
+ *                                     .symbol(segRelativeReloc, "SEG")
+ *                                     .get();
+ * List<Instruction> assembly = Disassembler.with(code).startingAddress(enterIC).decode();
+ * }
+ * </pre>
+ */
+public final class RelocatingView implements MemorySource {
+    private final ByteBuffer data;
+    private final int start;
+    private final int length;
+    // Sorted by offset from start
+    private final int[] sites;
+    private final int[] deltas;
+    private final String[] symbols;
+
+    private RelocatingView(ByteBuffer data, int start, int length, int[] sites, int[] deltas, String[] symbols) {
+        this.data = data;
+        this.start = start;
+        this.length = length;
+        this.sites = sites;
+        this.deltas = deltas;
+        this.symbols = symbols;
+    }
+
+    /** Start a view of data[start, end); positions are absolute, as with {@link ByteBuffer#get(int)}. */
+    public static Builder over(ByteBuffer data, int start, int end) {
+        return new Builder(data, start, end);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /** The unsigned byte at an offset from the start of the view, relocated. */
+    @Override
+    public int getUnsignedByte(int offset) {
+        if (offset < 0 || offset >= length) {
+            return 0;
+        }
+        int site = site(offset);
+        if (site < 0) {
+            return Byte.toUnsignedInt(data.get(start + offset));
+        }
+        int word = rawWord(sites[site]) + deltas[site];
+        return (offset == sites[site] ? word : word >> 8) & 0xff;
+    }
+
+    /** A view of part of this one, with the sites that fall in it. */
+    @Override
+    public RelocatingView slice(int offset, int length) {
+        int from = lowerBound(offset - 1);
+        int to = lowerBound(offset + length);
+        int[] sliced = new int[to - from];
+        for (int i=0; i<sliced.length; i++) {
+            sliced[i] = sites[from + i] - offset;
+        }
+        return new RelocatingView(data, start + offset, length, sliced, Arrays.copyOfRange(deltas, from, to),
+                Arrays.copyOfRange(symbols, from, to));
+    }
+
+    /**
+     * Name the address operand read from a symbolic site within the instruction, which is at the given offset.
+     * Other instructions are returned as they are.
+     */
+    public Instruction symbolize(Instruction instruction, int offset) {
+        for (int i=lowerBound(offset + 1); i<sites.length && sites[i]+1 < offset+instruction.code().length; i++) {
+            if (symbols[i] == null) continue;
+            int value = rawWord(sites[i]);
+            List<Instruction.Operand> operands = new ArrayList<>(instruction.operands());
+            for (int j=0; j<operands.size(); j++) {
+                Instruction.Operand operand = operands.get(j);
+                if (operand.addressValue() == value) {
+                    operands.set(j, new Instruction.Operand(operand.opFmt(),
+                            String.format("%s+$%04X", symbols[i], value), Optional.empty()));
+                    return new Instruction(instruction.address(), instruction.code(), instruction.mnemonic(),
+                            operands, instruction.description());
+                }
+            }
+        }
+        return instruction;
+    }
+
+    private int rawWord(int site) {
+        return Byte.toUnsignedInt(data.get(start + site)) | Byte.toUnsignedInt(data.get(start + site + 1)) << 8;
+    }
+
+    /** The site covering the byte at offset, or -1. */
+    private int site(int offset) {
+        int i = lowerBound(offset - 1);
+        return i < sites.length && sites[i] <= offset ? i : -1;
+    }
+
+    /** Index of the first site at or after offset. */
+    private int lowerBound(int offset) {
+        int low = 0;
+        int high = sites.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sites[middle] < offset) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    public static class Builder {
+        private final ByteBuffer data;
+        private final int start;
+        private final int length;
+        private final List<long[]> sites = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+
+        private Builder(ByteBuffer data, int start, int end) {
+            if (start < 0 || end < start || end > data.capacity()) {
+                throw new IllegalArgumentException(String.format("Invalid range $%04X..$%04X.", start, end));
+            }
+            this.data = data;
+            this.start = start;
+            this.length = end - start;
+        }
+        /** Add delta to the word at each site. */
+        public Builder relocate(int[] positions, int delta) {
+            return add(positions, delta, null);
+        }
+        /** Leave the word at each site as it is, but show it as an offset from the named base. */
+        public Builder symbol(int[] positions, String name) {
+            return add(positions, 0, name);
+        }
+        public RelocatingView get() {
+            // Of two sites that overlap, which only a damaged table gives, the lower is kept
+            sites.sort((a, b) -> Long.compare(a[0], b[0]));
+            int[] offsets = new int[sites.size()];
+            int[] deltas = new int[sites.size()];
+            String[] symbols = new String[sites.size()];
+            int count = 0;
+            for (long[] site : sites) {
+                if (count > 0 && site[0] < offsets[count-1] + 2) continue;
+                offsets[count] = (int) site[0];
+                deltas[count] = (int) site[1];
+                symbols[count++] = names.get((int) site[2]);
+            }
+            return new RelocatingView(data, start, length, Arrays.copyOf(offsets, count), Arrays.copyOf(deltas, count),
+                    Arrays.copyOf(symbols, count));
+        }
+
+        private Builder add(int[] positions, int delta, String name) {
+            names.add(name);
+            for (int position : positions) {
+                // Sites outside the code, as a damaged table may give, are ignored
+                if (position >= start && position + 2 <= start + length) {
+                    sites.add(new long[] { position - start, delta, names.size() - 1 });
+                }
+            }
+            return this;
+        }
+    }
+}
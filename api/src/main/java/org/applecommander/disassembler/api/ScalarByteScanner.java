@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/** The plain Java {@link ByteScanner}. */
+final class ScalarByteScanner implements ByteScanner {
+    static final ScalarByteScanner INSTANCE = new ScalarByteScanner();
+    /** The first scanner provided through {@link ServiceLoader} that loads, else this one. */
+    static final ByteScanner PREFERRED = load();
+
+    private static ByteScanner load() {
+        try {
+            for (ByteScanner scanner : ServiceLoader.load(ByteScanner.class)) {
+                return scanner;
+            }
+        } catch (ServiceConfigurationError | LinkageError e) {
+            // An optional implementation whose module is not enabled
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public int count(byte[] data, int from, int to, ByteClass bytes) {
+        int count = 0;
+        for (int i=from; i<to; i++) {
+            if (bytes.contains(data[i])) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int indexOf(byte[] data, int from, int to, int[] pattern) {
+        int last = Math.min(to, data.length - pattern.length + 1);
+        for (int i=Math.max(0, from); i<last; i++) {
+            if (matches(data, i, pattern)) return i;
+        }
+        return -1;
+    }
+
+    /** Check the pattern at an offset known to leave room for it. */
+    static boolean matches(byte[] data, int offset, int[] pattern) {
+        for (int j=0; j<pattern.length; j++) {
+            if (pattern[j] >= 0 && (data[offset + j] & 0xff) != pattern[j]) return false;
+        }
+        return true;
+    }
+}
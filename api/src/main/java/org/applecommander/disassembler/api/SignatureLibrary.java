@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.ini4j.Ini;
+import org.ini4j.Profile.Section;
+
+/**
+ * Byte signatures of well-known routines, matched anywhere in a program so relocated copies get labeled too.
+ * The index is built once: every signature has a run of {@value #KEY_LENGTH} fixed bytes, and the first such
+ * run is packed into an int and kept in an open addressing table. Matching rolls that key across the program one
+ * byte at a time (a Rabin-Karp hash with base 256, which for 4 bytes is exact) and only checks the rest of a
+ * signature when the key hits, so the cost is one pass over the program however many signatures there are.
+ * Windows of the program where {@link ByteScanner} finds no byte that starts a key are skipped without rolling.
+ * <p/>
+ * The built-in library is {@code signatures.ini}; see that file for the pattern format.
+ */
+public final class SignatureLibrary {
+    public static final int KEY_LENGTH = 4;
+    private static final int EMPTY = -1;
+    private static final int ANCHOR_WINDOW = 256;
+
+    private final List<Signature> signatures;
+    private final int[] slotKeys;
+    private final int[] slotHeads;  // first signature with the key, or EMPTY
+    private final int[] next;       // next signature with the same key, or EMPTY
+    private final int[] keyOffsets;
+    private final int shift;
+    private final ByteClass anchors;    // first bytes of the keys
+
+    /** The built-in library from {@code signatures.ini}. */
+    public static SignatureLibrary defaults() {
+        return Defaults.LIBRARY;
+    }
+    /** Read a library in the {@code signatures.ini} format. */
+    public static SignatureLibrary load(InputStream is) throws IOException {
+        Ini ini = new Ini();
+        ini.load(is);
+        List<Signature> signatures = new ArrayList<>();
+        for (Section section : ini.values()) {
+            for (Map.Entry<String,String> entry : section.entrySet()) {
+                signatures.add(Signature.parse(section.getName(), entry.getKey(), entry.getValue()));
+            }
+        }
+        return new SignatureLibrary(signatures);
+    }
+
+    public SignatureLibrary(List<Signature> signatures) {
+        this.signatures = List.copyOf(signatures);
+        int bits = Math.max(4, 32 - Integer.numberOfLeadingZeros(signatures.size() * 2));
+        this.shift = 32 - bits;
+        this.slotKeys = new int[1 << bits];
+        this.slotHeads = new int[1 << bits];
+        this.next = new int[signatures.size()];
+        this.keyOffsets = new int[signatures.size()];
+        Arrays.fill(slotHeads, EMPTY);
+        this.anchors = ByteClass.of(signatures.stream().mapToInt(signature -> signature.key() >>> 24).toArray());
+        // Insert in reverse so each chain keeps the file order
+        for (int i=signatures.size()-1; i>=0; i--) {
+            int key = signatures.get(i).key();
+            keyOffsets[i] = signatures.get(i).keyOffset();
+            int slot = slot(key);
+            next[i] = slotHeads[slot];
+            slotKeys[slot] = key;
+            slotHeads[slot] = i;
+        }
+    }
+    private int slot(int key) {
+        int slot = (key * 0x9e3779b9) >>> shift;
+        while (slotHeads[slot] != EMPTY && slotKeys[slot] != key) {
+            slot = (slot + 1) & (slotHeads.length - 1);
+        }
+        return slot;
+    }
+
+    public List<Signature> signatures() {
+        return signatures;
+    }
+
+    /** Report every match in the program, in offset order. Matches may overlap. */
+    public void match(Program program, Consumer<Match> consumer) {
+        byte[] code = program.code();
+        int[] counts = ByteScanner.get().windowCounts(code, 0, code.length, ANCHOR_WINDOW, anchors);
+        for (int w=0; w<counts.length; w++) {
+            if (counts[w] == 0) continue;
+            // Keys starting in this window; the last ones end in the next
+            int start = w * ANCHOR_WINDOW;
+            int end = Math.min(code.length, start + ANCHOR_WINDOW + KEY_LENGTH - 1);
+            int key = 0;
+            for (int i=start; i<end; i++) {
+                key = key << 8 | Byte.toUnsignedInt(code[i]);
+                if (i < start + KEY_LENGTH - 1) continue;
+                for (int s = slotHeads[slot(key)]; s != EMPTY; s = next[s]) {
+                    int offset = i - KEY_LENGTH + 1 - keyOffsets[s];
+                    if (signatures.get(s).matches(code, offset)) {
+                        consumer.accept(new Match((program.baseAddress() + offset) % Program.ADDRESS_SPACE,
+                                signatures.get(s)));
+                    }
+                }
+            }
+        }
+    }
+    public List<Match> matches(Program program) {
+        List<Match> matches = new ArrayList<>();
+        match(program, matches::add);
+        return matches;
+    }
+
+    /** Label every match; labels already in the map win. Returns the number of labels added. */
+    public int label(Program program, Map<Integer,String> labels) {
+        int[] added = new int[1];
+        match(program, match -> {
+            match.signature().labels().forEach((offset, name) -> {
+                int address = (match.address() + offset) % Program.ADDRESS_SPACE;
+                if (labels.putIfAbsent(address, name) == null) added[0]++;
+            });
+        });
+        return added[0];
+    }
+
+    /**
+     * One routine. The pattern holds byte values 0-255, or -1 for any byte; labels map offsets in the pattern to
+     * names, with the signature name at offset 0.
+     */
+    public record Signature(String group, String name, int[] pattern, Map<Integer,String> labels) {
+        public Signature {
+            if (keyOffset(pattern) < 0) {
+                throw new IllegalArgumentException(String.format(
+                        "Signature '%s' needs %d fixed bytes in a row.", name, KEY_LENGTH));
+            }
+        }
+
+        /** Parse a pattern such as {@code "48 4A 20 ?? ?? 68 PRHEX: 29 0F"}. */
+        public static Signature parse(String group, String name, String text) {
+            List<Integer> pattern = new ArrayList<>();
+            Map<Integer,String> labels = new LinkedHashMap<>();
+            labels.put(0, name);
+            for (String token : text.trim().split("\\s+")) {
+                if (token.endsWith(":")) {
+                    labels.put(pattern.size(), token.substring(0, token.length() - 1));
+                }
+                else if ("??".equals(token)) {
+                    pattern.add(-1);
+                }
+                else {
+                    try {
+                        int value = Integer.parseInt(token, 16);
+                        if (token.length() != 2) throw new NumberFormatException();
+                        pattern.add(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException(String.format(
+                                "Signature '%s' has an invalid byte '%s'.", name, token));
+                    }
+                }
+            }
+            return new Signature(group, name, pattern.stream().mapToInt(Integer::intValue).toArray(),
+                    Collections.unmodifiableMap(labels));
+        }
+
+        /** Offset of the first run of {@value #KEY_LENGTH} fixed bytes, or -1. */
+        private static int keyOffset(int[] pattern) {
+            int run = 0;
+            for (int i=0; i<pattern.length; i++) {
+                run = pattern[i] < 0 ? 0 : run + 1;
+                if (run == KEY_LENGTH) return i - KEY_LENGTH + 1;
+            }
+            return -1;
+        }
+        int keyOffset() {
+            return keyOffset(pattern);
+        }
+        int key() {
+            int offset = keyOffset();
+            return pattern[offset] << 24 | pattern[offset+1] << 16 | pattern[offset+2] << 8 | pattern[offset+3];
+        }
+
+        boolean matches(byte[] code, int offset) {
+            if (offset < 0 || offset + pattern.length > code.length) return false;
+            for (int i=0; i<pattern.length; i++) {
+                if (pattern[i] >= 0 && Byte.toUnsignedInt(code[offset + i]) != pattern[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /** A signature found at an address. */
+    public record Match(int address, Signature signature) {}
+
+    private static class Defaults {
+        private static final SignatureLibrary LIBRARY;
+        static {
+            try (InputStream is = SignatureLibrary.class.getResourceAsStream("/signatures.ini")) {
+                LIBRARY = load(is);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
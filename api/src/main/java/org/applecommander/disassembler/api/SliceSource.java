@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+/** Part of another {@link MemorySource}, read through it. */
+final class SliceSource implements MemorySource {
+    private final MemorySource source;
+    private final int start;
+    private final int length;
+
+    SliceSource(MemorySource source, int start, int length) {
+        this.source = source;
+        this.start = start;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int getUnsignedByte(int offset) {
+        return offset >= 0 && offset < length ? source.getUnsignedByte(start + offset) : 0;
+    }
+
+    @Override
+    public MemorySource slice(int offset, int length) {
+        return new SliceSource(source, start + offset, length);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+/**
+ * A sparse 64K memory image, kept as a map of 256 byte pages with only the pages that hold something allocated.
+ * Offsets are addresses, so a program over an image starts at address 0 and can read any address; gaps read as 0.
+ * <p/>
+ * For example, a program loaded in two parts:
+ * <pre>
+ * {@code
+ * SparseMemory memory = SparseMemory.builder().put(0x0800, main).put(0x4000, overlay).get();
+ * List<Instruction> assembly = Disassembler.with(memory.slice(0x0800, main.length))
+ *                                          .startingAddress(0x0800)
+ *                                          .decode();
+ * }
+ * </pre>
+ */
+public final class SparseMemory implements MemorySource {
+    private static final int PAGE_SIZE = 256;
+    private static final int PAGES = Program.ADDRESS_SPACE / PAGE_SIZE;
+
+    private final byte[][] pages;
+    private final boolean[][] mapped;
+    private final int length;
+
+    private SparseMemory(byte[][] pages, boolean[][] mapped, int length) {
+        this.pages = pages;
+        this.mapped = mapped;
+        this.length = length;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** One past the highest address that holds a byte. */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public int getUnsignedByte(int offset) {
+        if (offset < 0 || offset >= length) {
+            return 0;
+        }
+        byte[] page = pages[offset / PAGE_SIZE];
+        return page == null ? 0 : Byte.toUnsignedInt(page[offset % PAGE_SIZE]);
+    }
+
+    /** True when a byte was put at the address. */
+    public boolean isMapped(int address) {
+        return address >= 0 && address < length && mapped[address / PAGE_SIZE] != null
+                && mapped[address / PAGE_SIZE][address % PAGE_SIZE];
+    }
+
+    public static class Builder {
+        private final byte[][] pages = new byte[PAGES][];
+        private final boolean[][] mapped = new boolean[PAGES][];
+        private int length;
+
+        private Builder() {
+        }
+        /** Place bytes at an address; later bytes replace earlier ones. */
+        public Builder put(int address, byte[] bytes) {
+            if (address < 0 || address + bytes.length > Program.ADDRESS_SPACE) {
+                throw new IllegalArgumentException(String.format("$%04X and %d bytes is outside 64K.",
+                        address, bytes.length));
+            }
+            for (int i=0; i<bytes.length; i++) {
+                int page = (address + i) / PAGE_SIZE;
+                if (pages[page] == null) {
+                    pages[page] = new byte[PAGE_SIZE];
+                    mapped[page] = new boolean[PAGE_SIZE];
+                }
+                pages[page][(address + i) % PAGE_SIZE] = bytes[i];
+                mapped[page][(address + i) % PAGE_SIZE] = true;
+            }
+            length = Math.max(length, address + bytes.length);
+            return this;
+        }
+        public SparseMemory get() {
+            byte[][] pageCopies = new byte[PAGES][];
+            boolean[][] mappedCopies = new boolean[PAGES][];
+            for (int i=0; i<PAGES; i++) {
+                if (pages[i] != null) {
+                    pageCopies[i] = pages[i].clone();
+                    mappedCopies[i] = mapped[i].clone();
+                }
+            }
+            return new SparseMemory(pageCopies, mappedCopies, length);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.applecommander.disassembler.api.Instruction;
+
+/**
+ * Normalizes instructions, whether decoded or typed into a query, to 64-bit keys.
+ * <p/>
+ * The text is upper cased and loses its spaces after the mnemonic. Numbers are written {@code $C0E9} (6502,
+ * SWEET16), {@code C0E9H} (Z80) or in decimal (p-code, counts). In a class key each number becomes its class: a byte
+ * when written with up to two hex digits, a word when longer, or a decimal. So {@code LDA $C0E9,X} and
+ * {@code LDA $0300,X} share a class key, while {@code LDA $C0,X} does not. An exact key also keeps the value. In a
+ * query, a name found in the given labels stands for its address, which is a byte if it is in the zero page.
+ */
+public final class InstructionKeys {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private InstructionKeys() {
+        // static methods only
+    }
+
+    /** The key of a decoded instruction, by operand class or by exact operands. */
+    public static long key(Instruction instruction, boolean exact) {
+        StringBuilder text = new StringBuilder(instruction.mnemonic()).append(' ');
+        for (int i=0; i<instruction.operandCount(); i++) {
+            if (i > 0) text.append(',');
+            Instruction.Operand operand = instruction.operand(i);
+            String format = operand.opFmt();
+            int at = format.indexOf("%s");
+            if (at < 0) {
+                text.append(format);
+            }
+            else {
+                text.append(format, 0, at).append(operand.value()).append(format, at+2, format.length());
+            }
+        }
+        return hash(normalize(text, exact, Map.of()));
+    }
+
+    /**
+     * The keys of a query: instructions separated by ';' or new lines, each a mnemonic and optional operands.
+     *
+     * @param labels Names that may be used instead of addresses.
+     */
+    public static long[] parse(String query, boolean exact, Map<String,Integer> labels) {
+        List<Long> keys = new ArrayList<>();
+        for (String line : query.split("[;\\n]")) {
+            if (!line.isBlank()) {
+                keys.add(hash(normalize(line.strip(), exact, labels)));
+            }
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("Query has no instructions.");
+        }
+        return keys.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /** The normalized text of an instruction; see the class description. */
+    static String normalize(CharSequence text, boolean exact, Map<String,Integer> labels) {
+        StringBuilder out = new StringBuilder(text.length());
+        int i = 0;
+        // Mnemonic, as is apart from case
+        while (i < text.length() && !Character.isWhitespace(text.charAt(i))) {
+            out.append(Character.toUpperCase(text.charAt(i++)));
+        }
+        out.append(' ');
+        while (i < text.length()) {
+            char ch = Character.toUpperCase(text.charAt(i));
+            if (Character.isWhitespace(ch)) {
+                i++;
+            }
+            else if (ch == '$' && i+1 < text.length() && isHexDigit(text.charAt(i+1))) {
+                int start = ++i;
+                while (i < text.length() && isHexDigit(text.charAt(i))) i++;
+                number(out, i - start <= 2 ? 'b' : 'w', Integer.parseUnsignedInt(text, start, i, 16), exact);
+            }
+            else if (Character.isLetterOrDigit(ch) || ch == '_') {
+                int start = i;
+                while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) i++;
+                String word = text.subSequence(start, i).toString().toUpperCase();
+                Integer address = labels.get(word);
+                if (address != null) {
+                    number(out, address <= 0xff ? 'b' : 'w', address, exact);
+                }
+                else if (word.length() <= 9 && word.chars().allMatch(Character::isDigit)) {
+                    number(out, 'n', Integer.parseInt(word), exact);
+                }
+                else if (word.length() >= 3 && word.length() <= 9 && word.endsWith("H")
+                        && word.chars().limit(word.length()-1).allMatch(InstructionKeys::isHexDigit)) {
+                    String digits = word.substring(0, word.length()-1);
+                    number(out, digits.length() <= 2 ? 'b' : 'w', Integer.parseUnsignedInt(digits, 16), exact);
+                }
+                else {
+                    out.append(word);
+                }
+            }
+            else {
+                out.append(ch);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    /** Numbers are written in lower case, so they cannot be confused with registers or labels. */
+    private static void number(StringBuilder out, char kind, int value, boolean exact) {
+        out.append(kind);
+        if (exact) {
+            out.append(Integer.toHexString(value));
+        }
+    }
+
+    private static boolean isHexDigit(int ch) {
+        return Character.digit(ch, 16) >= 0;
+    }
+
+    private static long hash(String text) {
+        long hash = FNV_OFFSET;
+        for (int i=0; i<text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.applecommander.disassembler.api.Instruction;
+
+/**
+ * MinHash signatures of instruction streams, for estimating how alike two routines are without comparing them.
+ * <p/>
+ * A stream is reduced to the set of its shingles: every run of a few consecutive instructions, by their class keys
+ * from {@link InstructionKeys}, so code that only differs in its addresses and constants still matches. Each slot of
+ * the signature is the least shingle under a different hash function; the share of slots in which two signatures
+ * agree estimates the Jaccard similarity of the two sets.
+ * <p/>
+ * The signature is split into bands of rows for locality sensitive hashing: two routines that agree in every row of
+ * any one band are candidates, which happens with probability 1 - (1 - s^rows)^bands for similarity s.
+ */
+public final class MinHash {
+    private final int shingle;
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+
+    /**
+     * @param shingle Instructions per shingle.
+     * @param bands Bands of the signature.
+     * @param rows Slots in each band.
+     */
+    public MinHash(int shingle, int bands, int rows) {
+        if (shingle < 1 || bands < 1 || rows < 1 || bands * rows > 1024) {
+            throw new IllegalArgumentException("Shingle, bands and rows must be at least 1, with at most 1024 slots.");
+        }
+        this.shingle = shingle;
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new long[bands * rows];
+        long seed = 0x5851f42d4c957f2dL;
+        for (int i=0; i<seeds.length; i++) {
+            seed += 0x9e3779b97f4a7c15L;
+            seeds[i] = mix(seed);
+        }
+    }
+
+    public int shingle() {
+        return shingle;
+    }
+
+    public int bands() {
+        return bands;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /** Number of values in a signature. */
+    public int slots() {
+        return seeds.length;
+    }
+
+    /** The signature of a stream; one shorter than a shingle is a single shingle. */
+    public int[] sign(List<Instruction> instructions) {
+        long[] keys = new long[instructions.size()];
+        for (int i=0; i<keys.length; i++) {
+            keys[i] = InstructionKeys.key(instructions.get(i), false);
+        }
+        int length = Math.min(shingle, keys.length);
+        long[] minimums = new long[seeds.length];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        for (int i=0; i+length<=keys.length; i++) {
+            long hash = NgramIndex.gram(keys, i, length);
+            for (int s=0; s<seeds.length; s++) {
+                long value = mix(hash ^ seeds[s]);
+                if (value < minimums[s]) {
+                    minimums[s] = value;
+                }
+            }
+        }
+        int[] signature = new int[seeds.length];
+        for (int s=0; s<signature.length; s++) {
+            signature[s] = (int) (minimums[s] >>> 32);
+        }
+        return signature;
+    }
+
+    /** Hash of one band of a signature; the band number is part of the hash. */
+    public long band(int[] signature, int band) {
+        long hash = 0x9e3779b97f4a7c15L * (band + 1);
+        for (int i=band*rows; i<(band+1)*rows; i++) {
+            hash = Long.rotateLeft(hash ^ signature[i], 29) * 0xbf58476d1ce4e5b9L;
+        }
+        return hash ^ (hash >>> 32);
+    }
+
+    /** Estimated Jaccard similarity: the share of slots in which the signatures agree. */
+    public static double similarity(int[] a, int[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Signatures are of different sizes.");
+        }
+        int same = 0;
+        for (int i=0; i<a.length; i++) {
+            if (a[i] == b[i]) same++;
+        }
+        return a.length == 0 ? 0 : (double) same / a.length;
+    }
+
+    /** The SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
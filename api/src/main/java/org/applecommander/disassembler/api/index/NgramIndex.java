@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.applecommander.disassembler.api.Instruction;
+
+/**
+ * An inverted index from instruction n-grams to the files and addresses where they occur.
+ * <p/>
+ * Every run of 1 to n instructions is indexed twice, by the class and by the exact keys of {@link InstructionKeys};
+ * the two are stored once when they are the same. A query of up to n instructions is one lookup. A longer query
+ * looks up each of its n-grams, starting with the rarest, and keeps the positions where all of them line up.
+ * <p/>
+ * The index is a single file that is memory mapped for searching:
+ * <pre>
+ * header    magic, version, n, file count, term count, postings offset, files offset
+ * terms     term count x (hash, postings offset, postings length, posting count), sorted by hash
+ * postings  per term: for each (file, instruction index), the file delta, then the index delta within a file
+ *           or the index itself in a new file; all as variable length integers
+ * files     per file: name, instruction count and the instruction addresses as variable length deltas
+ * </pre>
+ */
+public final class NgramIndex implements Closeable {
+    private static final int MAGIC = 0x41434e47;   // "ACNG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final FileChannel channel;
+    private final int n;
+    private final TermTable terms;
+    private final String[] names;
+    private final int[] instructionCounts;
+    private final ByteBuffer[] addresses;
+
+    private NgramIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not an instruction index, or from another version.");
+        }
+        this.n = header.getInt();
+        int fileCount = header.getInt();
+        int termCount = header.getInt();
+        long postingsOffset = header.getLong();
+        long filesOffset = header.getLong();
+        this.terms = new TermTable(channel, HEADER_SIZE, termCount, postingsOffset);
+
+        ByteBuffer files = TermTable.map(channel, filesOffset, channel.size() - filesOffset);
+        this.names = new String[fileCount];
+        this.instructionCounts = new int[fileCount];
+        this.addresses = new ByteBuffer[fileCount];
+        for (int i=0; i<fileCount; i++) {
+            byte[] name = new byte[files.getInt()];
+            files.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            instructionCounts[i] = files.getInt();
+            int length = files.getInt();
+            addresses[i] = files.slice(files.position(), length);
+            files.position(files.position() + length);
+        }
+    }
+
+    /** Open an index written by {@link Builder#write(Path)}. */
+    public static NgramIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new NgramIndex(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Start a new index of runs of up to n instructions, with temporary files in the default directory. */
+    public static Builder builder(int n) throws IOException {
+        return new Builder(n);
+    }
+
+    /** Longest run of instructions looked up at once. */
+    public int n() {
+        return n;
+    }
+
+    public int fileCount() {
+        return names.length;
+    }
+
+    /** Where the keys, from {@link InstructionKeys}, occur in sequence; in file order, up to limit hits. */
+    public List<Hit> search(long[] keys, int limit) throws IOException {
+        int length = Math.min(n, keys.length);
+        int grams = keys.length - length + 1;
+        Integer[] order = new Integer[grams];
+        int[] found = new int[grams];
+        for (int g=0; g<grams; g++) {
+            found[g] = terms.find(gram(keys, g, length));
+            if (found[g] < 0) {
+                return List.of();
+            }
+            order[g] = g;
+        }
+        Arrays.sort(order, (x, y) -> Integer.compare(terms.count(found[x]), terms.count(found[y])));
+
+        long[] candidates = null;
+        for (int g : order) {
+            long[] positions = positions(found[g], g);
+            candidates = candidates == null ? positions : intersect(candidates, positions);
+            if (candidates.length == 0) {
+                return List.of();
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        int[] table = null;
+        int tableFile = -1;
+        for (int i=0; i<candidates.length && hits.size()<limit; i++) {
+            int file = (int) (candidates[i] >>> 32);
+            int index = (int) candidates[i];
+            if (file != tableFile) {
+                table = addresses(file);
+                tableFile = file;
+            }
+            hits.add(new Hit(names[file], table[index]));
+        }
+        return hits;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * One place a query matched.
+     *
+     * @param name The file name, as given when indexing.
+     * @param address Address of the first instruction.
+     */
+    public record Hit(String name, int address) {}
+
+    /** The postings of a term as file << 32 | index, with the index moved back by the gram's place in the query. */
+    private long[] positions(int term, int shift) throws IOException {
+        long[] postings = terms.postings(term);
+        int size = 0;
+        for (long posting : postings) {
+            if ((int) posting >= shift) {
+                postings[size++] = posting - shift;
+            }
+        }
+        return size == postings.length ? postings : Arrays.copyOf(postings, size);
+    }
+
+    private int[] addresses(int file) {
+        ByteBuffer buffer = addresses[file].duplicate();
+        int[] table = new int[instructionCounts[file]];
+        int address = 0;
+        for (int i=0; i<table.length; i++) {
+            address += VarintBuffer.readSigned(buffer);
+            table[i] = address;
+        }
+        return table;
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i=0, j=0; i<a.length && j<b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /** Hash of keys[from, from+length); the length is part of the hash. */
+    static long gram(long[] keys, int from, int length) {
+        long hash = 0x9e3779b97f4a7c15L * length;
+        for (int i=0; i<length; i++) {
+            hash = Long.rotateLeft(hash ^ keys[from+i], 29) * 0xbf58476d1ce4e5b9L;
+        }
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Collects postings and writes the index. Postings are kept in a fixed size buffer; each time it fills up, it is
+     * sorted by term and written to a temporary run file, and {@link #write(Path)} merges the runs. Files must be
+     * added in the order they are to be reported. A builder is not thread safe.
+     */
+    public static class Builder implements Closeable {
+        private final int n;
+        private final Path directory;
+        private final Path filesPath;
+        private final DataOutputStream files;
+        private final TermSorter sorter;
+        private int fileCount;
+
+        private Builder(int n) throws IOException {
+            if (n < 1) {
+                throw new IllegalArgumentException("n-gram length must be at least 1.");
+            }
+            this.n = n;
+            this.directory = Files.createTempDirectory("acdasm-index");
+            this.filesPath = directory.resolve("files");
+            this.files = TermTable.output(filesPath);
+            this.sorter = new TermSorter(directory);
+        }
+
+        /** Index the instructions of one file. */
+        public Builder add(String name, List<Instruction> instructions) throws IOException {
+            int file = fileCount++;
+            long[] classKeys = new long[instructions.size()];
+            long[] exactKeys = new long[instructions.size()];
+            VarintBuffer deltas = new VarintBuffer();
+            int previous = 0;
+            for (int i=0; i<classKeys.length; i++) {
+                Instruction instruction = instructions.get(i);
+                classKeys[i] = InstructionKeys.key(instruction, false);
+                exactKeys[i] = InstructionKeys.key(instruction, true);
+                deltas.writeSigned(instruction.address() - previous);
+                previous = instruction.address();
+            }
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            files.writeInt(bytes.length);
+            files.write(bytes);
+            files.writeInt(classKeys.length);
+            files.writeInt(deltas.size);
+            files.write(deltas.data, 0, deltas.size);
+
+            for (int length=1; length<=n; length++) {
+                for (int i=0; i+length<=classKeys.length; i++) {
+                    long byClass = gram(classKeys, i, length);
+                    long exact = gram(exactKeys, i, length);
+                    sorter.add(byClass, (long) file << 32 | i);
+                    if (exact != byClass) {
+                        sorter.add(exact, (long) file << 32 | i);
+                    }
+                }
+            }
+            return this;
+        }
+
+        /** Write the index, replacing the file once it is complete, and remove the temporary files. */
+        public void write(Path file) throws IOException {
+            try {
+                files.close();
+                Path termsPath = directory.resolve("terms");
+                Path postingsPath = directory.resolve("postings");
+                TermTable.Writer writer = new TermTable.Writer(termsPath, postingsPath);
+                try (writer) {
+                    sorter.merge(writer);
+                }
+
+                long postingsOffset = HEADER_SIZE + (long) TermTable.ENTRY_SIZE * writer.termCount();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(fileCount).putInt(writer.termCount());
+                header.putLong(postingsOffset).putLong(postingsOffset + writer.postingsSize());
+                TermTable.replace(file, header.array(), termsPath, postingsPath, filesPath);
+            } finally {
+                close();
+            }
+        }
+
+        /** Remove the temporary files, if {@link #write(Path)} has not; the builder cannot be used afterwards. */
+        @Override
+        public void close() throws IOException {
+            files.close();
+            TermTable.delete(directory);
+        }
+    }
+}
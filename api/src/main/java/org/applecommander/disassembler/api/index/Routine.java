@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.applecommander.disassembler.api.ControlFlow;
+import org.applecommander.disassembler.api.Instruction;
+
+/**
+ * A run of instructions from one subroutine entry point to the next.
+ *
+ * @param address Address of the entry point.
+ * @param instructions The instructions, starting with the one at the entry point.
+ */
+public record Routine(int address, List<Instruction> instructions) {
+    /**
+     * Split a decoded stream at its first instruction and at every call target that is the address of one of its
+     * instructions. Routines with fewer than the minimum number of instructions are dropped.
+     */
+    public static List<Routine> split(List<Instruction> instructions, int minimum) {
+        Map<Integer,Integer> indexes = new HashMap<>();
+        for (int i=0; i<instructions.size(); i++) {
+            indexes.putIfAbsent(instructions.get(i).address(), i);
+        }
+        boolean[] entries = new boolean[instructions.size()];
+        for (Instruction instruction : instructions) {
+            if (ControlFlow.of(instruction) == ControlFlow.CALL) {
+                for (int target : ControlFlow.targets(instruction)) {
+                    Integer index = indexes.get(target);
+                    if (index != null) {
+                        entries[index] = true;
+                    }
+                }
+            }
+        }
+
+        List<Routine> routines = new ArrayList<>();
+        int start = 0;
+        for (int i=1; i<=entries.length; i++) {
+            if (i == entries.length || entries[i]) {
+                if (i - start >= minimum) {
+                    routines.add(new Routine(instructions.get(start).address(), instructions.subList(start, i)));
+                }
+                start = i;
+            }
+        }
+        return routines;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A locality sensitive hashing index of routine {@link MinHash} signatures, for finding routines like a given one
+ * without comparing it to all of them.
+ * <p/>
+ * Every band of every signature is a term whose postings are the routines with that band. A query looks up its own
+ * bands, and only the routines found in at least one are compared by signature.
+ * <p/>
+ * The index is a single file that is memory mapped for searching:
+ * <pre>
+ * header      magic, version, shingle, bands, rows, file count, routine count, term count, postings offset,
+ *             signatures offset, files offset
+ * terms       term count x (hash, postings offset, postings length, posting count), sorted by hash
+ * postings    per term: for each (file, routine number within the file), the file delta, then the routine delta
+ *             within a file or the routine number itself in a new file; all as variable length integers
+ * signatures  routine count x slots x int, in file order
+ * files       per file: name, routine count and for each routine its address delta and instruction count,
+ *             as variable length integers
+ * </pre>
+ */
+public final class SimilarityIndex implements Closeable {
+    private static final int MAGIC = 0x41434d48;   // "ACMH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8 * Integer.BYTES + 3 * Long.BYTES;
+
+    private final FileChannel channel;
+    private final MinHash minHash;
+    private final int routineCount;
+    private final TermTable terms;
+    private final IntBuffer signatures;
+    private final String[] names;
+    private final int[] firstRoutines;
+    private final ByteBuffer[] routines;
+
+    private SimilarityIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a routine index, or from another version.");
+        }
+        this.minHash = new MinHash(header.getInt(), header.getInt(), header.getInt());
+        int fileCount = header.getInt();
+        this.routineCount = header.getInt();
+        int termCount = header.getInt();
+        long postingsOffset = header.getLong();
+        long signaturesOffset = header.getLong();
+        long filesOffset = header.getLong();
+        this.terms = new TermTable(channel, HEADER_SIZE, termCount, postingsOffset);
+        this.signatures = TermTable.map(channel, signaturesOffset,
+                (long) routineCount * minHash.slots() * Integer.BYTES).asIntBuffer();
+
+        ByteBuffer files = TermTable.map(channel, filesOffset, channel.size() - filesOffset);
+        this.names = new String[fileCount];
+        this.firstRoutines = new int[fileCount + 1];
+        this.routines = new ByteBuffer[fileCount];
+        for (int i=0; i<fileCount; i++) {
+            byte[] name = new byte[files.getInt()];
+            files.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            firstRoutines[i+1] = firstRoutines[i] + files.getInt();
+            int length = files.getInt();
+            routines[i] = files.slice(files.position(), length);
+            files.position(files.position() + length);
+        }
+    }
+
+    /** Open an index written by {@link Builder#write(Path)}. */
+    public static SimilarityIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new SimilarityIndex(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Start a new index of signatures made with these parameters, with temporary files in the default directory. */
+    public static Builder builder(MinHash minHash) throws IOException {
+        return new Builder(minHash);
+    }
+
+    /** The signature parameters of the index; queries must be signed with them. */
+    public MinHash minHash() {
+        return minHash;
+    }
+
+    public int fileCount() {
+        return names.length;
+    }
+
+    public int routineCount() {
+        return routineCount;
+    }
+
+    /**
+     * Routines whose estimated similarity to the signature is at least the threshold, most similar first and then
+     * in file order; up to limit matches.
+     */
+    public List<Match> search(int[] signature, double threshold, int limit) throws IOException {
+        if (signature.length != minHash.slots()) {
+            throw new IllegalArgumentException("Signature does not match the index parameters.");
+        }
+        long[] candidates = new long[0];
+        int size = 0;
+        for (int band=0; band<minHash.bands(); band++) {
+            int term = terms.find(minHash.band(signature, band));
+            if (term >= 0) {
+                long[] postings = terms.postings(term);
+                if (size + postings.length > candidates.length) {
+                    candidates = Arrays.copyOf(candidates, Math.max(2 * candidates.length, size + postings.length));
+                }
+                System.arraycopy(postings, 0, candidates, size, postings.length);
+                size += postings.length;
+            }
+        }
+        Arrays.sort(candidates, 0, size);
+
+        List<Candidate> scored = new ArrayList<>();
+        int[] other = new int[minHash.slots()];
+        for (int i=0; i<size; i++) {
+            if (i > 0 && candidates[i] == candidates[i-1]) continue;
+            int file = (int) (candidates[i] >>> 32);
+            int routine = firstRoutines[file] + (int) candidates[i];
+            signatures.get(routine * minHash.slots(), other);
+            double similarity = MinHash.similarity(signature, other);
+            if (similarity >= threshold) {
+                scored.add(new Candidate(file, (int) candidates[i], similarity));
+            }
+        }
+        scored.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+
+        List<Match> matches = new ArrayList<>();
+        for (Candidate candidate : scored.subList(0, Math.min(limit, scored.size()))) {
+            int[] table = routines(candidate.file());
+            matches.add(new Match(names[candidate.file()], table[2 * candidate.routine()],
+                    table[2 * candidate.routine() + 1], candidate.similarity()));
+        }
+        return matches;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * A routine like the query.
+     *
+     * @param name The file name, as given when indexing.
+     * @param address Address of the routine.
+     * @param length Number of instructions in the routine.
+     * @param similarity Estimated Jaccard similarity of the shingles, from 0 to 1.
+     */
+    public record Match(String name, int address, int length, double similarity) {}
+
+    private record Candidate(int file, int routine, double similarity) {}
+
+    /** The routines of a file as address, length pairs. */
+    private int[] routines(int file) {
+        ByteBuffer buffer = routines[file].duplicate();
+        int[] table = new int[2 * (firstRoutines[file+1] - firstRoutines[file])];
+        int address = 0;
+        for (int i=0; i<table.length; i+=2) {
+            address += VarintBuffer.readSigned(buffer);
+            table[i] = address;
+            table[i+1] = VarintBuffer.read(buffer);
+        }
+        return table;
+    }
+
+    /**
+     * Collects signatures and writes the index. Band postings go through a {@link TermSorter} and signatures
+     * straight to a temporary file, so memory use does not grow with the number of routines. Files must be added
+     * in the order they are to be reported. A builder is not thread safe; signing, which is the costly part, can
+     * be done on other threads.
+     */
+    public static class Builder implements Closeable {
+        private final MinHash minHash;
+        private final Path directory;
+        private final Path signaturesPath;
+        private final Path filesPath;
+        private final DataOutputStream signatures;
+        private final DataOutputStream files;
+        private final TermSorter sorter;
+        private int fileCount;
+        private int routineCount;
+
+        private Builder(MinHash minHash) throws IOException {
+            this.minHash = minHash;
+            this.directory = Files.createTempDirectory("acdasm-index");
+            this.signaturesPath = directory.resolve("signatures");
+            this.filesPath = directory.resolve("files");
+            this.signatures = TermTable.output(signaturesPath);
+            this.files = TermTable.output(filesPath);
+            this.sorter = new TermSorter(directory);
+        }
+
+        /** Index the routines of one file, with their signatures from {@link MinHash#sign(List)}. */
+        public Builder add(String name, List<Routine> routines, List<int[]> signatures) throws IOException {
+            if (routines.size() != signatures.size()) {
+                throw new IllegalArgumentException("Every routine needs a signature.");
+            }
+            int file = fileCount++;
+            VarintBuffer table = new VarintBuffer();
+            int previous = 0;
+            for (int i=0; i<routines.size(); i++) {
+                Routine routine = routines.get(i);
+                int[] signature = signatures.get(i);
+                if (signature.length != minHash.slots()) {
+                    throw new IllegalArgumentException("Signature does not match the index parameters.");
+                }
+                table.writeSigned(routine.address() - previous);
+                table.write(routine.instructions().size());
+                previous = routine.address();
+                for (int value : signature) {
+                    this.signatures.writeInt(value);
+                }
+                for (int band=0; band<minHash.bands(); band++) {
+                    sorter.add(minHash.band(signature, band), (long) file << 32 | i);
+                }
+            }
+            routineCount += routines.size();
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            files.writeInt(bytes.length);
+            files.write(bytes);
+            files.writeInt(routines.size());
+            files.writeInt(table.size);
+            files.write(table.data, 0, table.size);
+            return this;
+        }
+
+        /** Write the index, replacing the file once it is complete, and remove the temporary files. */
+        public void write(Path file) throws IOException {
+            try {
+                signatures.close();
+                files.close();
+                Path termsPath = directory.resolve("terms");
+                Path postingsPath = directory.resolve("postings");
+                TermTable.Writer writer = new TermTable.Writer(termsPath, postingsPath);
+                try (writer) {
+                    sorter.merge(writer);
+                }
+
+                long postingsOffset = HEADER_SIZE + (long) TermTable.ENTRY_SIZE * writer.termCount();
+                long signaturesOffset = postingsOffset + writer.postingsSize();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION);
+                header.putInt(minHash.shingle()).putInt(minHash.bands()).putInt(minHash.rows());
+                header.putInt(fileCount).putInt(routineCount).putInt(writer.termCount());
+                header.putLong(postingsOffset).putLong(signaturesOffset);
+                header.putLong(signaturesOffset + (long) routineCount * minHash.slots() * Integer.BYTES);
+                TermTable.replace(file, header.array(), termsPath, postingsPath, signaturesPath, filesPath);
+            } finally {
+                close();
+            }
+        }
+
+        /** Remove the temporary files, if {@link #write(Path)} has not; the builder cannot be used afterwards. */
+        @Override
+        public void close() throws IOException {
+            signatures.close();
+            files.close();
+            TermTable.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts (hash, value) pairs by hash in bounded memory. Pairs are kept in a buffer that starts small and doubles up to
+ * a fixed size; each time that fills up, it is sorted and written to a run file in the given directory, and
+ * {@link #merge(PairConsumer)} merges the runs.
+ * Pairs with the same hash keep the order they were added in.
+ */
+final class TermSorter {
+    private static final int INITIAL_SIZE = 1 << 12;
+    private static final int RUN_SIZE = 1 << 21;
+
+    private final Path directory;
+    private final List<Path> runs = new ArrayList<>();
+    private long[] hashes = new long[INITIAL_SIZE];
+    private long[] values = new long[INITIAL_SIZE];
+    private long[] hashScratch = new long[0];
+    private long[] valueScratch = new long[0];
+    private final VarintBuffer runBuffer = new VarintBuffer();
+    private int size;
+
+    TermSorter(Path directory) {
+        this.directory = directory;
+    }
+
+    void add(long hash, long value) throws IOException {
+        if (size == hashes.length) {
+            if (size == RUN_SIZE) {
+                spill();
+            } else {
+                hashes = Arrays.copyOf(hashes, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+        }
+        hashes[size] = hash;
+        values[size++] = value;
+    }
+
+    /** Pass every pair to the consumer, by hash and then in the order added. The run files are deleted. */
+    void merge(PairConsumer consumer) throws IOException {
+        sort();
+        List<Run> sources = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                sources.add(new FileRun(run));
+            }
+            sources.add(new MemoryRun(hashes, values, size));
+            PriorityQueue<Run> queue = new PriorityQueue<>();
+            for (int i=0; i<sources.size(); i++) {
+                sources.get(i).order = i;
+                if (sources.get(i).next()) queue.add(sources.get(i));
+            }
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                consumer.accept(run.hash, run.value);
+                if (run.next()) queue.add(run);
+            }
+        } finally {
+            for (Run run : sources) run.close();
+            for (Path run : runs) Files.deleteIfExists(run);
+            runs.clear();
+            size = 0;
+        }
+    }
+
+    interface PairConsumer {
+        void accept(long hash, long value) throws IOException;
+    }
+
+    private void spill() throws IOException {
+        sort();
+        Path run = directory.resolve("run" + runs.size());
+        runBuffer.size = 0;
+        long previous = 0;
+        for (int i=0; i<size; i++) {
+            runBuffer.write(hashes[i] - previous);
+            runBuffer.write(values[i]);
+            previous = hashes[i];
+        }
+        try (OutputStream out = Files.newOutputStream(run)) {
+            out.write(runBuffer.data, 0, runBuffer.size);
+        }
+        runs.add(run);
+        size = 0;
+    }
+
+    /**
+     * Stable least significant digit radix sort of the buffer by hash, a byte at a time, so pairs with the same hash
+     * stay in the order they were added. The last pass flips the sign bit to sort as signed values.
+     */
+    private void sort() {
+        if (hashScratch.length < size) {
+            hashScratch = new long[hashes.length];
+            valueScratch = new long[hashes.length];
+        }
+        long[] fromHashes = hashes, fromValues = values;
+        long[] toHashes = hashScratch, toValues = valueScratch;
+        int[] counts = new int[257];
+        for (int shift=0; shift<64; shift+=8) {
+            long flip = shift == 56 ? 0x80 : 0;
+            Arrays.fill(counts, 0);
+            for (int i=0; i<size; i++) {
+                counts[(int) ((fromHashes[i] >>> shift & 0xff) ^ flip) + 1]++;
+            }
+            for (int i=0; i<256; i++) {
+                counts[i+1] += counts[i];
+            }
+            for (int i=0; i<size; i++) {
+                int to = counts[(int) ((fromHashes[i] >>> shift & 0xff) ^ flip)]++;
+                toHashes[to] = fromHashes[i];
+                toValues[to] = fromValues[i];
+            }
+            long[] swap = fromHashes;
+            fromHashes = toHashes;
+            toHashes = swap;
+            swap = fromValues;
+            fromValues = toValues;
+            toValues = swap;
+        }
+        // After an even number of passes the sorted pairs are back in the buffer
+    }
+
+    /** A sorted source of pairs for the merge; ties go to the earlier run, which has the earlier pairs. */
+    private abstract static class Run implements Comparable<Run>, Closeable {
+        long hash;
+        long value;
+        int order;
+
+        abstract boolean next() throws IOException;
+
+        @Override
+        public int compareTo(Run other) {
+            int compare = Long.compare(hash, other.hash);
+            return compare != 0 ? compare : Integer.compare(order, other.order);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // nothing to release
+        }
+    }
+
+    private static class MemoryRun extends Run {
+        private final long[] hashes;
+        private final long[] values;
+        private final int size;
+        private int next;
+
+        MemoryRun(long[] hashes, long[] values, int size) {
+            this.hashes = hashes;
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        boolean next() {
+            if (next == size) return false;
+            hash = hashes[next];
+            value = values[next++];
+            return true;
+        }
+    }
+
+    private static class FileRun extends Run {
+        private final InputStream in;
+        private final byte[] buffer = new byte[1 << 16];
+        private int offset;
+        private int limit;
+        private long previous;
+
+        FileRun(Path path) throws IOException {
+            this.in = Files.newInputStream(path);
+        }
+
+        @Override
+        boolean next() throws IOException {
+            int first = read();
+            if (first < 0) {
+                return false;
+            }
+            hash = previous + readVarlong(first);
+            value = readVarlong(read());
+            previous = hash;
+            return true;
+        }
+
+        private long readVarlong(int first) throws IOException {
+            long result = first & 0x7f;
+            for (int shift=7, b=first; (b & 0x80) != 0; shift+=7) {
+                b = read();
+                if (b < 0) {
+                    throw new EOFException();
+                }
+                result |= (long) (b & 0x7f) << shift;
+            }
+            return result;
+        }
+
+        private int read() throws IOException {
+            if (offset == limit) {
+                limit = Math.max(0, in.read(buffer));
+                offset = 0;
+                if (limit == 0) {
+                    return -1;
+                }
+            }
+            return buffer[offset++] & 0xff;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+
+/**
+ * The terms and postings sections shared by the index files. Terms are (hash, postings offset, postings length,
+ * posting count), sorted by hash. A posting is a pair of ints, written as the delta of the first, then the delta
+ * of the second when the first is unchanged or the second itself when it is not; all as variable length integers.
+ */
+final class TermTable {
+    static final int ENTRY_SIZE = 2 * Long.BYTES + 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final ByteBuffer terms;
+    private final int termCount;
+    private final long postingsOffset;
+
+    TermTable(FileChannel channel, long termsOffset, int termCount, long postingsOffset) throws IOException {
+        this.channel = channel;
+        this.terms = map(channel, termsOffset, (long) ENTRY_SIZE * termCount);
+        this.termCount = termCount;
+        this.postingsOffset = postingsOffset;
+    }
+
+    /** Binary search of the sorted term hashes; the term number or -1. */
+    int find(long hash) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = terms.getLong(middle * ENTRY_SIZE);
+            if (value < hash) {
+                low = middle + 1;
+            }
+            else if (value > hash) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    int count(int term) {
+        return terms.getInt(term * ENTRY_SIZE + 2 * Long.BYTES + Integer.BYTES);
+    }
+
+    /** The postings of a term as first << 32 | second, in increasing order. */
+    long[] postings(int term) throws IOException {
+        long offset = terms.getLong(term * ENTRY_SIZE + Long.BYTES);
+        int length = terms.getInt(term * ENTRY_SIZE + 2 * Long.BYTES);
+        ByteBuffer buffer = map(channel, postingsOffset + offset, length);
+        long[] postings = new long[count(term)];
+        int first = -1;
+        int second = 0;
+        for (int i=0; i<postings.length; i++) {
+            int delta = VarintBuffer.read(buffer);
+            if (delta == 0) {
+                second += VarintBuffer.read(buffer);
+            }
+            else {
+                first += delta;
+                second = VarintBuffer.read(buffer);
+            }
+            postings[i] = (long) first << 32 | second;
+        }
+        return postings;
+    }
+
+    static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Index section is too large to map.");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    static DataOutputStream output(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+    }
+
+    /** Write the header and then the sections to a temporary file, and replace the file with it. */
+    static void replace(Path file, byte[] header, Path... sections) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "index", ".tmp");
+        try {
+            try (DataOutputStream out = output(temp)) {
+                out.write(header);
+                for (Path section : sections) {
+                    Files.copy(section, out);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Remove a directory of temporary files, if it is still there. */
+    static void delete(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Writes the terms and postings sections from (hash, first << 32 | second) pairs given in hash order, and by
+     * posting within a hash. A repeated posting is stored once.
+     */
+    static final class Writer implements TermSorter.PairConsumer, Closeable {
+        private final DataOutputStream terms;
+        private final DataOutputStream postings;
+        private final VarintBuffer term = new VarintBuffer();
+        private long hash;
+        private int count;
+        private int lastFirst = -1;
+        private int lastSecond;
+        private int termCount;
+        private long postingsSize;
+
+        Writer(Path termsPath, Path postingsPath) throws IOException {
+            this.terms = output(termsPath);
+            this.postings = output(postingsPath);
+        }
+
+        @Override
+        public void accept(long hash, long posting) throws IOException {
+            if (count > 0 && hash != this.hash) {
+                flush();
+            }
+            this.hash = hash;
+            int first = (int) (posting >>> 32);
+            int second = (int) posting;
+            if (first != lastFirst) {
+                term.write(first - lastFirst);
+                term.write(second);
+                count++;
+            }
+            else if (second > lastSecond) {
+                term.write(0);
+                term.write(second - lastSecond);
+                count++;
+            }
+            lastFirst = first;
+            lastSecond = second;
+        }
+
+        int termCount() {
+            return termCount;
+        }
+
+        long postingsSize() {
+            return postingsSize;
+        }
+
+        /** Write the last term and close the sections. */
+        @Override
+        public void close() throws IOException {
+            try (terms; postings) {
+                if (count > 0) {
+                    flush();
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            terms.writeLong(hash);
+            terms.writeLong(postingsSize);
+            terms.writeInt(term.size);
+            terms.writeInt(count);
+            postings.write(term.data, 0, term.size);
+            postingsSize += term.size;
+            termCount++;
+            term.size = count = lastSecond = 0;
+            lastFirst = -1;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** A growing buffer of variable length integers, seven bits a byte with the high bit set on all but the last. */
+final class VarintBuffer {
+    byte[] data = new byte[16];
+    int size;
+
+    void write(int value) {
+        write(Integer.toUnsignedLong(value));
+    }
+
+    void write(long value) {
+        if (size + 10 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        while ((value & ~0x7fL) != 0) {
+            data[size++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    /** Write a signed value so small negative numbers stay short. */
+    void writeSigned(int value) {
+        write(value << 1 ^ value >> 31);
+    }
+
+    static int read(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift=0; ; shift+=7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static int readSigned(ByteBuffer buffer) {
+        int zigzag = read(buffer);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
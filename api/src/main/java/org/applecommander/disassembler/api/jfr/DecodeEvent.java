@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event for one {@code InstructionSet.decode} call made by the {@code Disassembler}. */
+@Name("org.applecommander.disassembler.Decode")
+@Label("Decode")
+@Description("Decoding a program into instructions")
+@Category({ "AppleCommander", "Disassembler" })
+@StackTrace(false)
+public class DecodeEvent extends Event {
+    @Label("Instruction Set")
+    public String instructionSet;
+
+    @Label("Start Address")
+    public int startAddress;
+
+    @Label("Bytes")
+    @DataAmount
+    public int bytes;
+
+    @Label("Instructions")
+    public int instructions;
+}
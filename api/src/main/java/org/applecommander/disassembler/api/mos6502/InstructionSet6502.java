@@ -16,12 +16,19 @@
  */
 package org.applecommander.disassembler.api.mos6502;
 
+import org.applecommander.disassembler.api.DecodeListener;
 import org.applecommander.disassembler.api.Instruction;
 import org.applecommander.disassembler.api.InstructionSet;
 import org.applecommander.disassembler.api.Program;
+import org.applecommander.disassembler.api.table.DecoderSpec;
+import org.applecommander.disassembler.api.table.DecoderSpec.Field;
+import org.applecommander.disassembler.api.table.DecoderSpec.Operand;
+import org.applecommander.disassembler.api.table.InstructionDecoder;
+import org.applecommander.disassembler.api.table.TableDecoder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class InstructionSet6502 implements InstructionSet {
     public static InstructionSet6502 for6502() {
@@ -37,11 +44,14 @@ public class InstructionSet6502 implements InstructionSet {
     private final AddressMode6502[] addressModes;
     private final Opcode6502[] opcodes;
     private final String name;
+    /** The decoder generated from {@link #decoderSpec()} at build time, or compiled from it in builds without one. */
+    private final InstructionDecoder decoder;
     
     private InstructionSet6502(String name, AddressMode6502[] addressModes, Opcode6502[] opcodes) {
         this.name = name;
         this.addressModes = addressModes;
         this.opcodes = opcodes;
+        this.decoder = InstructionDecoder.generated(name).orElseGet(() -> TableDecoder.compile(decoderSpec()));
     }
 
     @Override
@@ -56,57 +66,73 @@ public class InstructionSet6502 implements InstructionSet {
     @Override
     public List<Instruction> decode(Program program) {
         List<Instruction> assembly = new ArrayList<>();
+        decode(program, assembly::add);
+        return assembly;
+    }
+
+    @Override
+    public void decode(Program program, Consumer<Instruction> consumer) {
+        DecodeListener listener = program.listener();
+        listener.decodeStart(program.currentAddress(), program.length());
+        int count = 0;
         while (program.hasMore()) {
-            assembly.add(decodeOne(program));
+            consumer.accept(decodeOne(program));
+            count++;
         }
-        return assembly;
+        listener.decodeEnd(count);
+    }
+
+    /** The address mode of the given opcode in this instruction set. */
+    public AddressMode6502 addressMode(int opcode) {
+        return addressModes[opcode & 0xff];
+    }
+
+    /** The opcode (mnemonic) of the given opcode byte in this instruction set; invalid opcodes are ZZZ. */
+    public Opcode6502 opcode(int opcode) {
+        return opcodes[opcode & 0xff];
     }
 
     /**
      * Single instruction decoding has been extracted to support the 6502/SWEET16 switching mode.
      */
     public Instruction decodeOne(Program program) {
-        int op = program.peekUnsignedByte();
-
-        AddressMode6502 addressMode = addressModes[op];
-        Opcode6502 opcode = opcodes[op];
-
-        int currentAddress = program.currentAddress();
-        int value = switch (addressMode.getInstructionLength()) {
-            case 3 -> program.peekUnsignedShort(1);
-            case 2 -> {
-                if (addressMode.isOperandRelativeAddress()) {
-                    yield (currentAddress + 2 + program.peekSignedByte(1)) & 0xffff;   // allow sign extension
-                } else {
-                    yield program.peekUnsignedByte(1);
-                }
-
-            }
-            default -> 0;
-        };
+        return decoder.decodeOne(program);
+    }
 
-        Instruction.Builder builder = Instruction.at(currentAddress)
-                .code(program.read(addressMode.getInstructionLength()))
-                .mnemonic(opcode.getMnemonic());
-        // Notes: ZZZ{1,2,3} are length of the invalid opcode. Picked most simple representation; not meant to be
-        //        technically correct.
-        switch (addressMode) {
-            case ACC, IMP, ZZZ1 -> {
-            }
-            case ABS, REL, ZZZ3 -> builder.opAddress("%s", "$%04X", value);
-            case ABSX -> builder.opAddress("%s", "$%04X", value).opValue("X");
-            case ABSY -> builder.opAddress("%s", "$%04X", value).opValue("Y");
-            case IMM -> builder.opValue("#$%02X", value);
-            case INDABS -> builder.opAddress("(%s)", "$%04X", value);
-            case INDABSX -> builder.opAddress("(%s", "$%04X", value).opValue("X)");
-            case INDZP -> builder.opAddress("(%s)", "$%02X", value);
-            case INDZPX -> builder.opAddress("(%s", "$%02X", value).opValue("X)");
-            case INDZPY -> builder.opAddress("(%s)", "$%02X", value).opValue("Y");
-            case ZP, ZZZ2 -> builder.opAddress("%s", "$%02X", value);
-            case ZPX -> builder.opAddress("%s", "$%02X", value).opValue("X");
-            case ZPY -> builder.opAddress("%s", "$%02X", value).opValue("Y");
+    /** This instruction set as a description for the table-driven decoder. */
+    public DecoderSpec decoderSpec() {
+        DecoderSpec.TableBuilder table = DecoderSpec.builder(name).table(name);
+        Field word = Field.word(1);
+        Field zp = Field.byteAt(1);
+        for (int op=0; op<256; op++) {
+            AddressMode6502 addressMode = addressModes[op];
+            Operand[] operands = switch (addressMode) {
+                case ACC, IMP, ZZZ1 -> new Operand[0];
+                case ABS, ZZZ3 -> ops(Operand.address("%s", word, "$%04X"));
+                case REL -> ops(Operand.address("%s", Field.relative(1, 2), "$%04X"));
+                case ABSX -> ops(Operand.address("%s", word, "$%04X"), Operand.text("X"));
+                case ABSY -> ops(Operand.address("%s", word, "$%04X"), Operand.text("Y"));
+                case IMM -> ops(Operand.value("#%s", zp, "$%02X"));
+                case INDABS -> ops(Operand.address("(%s)", word, "$%04X"));
+                case INDABSX -> ops(Operand.address("(%s", word, "$%04X"), Operand.text("X)"));
+                case INDZP -> ops(Operand.address("(%s)", zp, "$%02X"));
+                case INDZPX -> ops(Operand.address("(%s", zp, "$%02X"), Operand.text("X)"));
+                case INDZPY -> ops(Operand.address("(%s)", zp, "$%02X"), Operand.text("Y"));
+                case ZP, ZZZ2 -> ops(Operand.address("%s", zp, "$%02X"));
+                case ZPX -> ops(Operand.address("%s", zp, "$%02X"), Operand.text("X"));
+                case ZPY -> ops(Operand.address("%s", zp, "$%02X"), Operand.text("Y"));
+            };
+            table.op(op, opcodes[op].getMnemonic(), addressMode.getInstructionLength(), operands);
         }
-        return builder.get();
+        return table.get();
+    }
+    private static Operand[] ops(Operand... operands) {
+        return operands;
+    }
+
+    @Override
+    public String name() {
+        return name;
     }
 
     @Override
@@ -17,11 +17,11 @@
 package org.applecommander.disassembler.api.pcode;
 
 import org.applecommander.disassembler.api.Disassembler;
+import org.applecommander.disassembler.api.DecodeListener;
 import org.applecommander.disassembler.api.Instruction;
 import org.applecommander.disassembler.api.InstructionSet;
 import org.applecommander.disassembler.api.Program;
 import org.ini4j.Ini;
-import org.ini4j.Profile;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.applecommander.disassembler.api.pcode.InstructionSetPCode.Flag.*;
 
@@ -38,13 +39,14 @@ public class InstructionSetPCode implements InstructionSet {
         return new InstructionSetPCode();
     }
 
-    private static final Profile.Section DESCRIPTIONS;
+    // Note that the native image initializes this class at build time, so the file is only parsed while building.
+    private static final Map<String,String> DESCRIPTIONS;
     static {
         try (InputStream is = Disassembler.class.getResourceAsStream("/instructions.ini")) {
             Ini ini = new Ini();
             ini.load(is);
-            DESCRIPTIONS = ini.get("pcode");
-            assert DESCRIPTIONS != null;
+            assert ini.get("pcode") != null;
+            DESCRIPTIONS = Map.copyOf(ini.get("pcode"));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -100,14 +102,26 @@ public class InstructionSetPCode implements InstructionSet {
     @Override
     public List<Instruction> decode(Program program) {
         List<Instruction> assembly = new ArrayList<>();
+        decode(program, assembly::add);
+        return assembly;
+    }
+
+    @Override
+    public void decode(Program program, Consumer<Instruction> consumer) {
+        DecodeListener listener = program.listener();
+        listener.decodeStart(program.currentAddress(), program.length());
+        int count = 0;
         Procedure procedure = new Procedure(program);
         while (procedure.hasMore()) {
             if (procedure.currentOffset() >= procedure.jumpTable()) {
-                assembly.add(Instruction.at(procedure.currentAddress())
+                Instruction entry = Instruction.at(procedure.currentAddress())
                         .mnemonic("J/T")
                         .opAddress("%s", "$%04X", procedure.readSelfRelativeW())
                         .code(procedure.bytesRead())
-                        .get());
+                        .get();
+                listener.instruction(entry.address(), entry.code().length, -1);
+                consumer.accept(entry);
+                count++;
                 continue;
             }
 
@@ -178,10 +192,98 @@ public class InstructionSetPCode implements InstructionSet {
                 builder.description(DESCRIPTIONS.get(builder.mnemonic()));
             }
 
-            builder.code(procedure.bytesRead());
-            assembly.add(builder.get());
+            byte[] code = procedure.bytesRead();
+            builder.code(code);
+            listener.instruction(builder.address(), code.length, Byte.toUnsignedInt(code[0]));
+            consumer.accept(builder.get());
+            count++;
         }
-        return assembly;
+        listener.decodeEnd(count);
+    }
+
+    /**
+     * Find the procedure calls ({@code CBP}, {@code CGP}, {@code CIP}, {@code CLP} and {@code CXP}) of a procedure
+     * without decoding it: only the opcodes, the bytes that give each instruction's length and the call operands
+     * are read. Scanning stops at the jump table.
+     *
+     * @param address Address of the code, for word alignment, as given to decode.
+     */
+    public static void scanCalls(byte[] code, int address, CallConsumer consumer) {
+        Procedure procedure = new Procedure(new Program(code, address));
+        while (procedure.hasMore() && procedure.currentOffset() < procedure.jumpTable()) {
+            int at = procedure.currentAddress();
+            Opcode opcode = OPCODES[procedure.readUB()];
+            switch (opcode.mnemonic) {
+                case "CXP" -> consumer.call(at, opcode.opcode, procedure.readUB(), procedure.readUB());
+                case "CBP", "CGP", "CIP", "CLP" -> consumer.call(at, opcode.opcode, -1, procedure.readUB());
+                default -> {
+                    for (Flag flag : opcode.flags) {
+                        skip(procedure, flag);
+                    }
+                }
+            }
+            procedure.skip();
+        }
+    }
+
+    /** A procedure call found by {@link #scanCalls(byte[], int, CallConsumer)}. */
+    public interface CallConsumer {
+        /**
+         * @param address Address of the call instruction.
+         * @param opcode The call opcode.
+         * @param segment Segment number of a {@code CXP}, or -1 for a call within the segment.
+         * @param procedure Procedure number.
+         */
+        void call(int address, int opcode, int segment, int procedure);
+    }
+
+    /** Read past an operand the way decode does, building nothing. */
+    private static void skip(Procedure procedure, Flag flag) {
+        switch (flag) {
+            case UB, DB, CSP -> procedure.readUB();
+            case SB -> procedure.readSBOffset();
+            case B -> procedure.readB();
+            case W -> procedure.readW();
+            case TYPE -> {
+                int t = procedure.readUB();
+                if (t == 10 || t == 12) {
+                    procedure.readB();
+                }
+            }
+            case LDC -> {
+                int ub = procedure.readUB();
+                procedure.alignToWord();
+                for (int i = 0; i < ub; i++) {
+                    procedure.readW();
+                }
+            }
+            case LPA, LSA -> {
+                int ub = procedure.readUB();
+                for (int i = 0; i < ub; i++) {
+                    procedure.readUB();
+                }
+            }
+            case XJP -> {
+                procedure.alignToWord();
+                int w1 = procedure.readW();
+                int w2 = procedure.readW();
+                procedure.readUB();
+                procedure.readSBOffset();
+                for (int i = w1; i <= w2; i++) {
+                    procedure.readW();
+                }
+            }
+        }
+    }
+
+    /** The mnemonic of an opcode before any type suffix or standard procedure name is applied. */
+    public static String mnemonic(int opcode) {
+        return OPCODES[opcode & 0xff].mnemonic;
+    }
+
+    @Override
+    public String name() {
+        return "p-code";
     }
 
     @Override
@@ -238,6 +340,10 @@ public class InstructionSetPCode implements InstructionSet {
                 length = 0;
             }
         }
+        public void skip() {
+            program.skip(length);
+            length = 0;
+        }
         public int readUB() {
             return program.peekUnsignedByte(length++);
         }
@@ -16,20 +16,30 @@
  */
 package org.applecommander.disassembler.api.sweet16;
 
+import org.applecommander.disassembler.api.DecodeListener;
 import org.applecommander.disassembler.api.Instruction;
 import org.applecommander.disassembler.api.InstructionSet;
 import org.applecommander.disassembler.api.Program;
+import org.applecommander.disassembler.api.table.DecoderSpec;
+import org.applecommander.disassembler.api.table.DecoderSpec.Field;
+import org.applecommander.disassembler.api.table.DecoderSpec.Operand;
+import org.applecommander.disassembler.api.table.InstructionDecoder;
+import org.applecommander.disassembler.api.table.TableDecoder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class InstructionSetSWEET16 implements InstructionSet {
     public static InstructionSetSWEET16 forSWEET16() {
         return new InstructionSetSWEET16();
     }
 
+    /** The decoder generated from {@link #decoderSpec()} at build time, or compiled from it in builds without one. */
+    private final InstructionDecoder decoder;
+
     private InstructionSetSWEET16() {
-        // Prevent construction
+        this.decoder = InstructionDecoder.generated("SWEET16").orElseGet(() -> TableDecoder.compile(decoderSpec()));
     }
 
     @Override
@@ -44,60 +54,59 @@ public class InstructionSetSWEET16 implements InstructionSet {
     @Override
     public List<Instruction> decode(Program program) {
         List<Instruction> assembly = new ArrayList<>();
+        decode(program, assembly::add);
+        return assembly;
+    }
+
+    @Override
+    public void decode(Program program, Consumer<Instruction> consumer) {
+        DecodeListener listener = program.listener();
+        listener.decodeStart(program.currentAddress(), program.length());
+        int count = 0;
         while (program.hasMore()) {
-            assembly.add(decodeOne(program));
+            consumer.accept(decodeOne(program));
+            count++;
         }
-        return assembly;
+        listener.decodeEnd(count);
     }
 
     /**
      * Single instruction decoding has been extracted to support the 6502/SWEET16 switching mode.
      */
     public Instruction decodeOne(Program program) {
-        int op = program.peekUnsignedByte();
-        int low = op & 0x0f;
-        int high = (op & 0xf0) >> 4;
-
-        AddressModeSWEET16 addressMode;
-        OpcodeSWEET16 opcode;
-        if (high == 0) {
-            opcode = OpcodeSWEET16.NON_REGISTER_OPS[low];
-            addressMode = AddressModeSWEET16.NON_REGISTER_OPS[low];
-        } else {
-            opcode = OpcodeSWEET16.REGISTER_OPS[high];
-            addressMode = AddressModeSWEET16.REGISTER_OPS[high];
-        }
-
-        if (opcode == OpcodeSWEET16.ZZZ) {
-            addressMode = AddressModeSWEET16.IMP;
-        }
-
-        int currentAddress = program.currentAddress();
-        int value = switch (addressMode.getInstructionLength()) {
-            case 3 -> program.peekUnsignedShort(1);
-            case 2 -> {
-                if (addressMode.isOperandRelativeAddress()) {
-                    yield (currentAddress + 2 + program.peekSignedByte(1)) & 0xffff;   // allow sign extension
-                } else {
-                    yield program.peekUnsignedByte(1);
-                }
+        return decoder.decodeOne(program);
+    }
 
+    /** SWEET16 as a description for the table-driven decoder; the register is the low nibble of the opcode. */
+    public DecoderSpec decoderSpec() {
+        DecoderSpec.TableBuilder table = DecoderSpec.builder("SWEET16").table("SWEET16");
+        Field register = Field.bits(0, 0, 0x0f);
+        for (int op=0; op<256; op++) {
+            int low = op & 0x0f;
+            int high = (op & 0xf0) >> 4;
+            OpcodeSWEET16 opcode = high == 0 ? OpcodeSWEET16.NON_REGISTER_OPS[low] : OpcodeSWEET16.REGISTER_OPS[high];
+            AddressModeSWEET16 addressMode = high == 0 ? AddressModeSWEET16.NON_REGISTER_OPS[low]
+                                                       : AddressModeSWEET16.REGISTER_OPS[high];
+            if (opcode == OpcodeSWEET16.ZZZ) {
+                addressMode = AddressModeSWEET16.IMP;
             }
-            default -> 0;
-        };
-
-        Instruction.Builder builder = Instruction.at(currentAddress)
-                .code(program.read(addressMode.getInstructionLength()))
-                .mnemonic(opcode.getMnemonic());
-        switch (addressMode) {
-            case CON -> builder.opValue("R%d", low).opValue("#$%04X", value);
-            case DIR -> builder.opValue("R%d", low);
-            case IND -> builder.opValue("@R%d", low);
-            case BRA -> builder.opAddress("%s", "$%04X", value);
-            case IMP -> {
+            String mnemonic = opcode.getMnemonic();
+            int length = addressMode.getInstructionLength();
+            switch (addressMode) {
+                case CON -> table.op(op, mnemonic, length, Operand.value("R%s", register, "%d"),
+                        Operand.value("#%s", Field.word(1), "$%04X"));
+                case DIR -> table.op(op, mnemonic, length, Operand.value("R%s", register, "%d"));
+                case IND -> table.op(op, mnemonic, length, Operand.value("@R%s", register, "%d"));
+                case BRA -> table.op(op, mnemonic, length, Operand.address("%s", Field.relative(1, 2), "$%04X"));
+                case IMP -> table.op(op, mnemonic, length);
             }
         }
-        return builder.get();
+        return table.get();
+    }
+
+    @Override
+    public String name() {
+        return "SWEET16";
     }
 
     @Override
@@ -20,8 +20,10 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import org.applecommander.disassembler.api.DecodeListener;
 import org.applecommander.disassembler.api.Instruction;
 import org.applecommander.disassembler.api.InstructionSet;
 import org.applecommander.disassembler.api.Program;
@@ -55,13 +57,28 @@ public class InstructionSet6502Switching implements InstructionSet {
     @Override
     public List<Instruction> decode(Program program) {
         List<Instruction> assembly = new ArrayList<>();
+        decode(program, assembly::add);
+        return assembly;
+    }
+
+    @Override
+    public void decode(Program program, Consumer<Instruction> consumer) {
+        DecodeListener listener = program.listener();
+        listener.decodeStart(program.currentAddress(), program.length());
+        int count = 0;
         while (program.hasMore()) {
             if (!pending.isEmpty()) {
-                assembly.add(pending.remove());
+                consumer.accept(pending.remove());
             }
-            assembly.add(strategy.apply(program));
+            consumer.accept(strategy.apply(program));
+            count++;
         }
-        return assembly;
+        listener.decodeEnd(count);
+    }
+
+    @Override
+    public String name() {
+        return "6502+SWEET16";
     }
 
     @Override
@@ -71,10 +88,10 @@ public class InstructionSet6502Switching implements InstructionSet {
 
     Instruction decode6502(Program program) {
         Instruction instruction = mos6502.decodeOne(program);
-        int operandAddress = instruction.addressRef().flatMap(Instruction.Operand::address).orElse(0);
-        if ("JSR".equals(instruction.mnemonic()) && operandAddress == 0xf689) {
+        if ("JSR".equals(instruction.mnemonic()) && instruction.addressRefValue() == 0xf689) {
             strategy = this::decodeSWEET16;
             pending.add(Instruction.at(program.currentAddress()).mnemonic(".SWEET16").get());
+            program.listener().modeSwitch(program.currentAddress(), sweet16.name());
         }
         return instruction;
     }
@@ -84,6 +101,7 @@ public class InstructionSet6502Switching implements InstructionSet {
         if ("RTN".equals(instruction.mnemonic())) {
             strategy = this::decode6502;
             pending.add(Instruction.at(program.currentAddress()).mnemonic(".6502").get());
+            program.listener().modeSwitch(program.currentAddress(), mos6502.name());
         }
         return instruction;
     }
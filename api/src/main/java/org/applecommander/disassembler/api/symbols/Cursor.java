@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.symbols;
+
+import java.nio.charset.StandardCharsets;
+
+/** A position within one line of a symbol file. Reused for every line; only names become strings. */
+final class Cursor {
+    private final byte[] data;
+    private int pos;
+    private int end;
+
+    Cursor(byte[] data) {
+        this.data = data;
+    }
+
+    void reset(int start, int end) {
+        this.pos = start;
+        this.end = end;
+    }
+
+    boolean atEnd() {
+        return pos >= end;
+    }
+    int peek() {
+        return data[pos] & 0xff;
+    }
+    static boolean isSpace(int ch) {
+        return ch == ' ' || ch == '\t';
+    }
+    void skipSpaces() {
+        while (pos < end && isSpace(data[pos])) pos++;
+    }
+    void skipPast(char ch) {
+        while (pos < end && data[pos++] != ch) {
+            // skip
+        }
+    }
+
+    /** Consume the text if the line continues with it. */
+    boolean consume(String text) {
+        return consume(text, false);
+    }
+    boolean consumeIgnoreCase(String text) {
+        return consume(text, true);
+    }
+    private boolean consume(String text, boolean ignoreCase) {
+        if (end - pos < text.length()) return false;
+        for (int i=0; i<text.length(); i++) {
+            int ch = data[pos + i] & 0xff;
+            int expected = text.charAt(i);
+            if (ch != expected && !(ignoreCase && Character.toUpperCase(ch) == Character.toUpperCase(expected))) {
+                return false;
+            }
+        }
+        pos += text.length();
+        return true;
+    }
+
+    /** An identifier (letters, digits, '_' and '.', not starting with a digit), or null. */
+    String word() {
+        int start = pos;
+        while (pos < end && isWordChar(data[pos])) pos++;
+        if (pos == start || Character.isDigit(data[start])) {
+            pos = start;
+            return null;
+        }
+        return string(start, pos);
+    }
+    private static boolean isWordChar(int ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_' || ch == '.';
+    }
+    /** Everything up to the next space, or null if empty. */
+    String token() {
+        int start = pos;
+        while (pos < end && !isSpace(data[pos])) pos++;
+        return pos == start ? null : string(start, pos);
+    }
+    /** Everything up to the character, which is consumed. */
+    String until(char ch) {
+        int start = pos;
+        while (pos < end && data[pos] != ch) pos++;
+        String text = string(start, pos);
+        if (pos < end) pos++;
+        return text;
+    }
+
+    /** A number as {@code $hex}, {@code 0xhex}, {@code %binary} or decimal; -1 if there is none. */
+    int number() {
+        if (consume("$")) return digits(16);
+        if (consume("0x") || consume("0X")) return digits(16);
+        if (consume("%")) return digits(2);
+        return digits(10);
+    }
+    /** Bare hex digits; -1 if there are none. */
+    int hex() {
+        return digits(16);
+    }
+    private int digits(int radix) {
+        long value = 0;
+        int start = pos;
+        while (pos < end && Character.digit(data[pos], radix) >= 0 && value <= Integer.MAX_VALUE) {
+            value = value * radix + Character.digit(data[pos++], radix);
+        }
+        return pos == start || value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    private String string(int start, int stop) {
+        return new String(data, start, stop - start, StandardCharsets.ISO_8859_1);
+    }
+}
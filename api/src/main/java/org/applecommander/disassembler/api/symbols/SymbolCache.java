@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.symbols;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps parsed symbol files so repeated runs do not parse them again. An entry is reused as is while the file's
+ * modification time and size are unchanged; when they change, the file is hashed and the entry is still reused
+ * if the contents are the same. Entries live in memory and, for {@link #directory(Path)}, on disk. Failing to
+ * write the disk cache is not an error; the symbols are simply parsed again next time.
+ */
+public final class SymbolCache {
+    private static final int MAGIC = 0x41435359;   // "ACSY"
+    private static final int VERSION = 1;
+
+    private final Path directory;
+    private final Map<Path,Entry> memory = new ConcurrentHashMap<>();
+
+    private SymbolCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /** Cache in memory only, for the life of this object. */
+    public static SymbolCache memory() {
+        return new SymbolCache(null);
+    }
+    /** Cache in memory and in the directory, which is created as needed. */
+    public static SymbolCache directory(Path directory) {
+        return new SymbolCache(directory);
+    }
+
+    public SymbolTable load(Path file) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        Entry entry = memory.get(path);
+        if (entry == null && directory != null) {
+            entry = read(cacheFile(path));
+        }
+        if (entry != null && entry.modified == modified && entry.size == size) {
+            memory.putIfAbsent(path, entry);
+            return entry.table;
+        }
+
+        byte[] data = Files.readAllBytes(path);
+        byte[] hash = sha256(data);
+        SymbolFormat format = SymbolFormat.detect(path, data);
+        SymbolTable table = entry != null && entry.format == format && Arrays.equals(entry.hash, hash)
+                ? entry.table : SymbolTable.parse(format, data);
+        entry = new Entry(format, modified, size, hash, table);
+        memory.put(path, entry);
+        if (directory != null) {
+            write(cacheFile(path), entry);
+        }
+        return table;
+    }
+
+    private Path cacheFile(Path path) {
+        String name = HexFormat.of().formatHex(sha256(path.toString().getBytes(StandardCharsets.UTF_8)));
+        return directory.resolve(name + ".symbols");
+    }
+
+    private static Entry read(Path cacheFile) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            SymbolFormat format = SymbolFormat.valueOf(in.readUTF());
+            long modified = in.readLong();
+            long size = in.readLong();
+            byte[] hash = in.readNBytes(32);
+            int count = in.readInt();
+            Map<Integer,String> labels = new HashMap<>();
+            for (int i=0; i<count; i++) {
+                labels.put(in.readUnsignedShort(), in.readUTF());
+            }
+            return new Entry(format, modified, size, hash, new SymbolTable(labels));
+        } catch (IOException | IllegalArgumentException e) {
+            // Missing, damaged or from another version; parse again
+            return null;
+        }
+    }
+
+    private static void write(Path cacheFile, Entry entry) {
+        Path temp = null;
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            temp = Files.createTempFile(cacheFile.getParent(), "symbols", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(entry.format.name());
+                out.writeLong(entry.modified);
+                out.writeLong(entry.size);
+                out.write(entry.hash);
+                out.writeInt(entry.table.size());
+                for (Map.Entry<Integer,String> label : entry.table.labels().entrySet()) {
+                    out.writeShort(label.getKey());
+                    out.writeUTF(label.getValue());
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Caching is an optimization only
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // nothing more to do
+            }
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(SymbolFormat format, long modified, long size, byte[] hash, SymbolTable table) {}
+}
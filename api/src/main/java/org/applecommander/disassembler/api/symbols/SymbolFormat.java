@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.symbols;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The symbol file formats that can be imported. Parsers work directly on the file bytes and only allocate the
+ * symbol names; values outside the 64K address space are skipped.
+ */
+public enum SymbolFormat {
+    /** Merlin equates: {@code NAME EQU $C000} or {@code NAME = $C000}; {@code *} and {@code ;} start comments. */
+    MERLIN {
+        @Override
+        void parseLine(Cursor line, Sink sink) {
+            if (line.atEnd() || line.peek() == '*' || line.peek() == ';' || Cursor.isSpace(line.peek())) return;
+            String name = line.word();
+            if (name == null) return;
+            line.skipSpaces();
+            if (!line.consume("=") && !line.consumeIgnoreCase("EQU")) return;
+            line.skipSpaces();
+            sink.symbol(name, line.number());
+        }
+    },
+    /** ca65/ld65 debug info ({@code ld65 --dbgfile}): {@code sym} lines with a {@code name} and a {@code val}. */
+    CA65_DBG {
+        @Override
+        void parseLine(Cursor line, Sink sink) {
+            if (!line.consume("sym")) return;
+            String name = null;
+            int value = -1;
+            while (!line.atEnd()) {
+                line.skipSpaces();
+                if (line.consume("name=\"")) {
+                    name = line.until('"');
+                }
+                else if (line.consume("val=")) {
+                    value = line.number();
+                }
+                line.skipPast(',');
+            }
+            if (name != null) sink.symbol(name, value);
+        }
+    },
+    /** VICE monitor labels ({@code ld65 -Ln}): {@code al C:0801 .main}. */
+    VICE {
+        @Override
+        void parseLine(Cursor line, Sink sink) {
+            if (!line.consume("al")) return;
+            line.skipSpaces();
+            line.consume("C:");
+            int value = line.hex();
+            line.skipSpaces();
+            line.consume(".");
+            String name = line.token();
+            if (name != null) sink.symbol(name, value);
+        }
+    },
+    /** SourceGen platform symbols (CiderPress II family, {@code .sym65}): {@code NAME @ $C000 ;comment}. */
+    SOURCEGEN {
+        @Override
+        void parseLine(Cursor line, Sink sink) {
+            if (line.atEnd() || line.peek() == '*' || line.peek() == ';') return;
+            line.skipSpaces();
+            String name = line.word();
+            if (name == null) return;
+            line.skipSpaces();
+            if (!line.consume("@") && !line.consume("=") && !line.consume("<") && !line.consume(">")) return;
+            line.skipSpaces();
+            sink.symbol(name, line.number());
+        }
+    };
+
+    /** Receives each symbol; value is -1 when it could not be read. */
+    @FunctionalInterface
+    public interface Sink {
+        void symbol(String name, int value);
+    }
+
+    abstract void parseLine(Cursor line, Sink sink);
+
+    /** Parse a whole file, reporting symbols with 16-bit values in file order. */
+    public void parse(byte[] data, Sink sink) {
+        Cursor line = new Cursor(data);
+        Sink addresses = (name, value) -> {
+            if (value >= 0 && value <= 0xffff) sink.symbol(name, value);
+        };
+        int start = 0;
+        while (start < data.length) {
+            int end = start;
+            while (end < data.length && data[end] != '\n') end++;
+            line.reset(start, end > start && data[end-1] == '\r' ? end - 1 : end);
+            parseLine(line, addresses);
+            start = end + 1;
+        }
+    }
+
+    /** Pick the format from the file extension, falling back to the content. */
+    public static SymbolFormat detect(Path file, byte[] data) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".dbg")) return CA65_DBG;
+        if (name.endsWith(".sym65")) return SOURCEGEN;
+        if (name.endsWith(".lbl") || name.endsWith(".vs") || name.endsWith(".labels")) return VICE;
+        String head = new String(data, 0, Math.min(data.length, 512), StandardCharsets.ISO_8859_1);
+        if (head.startsWith("version\tmajor=")) return CA65_DBG;
+        if (head.startsWith("al ")) return VICE;
+        if (head.contains(" @ $")) return SOURCEGEN;
+        return MERLIN;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.symbols;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Labels imported from symbol files. When files are merged, the first file to name an address wins; passed to
+ * {@code Disassembler.Builder.symbols}, the result in turn wins over the built-in label groups.
+ */
+public final class SymbolTable {
+    public static final SymbolTable EMPTY = new SymbolTable(Map.of());
+
+    private final Map<Integer,String> labels;
+
+    SymbolTable(Map<Integer,String> labels) {
+        this.labels = Collections.unmodifiableMap(labels);
+    }
+
+    /** Parse symbol file contents; within a file the first name for an address wins. */
+    public static SymbolTable parse(SymbolFormat format, byte[] data) {
+        Map<Integer,String> labels = new HashMap<>();
+        format.parse(data, (name, address) -> labels.putIfAbsent(address, name));
+        return new SymbolTable(labels);
+    }
+
+    /** Load and merge the files in order of precedence, using the cache to skip unchanged files. */
+    public static SymbolTable load(List<Path> files, SymbolCache cache) throws IOException {
+        if (files.size() == 1) {
+            return cache.load(files.get(0));
+        }
+        Map<Integer,String> labels = new HashMap<>();
+        for (Path file : files) {
+            cache.load(file).labels().forEach(labels::putIfAbsent);
+        }
+        return new SymbolTable(labels);
+    }
+
+    /** Addresses and names; unmodifiable. */
+    public Map<Integer,String> labels() {
+        return labels;
+    }
+    public int size() {
+        return labels.size();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Declarative description of an instruction set for the table-driven decoder. A description is a set of
+ * opcode tables of 256 entries each; the first table decodes the first byte. An entry is either a prefix, where
+ * another byte selects the entry in another table, or an instruction with a fixed length, a mnemonic and a list
+ * of operands. Each operand is a template with at most one field read from the instruction bytes.
+ * <p/>
+ * Descriptions are plain data; {@link TableDecoder#compile(DecoderSpec)} turns one into lookup arrays.
+ */
+public record DecoderSpec(String name, List<Table> tables) {
+    public static final int TABLE_SIZE = 256;
+
+    public DecoderSpec {
+        Objects.requireNonNull(name);
+        tables = List.copyOf(tables);
+        if (tables.isEmpty()) {
+            throw new IllegalArgumentException("no opcode tables in " + name);
+        }
+        Set<String> names = new HashSet<>();
+        for (Table table : tables) {
+            if (!names.add(table.name())) {
+                throw new IllegalArgumentException("duplicate opcode table " + table.name());
+            }
+        }
+        for (Table table : tables) {
+            for (Entry entry : table.entries()) {
+                if (entry instanceof Prefix prefix && !names.contains(prefix.table())) {
+                    throw new IllegalArgumentException("unknown opcode table " + prefix.table());
+                }
+            }
+        }
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /** A table of exactly 256 entries, indexed by opcode byte. */
+    public record Table(String name, List<Entry> entries) {
+        public Table {
+            Objects.requireNonNull(name);
+            entries = List.copyOf(entries);
+            if (entries.size() != TABLE_SIZE) {
+                throw new IllegalArgumentException("opcode table " + name + " has " + entries.size() + " entries");
+            }
+        }
+    }
+
+    public sealed interface Entry permits Prefix, Op {}
+
+    /**
+     * The byte at {@code opcodeOffset} (from the start of the instruction) selects an entry in {@code table}.
+     */
+    public record Prefix(String table, int opcodeOffset) implements Entry {}
+
+    /** A decoded instruction; all field offsets are from the start of the instruction. */
+    public record Op(String mnemonic, int length, List<Operand> operands) implements Entry {
+        public Op {
+            Objects.requireNonNull(mnemonic);
+            operands = List.copyOf(operands);
+            if (length < 1) {
+                throw new IllegalArgumentException("bad length for " + mnemonic);
+            }
+            for (Operand operand : operands) {
+                if (operand.field().end() > length) {
+                    throw new IllegalArgumentException("operand of " + mnemonic + " reads past the instruction");
+                }
+            }
+        }
+        public Op(String mnemonic, int length, Operand... operands) {
+            this(mnemonic, length, List.of(operands));
+        }
+    }
+
+    /**
+     * An operand. The {@code template} takes the formatted field value in place of {@code %s}; a field of
+     * {@link Field#NONE} makes the template plain text. Address operands are candidates for labels.
+     */
+    public record Operand(String template, Field field, String format, boolean address) {
+        public Operand {
+            Objects.requireNonNull(template);
+            Objects.requireNonNull(field);
+            Objects.requireNonNull(format);
+        }
+        /** Plain text such as "X" or "(C)". */
+        public static Operand text(String text) {
+            return new Operand(text, Field.NONE, "", false);
+        }
+        /** A value such as an immediate or a register number. */
+        public static Operand value(String template, Field field, String format) {
+            return new Operand(template, field, format, false);
+        }
+        /** An address, which may be replaced with a label. */
+        public static Operand address(String template, Field field, String format) {
+            return new Operand(template, field, format, true);
+        }
+    }
+
+    /** Where an operand value comes from. */
+    public record Field(Kind kind, int offset, int shift, int mask, int base) {
+        public static final Field NONE = new Field(Kind.NONE, 0, 0, 0, 0);
+
+        /** The unsigned byte at offset. */
+        public static Field byteAt(int offset) {
+            return bits(offset, 0, 0xff);
+        }
+        /** Bits of the byte at offset, such as a register number in the low nibble of an opcode. */
+        public static Field bits(int offset, int shift, int mask) {
+            return new Field(Kind.BITS, offset, shift, mask, 0);
+        }
+        /** The little-endian word at offset. */
+        public static Field word(int offset) {
+            return new Field(Kind.WORD, offset, 0, 0xffff, 0);
+        }
+        /** A branch target: instruction address + base + signed byte at offset, wrapped to 16 bits. */
+        public static Field relative(int offset, int base) {
+            return new Field(Kind.RELATIVE, offset, 0, 0xffff, base);
+        }
+        /** A branch target: instruction address + base + unsigned byte at offset, not wrapped. */
+        public static Field relativeUnsigned(int offset, int base) {
+            return new Field(Kind.RELATIVE_UNSIGNED, offset, 0, 0, base);
+        }
+        /** Offset one past the last byte read. */
+        int end() {
+            return switch (kind) {
+                case NONE -> 0;
+                case WORD -> offset + 2;
+                default -> offset + 1;
+            };
+        }
+    }
+
+    public enum Kind {
+        NONE, BITS, WORD, RELATIVE, RELATIVE_UNSIGNED
+    }
+
+    public static class Builder {
+        private final String name;
+        private final Map<String,Entry[]> tables = new LinkedHashMap<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+        /** Switch to (creating if needed) the named table; the first table is the root. */
+        public TableBuilder table(String table) {
+            return new TableBuilder(this, tables.computeIfAbsent(table, t -> new Entry[TABLE_SIZE]));
+        }
+        public DecoderSpec get() {
+            List<Table> list = new ArrayList<>();
+            tables.forEach((table, entries) -> {
+                for (int i=0; i<entries.length; i++) {
+                    if (entries[i] == null) {
+                        throw new IllegalStateException(String.format("opcode $%02X missing in table %s", i, table));
+                    }
+                }
+                list.add(new Table(table, Arrays.asList(entries)));
+            });
+            return new DecoderSpec(name, list);
+        }
+    }
+
+    public static class TableBuilder {
+        private final Builder parent;
+        private final Entry[] entries;
+
+        private TableBuilder(Builder parent, Entry[] entries) {
+            this.parent = parent;
+            this.entries = entries;
+        }
+        public TableBuilder op(int opcode, Op op) {
+            entries[opcode] = op;
+            return this;
+        }
+        public TableBuilder op(int opcode, String mnemonic, int length, Operand... operands) {
+            return op(opcode, new Op(mnemonic, length, operands));
+        }
+        public TableBuilder prefix(int opcode, String table, int opcodeOffset) {
+            entries[opcode] = new Prefix(table, opcodeOffset);
+            return this;
+        }
+        public TableBuilder table(String table) {
+            return parent.table(table);
+        }
+        public DecoderSpec get() {
+            return parent.get();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.table;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/** The generated decoders on the classpath, by name; loaded once. */
+final class GeneratedDecoders {
+    static final Map<String,InstructionDecoder> BY_NAME = load();
+
+    private GeneratedDecoders() {
+        // Prevent construction
+    }
+
+    private static Map<String,InstructionDecoder> load() {
+        Map<String,InstructionDecoder> decoders = new HashMap<>();
+        try {
+            for (InstructionDecoder decoder : ServiceLoader.load(InstructionDecoder.class)) {
+                decoders.putIfAbsent(decoder.name(), decoder);
+            }
+        } catch (ServiceConfigurationError | LinkageError e) {
+            // Built without the generated decoders; the instruction sets compile their specs instead
+        }
+        return Map.copyOf(decoders);
+    }
+}
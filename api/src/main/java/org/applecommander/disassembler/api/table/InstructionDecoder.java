@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.table;
+
+import org.applecommander.disassembler.api.Instruction;
+import org.applecommander.disassembler.api.Program;
+
+import java.util.Optional;
+
+/**
+ * Decodes one instruction at a time. Implemented by {@link TableDecoder} and by the straight-line decoders the
+ * build generates from each {@link DecoderSpec}, which are provided through {@link java.util.ServiceLoader}.
+ */
+public interface InstructionDecoder {
+    /** The name of the {@link DecoderSpec} this decoder implements. */
+    String name();
+    /** Decode one instruction at the current offset and advance past it. */
+    Instruction decodeOne(Program program);
+
+    /** The decoder generated at build time for the named description, if the build included one. */
+    static Optional<InstructionDecoder> generated(String name) {
+        return Optional.ofNullable(GeneratedDecoders.BY_NAME.get(name));
+    }
+}
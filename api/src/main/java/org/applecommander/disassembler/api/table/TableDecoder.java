@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.table;
+
+import org.applecommander.disassembler.api.Instruction;
+import org.applecommander.disassembler.api.Program;
+import org.applecommander.disassembler.api.table.DecoderSpec.Entry;
+import org.applecommander.disassembler.api.table.DecoderSpec.Kind;
+import org.applecommander.disassembler.api.table.DecoderSpec.Op;
+import org.applecommander.disassembler.api.table.DecoderSpec.Operand;
+import org.applecommander.disassembler.api.table.DecoderSpec.Prefix;
+import org.applecommander.disassembler.api.table.DecoderSpec.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.applecommander.disassembler.api.table.DecoderSpec.TABLE_SIZE;
+
+/**
+ * A {@link DecoderSpec} compiled into flat arrays indexed by entry (table * 256 + opcode byte), so decoding
+ * an instruction is a few array lookups per prefix plus one pass over its operands. Compilation checks that
+ * prefixes form no cycles and that every instruction covers its own opcode bytes.
+ */
+public final class TableDecoder implements InstructionDecoder {
+    private final DecoderSpec spec;
+    // Per entry
+    private final int[] next;               // first entry of the prefix table, or -1 for an instruction
+    private final int[] opcodeOffset;       // for a prefix, where the next opcode byte is
+    private final int[] lengths;
+    private final String[] mnemonics;
+    private final int[] operandStart;       // operands of entry e are operandStart[e] until operandStart[e+1]
+    // Per operand
+    private final Kind[] kinds;
+    private final String[] formats;         // text, combined value format, or address template
+    private final String[] valueFormats;    // address format
+    private final boolean[] addresses;
+    private final int[] offsets;
+    private final int[] shifts;
+    private final int[] masks;
+    private final int[] bases;
+
+    private TableDecoder(DecoderSpec spec) {
+        this.spec = spec;
+        List<Table> tables = spec.tables();
+        Map<String,Integer> index = new HashMap<>();
+        for (int t=0; t<tables.size(); t++) {
+            index.put(tables.get(t).name(), t);
+        }
+        int[] tableOffset = new int[tables.size()];
+        Arrays.fill(tableOffset, -1);
+        visit(tables, index, 0, 0, tableOffset);
+
+        int size = tables.size() * TABLE_SIZE;
+        next = new int[size];
+        opcodeOffset = new int[size];
+        lengths = new int[size];
+        mnemonics = new String[size];
+        operandStart = new int[size+1];
+        List<Operand> operands = new ArrayList<>();
+        for (int t=0; t<tables.size(); t++) {
+            List<Entry> entries = tables.get(t).entries();
+            for (int b=0; b<TABLE_SIZE; b++) {
+                int e = t*TABLE_SIZE + b;
+                operandStart[e] = operands.size();
+                if (entries.get(b) instanceof Prefix prefix) {
+                    next[e] = index.get(prefix.table()) * TABLE_SIZE;
+                    opcodeOffset[e] = prefix.opcodeOffset();
+                } else if (entries.get(b) instanceof Op op) {
+                    next[e] = -1;
+                    lengths[e] = op.length();
+                    mnemonics[e] = op.mnemonic();
+                    operands.addAll(op.operands());
+                }
+            }
+        }
+        operandStart[size] = operands.size();
+
+        int count = operands.size();
+        kinds = new Kind[count];
+        formats = new String[count];
+        valueFormats = new String[count];
+        addresses = new boolean[count];
+        offsets = new int[count];
+        shifts = new int[count];
+        masks = new int[count];
+        bases = new int[count];
+        for (int i=0; i<count; i++) {
+            Operand operand = operands.get(i);
+            kinds[i] = operand.field().kind();
+            addresses[i] = operand.address();
+            if (kinds[i] == Kind.NONE || operand.address()) {
+                formats[i] = operand.template();
+            } else {
+                formats[i] = operand.template().replace("%s", operand.format());
+            }
+            valueFormats[i] = operand.format();
+            offsets[i] = operand.field().offset();
+            shifts[i] = operand.field().shift();
+            masks[i] = operand.field().mask();
+            bases[i] = operand.field().base();
+        }
+    }
+
+    /** Check every table is reached with one opcode offset, and instructions cover their opcode bytes. */
+    private static void visit(List<Table> tables, Map<String,Integer> index, int table, int offset, int[] tableOffset) {
+        if (tableOffset[table] == offset) {
+            return;
+        }
+        if (tableOffset[table] != -1) {
+            throw new IllegalArgumentException(String.format("opcode table %s is reached at offsets %d and %d",
+                    tables.get(table).name(), tableOffset[table], offset));
+        }
+        tableOffset[table] = offset;
+        for (Entry entry : tables.get(table).entries()) {
+            if (entry instanceof Prefix prefix) {
+                if (prefix.opcodeOffset() <= offset) {
+                    throw new IllegalArgumentException("prefix into " + prefix.table() + " does not advance");
+                }
+                visit(tables, index, index.get(prefix.table()), prefix.opcodeOffset(), tableOffset);
+            } else if (entry instanceof Op op && op.length() <= offset) {
+                throw new IllegalArgumentException(op.mnemonic() + " is shorter than its opcode in table "
+                        + tables.get(table).name());
+            }
+        }
+    }
+
+    public static TableDecoder compile(DecoderSpec spec) {
+        return new TableDecoder(spec);
+    }
+
+    /** The description this decoder was compiled from. */
+    public DecoderSpec spec() {
+        return spec;
+    }
+
+    @Override
+    public String name() {
+        return spec.name();
+    }
+
+    @Override
+    public Instruction decodeOne(Program program) {
+        int e = program.peekUnsignedByte();
+        while (next[e] >= 0) {
+            e = next[e] + program.peekUnsignedByte(opcodeOffset[e]);
+        }
+        int currentAddress = program.currentAddress();
+        Instruction.Builder builder = Instruction.at(currentAddress).mnemonic(mnemonics[e]);
+        for (int i=operandStart[e]; i<operandStart[e+1]; i++) {
+            int value = switch (kinds[i]) {
+                case NONE -> 0;
+                case BITS -> (program.peekUnsignedByte(offsets[i]) >> shifts[i]) & masks[i];
+                case WORD -> program.peekUnsignedShort(offsets[i]);
+                case RELATIVE -> (currentAddress + bases[i] + program.peekSignedByte(offsets[i])) & masks[i];
+                case RELATIVE_UNSIGNED -> currentAddress + bases[i] + program.peekUnsignedByte(offsets[i]);
+            };
+            if (kinds[i] == Kind.NONE) {
+                builder.opValue("%s", formats[i]);
+            } else if (addresses[i]) {
+                builder.opAddress(formats[i], valueFormats[i], value);
+            } else {
+                builder.opValue(formats[i], value);
+            }
+        }
+        int op = program.peekUnsignedByte();
+        int length = lengths[e];
+        builder.code(program.read(length));
+        program.listener().instruction(currentAddress, length, op);
+        return builder.get();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.table;
+
+import org.applecommander.disassembler.api.DecodeListener;
+import org.applecommander.disassembler.api.Instruction;
+import org.applecommander.disassembler.api.InstructionSet;
+import org.applecommander.disassembler.api.Program;
+import org.applecommander.disassembler.api.table.DecoderSpec.Op;
+import org.applecommander.disassembler.api.table.DecoderSpec.Operand;
+import org.applecommander.disassembler.api.table.DecoderSpec.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An instruction set defined entirely by a {@link DecoderSpec}, so a new CPU or dialect can be added as data.
+ */
+public class TableInstructionSet implements InstructionSet {
+    public static TableInstructionSet of(DecoderSpec spec, Defaults defaults) {
+        return new TableInstructionSet(TableDecoder.compile(spec), defaults);
+    }
+
+    private final TableDecoder decoder;
+    private final Defaults defaults;
+
+    private TableInstructionSet(TableDecoder decoder, Defaults defaults) {
+        this.decoder = decoder;
+        this.defaults = defaults;
+    }
+
+    @Override
+    public String name() {
+        return decoder.spec().name();
+    }
+
+    @Override
+    public Defaults defaults() {
+        return defaults;
+    }
+
+    /** The compiled decoder, for decoding one instruction at a time. */
+    public TableDecoder decoder() {
+        return decoder;
+    }
+
+    @Override
+    public List<Instruction> decode(Program program) {
+        List<Instruction> assembly = new ArrayList<>();
+        decode(program, assembly::add);
+        return assembly;
+    }
+
+    @Override
+    public void decode(Program program, Consumer<Instruction> consumer) {
+        DecodeListener listener = program.listener();
+        listener.decodeStart(program.currentAddress(), program.length());
+        int count = 0;
+        while (program.hasMore()) {
+            consumer.accept(decoder.decodeOne(program));
+            count++;
+        }
+        listener.decodeEnd(count);
+    }
+
+    @Override
+    public List<OpcodeTable> opcodeTables() {
+        return decoder.spec().tables().stream()
+                .<OpcodeTable>map(OpcodeTableSpec::new)
+                .toList();
+    }
+
+    private record OpcodeTableSpec(Table table) implements OpcodeTable {
+        @Override
+        public String name() {
+            return table.name();
+        }
+
+        @Override
+        public String opcodeExample(int opcode) {
+            if (!(table.entries().get(opcode) instanceof Op op)) {
+                return "-";
+            }
+            List<String> operands = new ArrayList<>();
+            for (Operand operand : op.operands()) {
+                operands.add(switch (operand.field().kind()) {
+                    case NONE -> operand.template();
+                    default -> operand.template().replace("%s", operand.address() ? "ADDR" : "VALUE");
+                });
+            }
+            return operands.isEmpty() ? op.mnemonic() : op.mnemonic() + " " + String.join(",", operands);
+        }
+    }
+}
@@ -16,13 +16,21 @@
  */
 package org.applecommander.disassembler.api.z80;
 
+import org.applecommander.disassembler.api.DecodeListener;
 import org.applecommander.disassembler.api.Instruction;
 import org.applecommander.disassembler.api.InstructionSet;
 import org.applecommander.disassembler.api.Program;
+import org.applecommander.disassembler.api.table.DecoderSpec;
+import org.applecommander.disassembler.api.table.DecoderSpec.Field;
+import org.applecommander.disassembler.api.table.DecoderSpec.Op;
+import org.applecommander.disassembler.api.table.DecoderSpec.Operand;
+import org.applecommander.disassembler.api.table.InstructionDecoder;
+import org.applecommander.disassembler.api.table.TableDecoder;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.applecommander.disassembler.api.z80.InstructionSetZ80.Flag.*;
 
@@ -31,8 +39,13 @@ public class InstructionSetZ80 implements InstructionSet {
         return new InstructionSetZ80();
     }
 
+    /** The decoder generated from {@link #decoderSpec()} at build time, or compiled from it in builds without one. */
+    private final InstructionDecoder decoder;
+
     // Prevent construction
-    private InstructionSetZ80() {}
+    private InstructionSetZ80() {
+        this.decoder = InstructionDecoder.generated("Z80").orElseGet(() -> TableDecoder.compile(decoderSpec()));
+    }
 
     @Override
     public Defaults defaults() {
@@ -45,98 +58,129 @@ public class InstructionSetZ80 implements InstructionSet {
     @Override
     public List<Instruction> decode(Program program) {
         List<Instruction> assembly = new ArrayList<>();
+        decode(program, assembly::add);
+        return assembly;
+    }
+
+    @Override
+    public void decode(Program program, Consumer<Instruction> consumer) {
+        DecodeListener listener = program.listener();
+        listener.decodeStart(program.currentAddress(), program.length());
+        int count = 0;
         while (program.hasMore()) {
-            int addr = program.currentAddress();
-            Instruction.Builder builder = Instruction.at(addr);
+            consumer.accept(decodeOne(program));
+            count++;
+        }
+        listener.decodeEnd(count);
+    }
+
+    /** Decode one instruction at the current offset and advance past it. */
+    public Instruction decodeOne(Program program) {
+        return decoder.decodeOne(program);
+    }
 
-            int length = 1;
-            int b = program.peekUnsignedByte();
+    /**
+     * The Z80 as a description for the table-driven decoder. The IX/IY overrides become their own tables
+     * (DD, FD, and DDCB/FDCB where the displacement comes before the opcode), derived from the tables above
+     * by substituting IX/IY for HL and (IX+d)/(IY+d) for (HL).
+     */
+    public DecoderSpec decoderSpec() {
+        DecoderSpec.Builder spec = DecoderSpec.builder("Z80");
+        DecoderSpec.TableBuilder root = spec.table("Z80");
+        for (int b=0; b<256; b++) {
             Opcode op = ROOT_OPCODES[b];
-            boolean ix = false;
-            boolean iy = false;
-            boolean hasDisplacement = false;
-            // Overrides first
-            if (op.flags.contains(OVERRIDE)) {
-                ix = op.opcode == 0xdd;
-                iy = op.opcode == 0xfd;
-                b = program.peekUnsignedByte(length);
-                op = ROOT_OPCODES[b];
-                length++;
-            }
-            // Setup for IX+override and IY+override (manual, uncertain of nice way)
-            if ((ix | iy) && (b == 0x36 || b == 0xcb)) {
-                // (DD|FD) (36|CB) <displacement> <opcode>
-                hasDisplacement = true;
-                length++;
+            if (op.flags.contains(OVERRIDE) || op.flags.contains(PREFIX)) {
+                root.prefix(b, op.mnemonic, 1);
+            } else {
+                root.op(b, specOp(null, op, false, 1));
             }
-            // Alternate prefixes next
-            if (op.flags.contains(PREFIX)) {
-                b = program.peekUnsignedByte(length);
-                if (op.opcode() == 0xed) {
-                    op = ED_OPCODES[b];
-                } else if (op.opcode() == 0xcb) {
-                    op = CB_OPCODES[b];
+        }
+        DecoderSpec.TableBuilder ed = spec.table("ED");
+        DecoderSpec.TableBuilder cb = spec.table("CB");
+        for (int b=0; b<256; b++) {
+            ed.op(b, specOp(null, ED_OPCODES[b], false, 2));
+            cb.op(b, specOp(null, CB_OPCODES[b], false, 2));
+        }
+        for (String reg : List.of("IX", "IY")) {
+            DecoderSpec.TableBuilder table = spec.table(reg);
+            for (int b=0; b<256; b++) {
+                Opcode op = ROOT_OPCODES[b];
+                if (b == 0xcb) {
+                    table.prefix(b, reg + "CB", 3);     // (DD|FD) CB <displacement> <opcode>
+                } else if (b == 0xed) {
+                    table.prefix(b, reg + "ED", 2);
+                } else if (b == 0x36) {
+                    table.op(b, specOp(reg, op, true, 3));
+                } else {
+                    table.op(b, specOp(reg, op, false, 2));
                 }
-                length++;
-            }
-            builder.mnemonic(op.mnemonic);
-            // Operands - figure out extra bytes
-            int operandValue = 0;
-            if ((op.flags.contains(DATLO) && op.flags.contains(DATHI))
-                    || (op.flags.contains(ADDLO) && op.flags.contains(ADDHI))) {
-                int b1 = program.peekUnsignedByte(length);
-                int b2 = program.peekUnsignedByte(length + 1);
-                operandValue = b1 | b2 << 8;
-                length += 2;
             }
-            if (op.flags.contains(DATA) || op.flags.contains(PORT)) {
-                operandValue = program.peekUnsignedByte(length);
-                length += 1;
+            DecoderSpec.TableBuilder regEd = spec.table(reg + "ED");
+            DecoderSpec.TableBuilder regCb = spec.table(reg + "CB");
+            for (int b=0; b<256; b++) {
+                regEd.op(b, specOp(reg, ED_OPCODES[b], false, 3));
+                regCb.op(b, specOp(reg, CB_OPCODES[b], true, 4));
             }
-            if (op.flags.contains(OFFSET)) {
-                operandValue = addr + program.peekUnsignedByte(length) + 2;
-                length += 1;
-            }
-            // Operands - add into builder
-            for (String operandFmt : op.fmts) {
-                // Handle IX / IY
-                if (ix || iy) {
-                    String reg = ix ? "IX" : "IY";
-                    if (operandFmt.contains("(HL)") && hasDisplacement) {
-                        int displacement = program.peekUnsignedByte(2);
-                        operandFmt = operandFmt.replace("(HL)", String.format("(%s+%02XH)", reg, displacement));
-                    } else if (operandFmt.contains("(HL)") && b == 0xe9) {
-                        // JP (IX) and JP (IY) are special
-                        operandFmt = operandFmt.replace("(HL)", String.format("(%s)", reg));
-                    } else if (operandFmt.contains("(HL)")) {
-                        int displacement = program.peekUnsignedByte(length);
-                        operandFmt = operandFmt.replace("(HL)", String.format("(%s+%02XH)", reg, displacement));
-                        length++;
-                    } else if (operandFmt.contains("HL")) {
-                        operandFmt = operandFmt.replace("HL", reg);
-                    }
+        }
+        return spec.get();
+    }
+
+    /** One instruction whose opcode bytes take {@code length} bytes, with the IX/IY substitution if reg is set. */
+    private static Op specOp(String reg, Opcode op, boolean hasDisplacement, int length) {
+        Field field = Field.NONE;
+        if ((op.flags.contains(DATLO) && op.flags.contains(DATHI))
+                || (op.flags.contains(ADDLO) && op.flags.contains(ADDHI))) {
+            field = Field.word(length);
+            length += 2;
+        }
+        if (op.flags.contains(DATA) || op.flags.contains(PORT)) {
+            field = Field.byteAt(length);
+            length += 1;
+        }
+        if (op.flags.contains(OFFSET)) {
+            field = Field.relativeUnsigned(length, 2);
+            length += 1;
+        }
+        List<Operand> operands = new ArrayList<>();
+        for (String operandFmt : op.fmts) {
+            if (reg != null) {
+                Field displacement = null;
+                if (operandFmt.contains("(HL)") && hasDisplacement) {
+                    displacement = Field.byteAt(2);
+                } else if (operandFmt.contains("(HL)") && op.opcode == 0xe9) {
+                    operandFmt = operandFmt.replace("(HL)", String.format("(%s)", reg));
+                } else if (operandFmt.contains("(HL)")) {
+                    displacement = Field.byteAt(length);
+                    length++;
+                } else if (operandFmt.contains("HL")) {
+                    operandFmt = operandFmt.replace("HL", reg);
                 }
-                // Set up the operand
-                if (operandFmt.contains("data") && op.flags.contains(DATLO)) {
-                    builder.opValue(operandFmt.replace("data", "%04XH"), operandValue);
-                } else if (operandFmt.contains("add")) {
-                    builder.opAddress(operandFmt.replace("add", "%s"), "%04XH", operandValue);
-                } else if (operandFmt.contains("port")) {
-                    builder.opValue(operandFmt.replace("port", "%02XH"), operandValue);
-                } else if (operandFmt.contains("data") && op.flags.contains(DATA)) {
-                    builder.opValue(operandFmt.replace("data", "%02XH"), operandValue);
-                } else if (operandFmt.contains("offset")) {
-                    builder.opAddress(operandFmt.replace("offset", "%s"), "%04XH", operandValue);
-                } else if (!operandFmt.isEmpty()) {
-                    builder.opValue(operandFmt);
+                if (displacement != null) {
+                    String template = operandFmt.replace("(HL)", String.format("(%s+%%s)", reg));
+                    operands.add(Operand.value(template, displacement, "%02XH"));
+                    continue;
                 }
             }
-            //
-            //return new InstructionZ80(addr, op.mnemonic, operandFmt, operandValue, program.read(length));
-            builder.code(program.read(length));
-            assembly.add(builder.get());
+            if (operandFmt.contains("data") && op.flags.contains(DATLO)) {
+                operands.add(Operand.value(operandFmt.replace("data", "%s"), field, "%04XH"));
+            } else if (operandFmt.contains("add")) {
+                operands.add(Operand.address(operandFmt.replace("add", "%s"), field, "%04XH"));
+            } else if (operandFmt.contains("port")) {
+                operands.add(Operand.value(operandFmt.replace("port", "%s"), field, "%02XH"));
+            } else if (operandFmt.contains("data") && op.flags.contains(DATA)) {
+                operands.add(Operand.value(operandFmt.replace("data", "%s"), field, "%02XH"));
+            } else if (operandFmt.contains("offset")) {
+                operands.add(Operand.address(operandFmt.replace("offset", "%s"), field, "%04XH"));
+            } else if (!operandFmt.isEmpty()) {
+                operands.add(Operand.text(operandFmt));
+            }
         }
-        return assembly;
+        return new Op(op.mnemonic, length, operands);
+    }
+
+    @Override
+    public String name() {
+        return "Z80";
     }
 
     @Override
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ByteScannerTest {
+    @Test
+    public void testByteScanner() {
+        byte[] data = { 0x20, (byte)0xed, (byte)0xfd, (byte)0xc8, (byte)0xc5, 0x00, 0x00, 0x20, 0x0c, 0x03, 0x20 };
+        Program program = new Program(data, 0x300);
+        ByteClass text = ByteClass.range(0xa0, 0xfe);
+        for (ByteScanner scanner : List.of(ByteScanner.scalar(), ByteScanner.get())) {
+            assertEquals(4, scanner.count(program, text));
+            assertEquals(2, scanner.count(program, ByteClass.of(0)));
+            assertArrayEquals(new int[] { 2, 2, 0, 0 }, scanner.windowCounts(program, 3, text));
+            assertArrayEquals(new int[] { 0 }, scanner.indexesOf(program, new int[] { 0x20, 0xed, 0xfd }));
+            assertArrayEquals(new int[] { 0, 7 }, scanner.indexesOf(program, new int[] { 0x20, -1, -1 }));
+            assertEquals(-1, scanner.indexOf(data, 1, data.length, new int[] { 0x20, 0xed }));
+        }
+    }
+}
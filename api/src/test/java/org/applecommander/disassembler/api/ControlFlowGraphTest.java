@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.applecommander.disassembler.api.z80.InstructionSetZ80;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ControlFlowGraphTest {
+    @Test
+    public void testControlFlowGraph() throws IOException {
+        // LDX #$00 / LDA $0310,X / BEQ $030D / JSR $FDED / INX / BNE $0302 / JMP ($03F2)
+        byte[] code = { (byte)0xa2, 0x00, (byte)0xbd, 0x10, 0x03, (byte)0xf0, 0x06, 0x20, (byte)0xed, (byte)0xfd,
+                (byte)0xe8, (byte)0xd0, (byte)0xf5, 0x6c, (byte)0xf2, 0x03 };
+        ControlFlowGraph graph = ControlFlowGraph.build(Disassembler.with(code).startingAddress(0x300).decode());
+        assertEquals(4, graph.blockCount());
+        assertEquals(List.of(0x300, 0x302, 0x307, 0x30d),
+                Stream.iterate(0, b -> b + 1).limit(graph.blockCount()).map(graph::blockAddress).toList());
+        List<String> edges = new ArrayList<>();
+        for (int b=0; b<graph.blockCount(); b++) {
+            for (int e=graph.edgeStart(b); e<graph.edgeEnd(b); e++) {
+                edges.add(String.format("%d %s %d $%04X", b, graph.edgeKind(e), graph.edgeTarget(e), graph.edgeAddress(e)));
+            }
+        }
+        assertEquals(List.of("0 FALLTHROUGH 1 $0302", "1 TAKEN 3 $030D", "1 FALLTHROUGH 2 $0307",
+                "2 CALL -1 $FDED", "2 TAKEN 1 $0302", "2 FALLTHROUGH 3 $030D"), edges);
+        assertEquals(2, graph.blockOf(5));
+        assertEquals(3, graph.blockOf(6));
+
+        StringBuilder json = new StringBuilder();
+        graph.writeJson(json, "loop");
+        assertTrue(json.toString().startsWith("{\"name\":\"loop\",\"blocks\":[{\"address\":768,\"end\":770,"
+                + "\"instructions\":1,\"edges\":[{\"kind\":\"fallthrough\",\"block\":1,\"address\":770}]},"), json.toString());
+        StringBuilder dot = new StringBuilder();
+        graph.writeDot(dot, "loop", Map.of(0xfded, "COUT"));
+        assertTrue(dot.toString().contains("a65005 [shape=plaintext, label=\"$FDED COUT\"];\n  b2 -> a65005 [style=dashed];"),
+                dot.toString());
+
+        // JP NZ,0300H / JP 0300H / RET NZ / RET / JP (HL)
+        byte[] z80 = { (byte)0xc2, 0x00, 0x03, (byte)0xc3, 0x00, 0x03, (byte)0xc0, (byte)0xc9, (byte)0xe9 };
+        assertEquals(List.of(ControlFlow.BRANCH, ControlFlow.JUMP, ControlFlow.BRANCH, ControlFlow.RETURN, ControlFlow.JUMP),
+                Disassembler.with(z80).use(InstructionSetZ80.forZ80()).startingAddress(0x300).decode().stream()
+                        .map(ControlFlow::of).toList());
+        assertEquals(List.of(1, 1, 0, 0, 0),
+                Disassembler.with(z80).use(InstructionSetZ80.forZ80()).startingAddress(0x300).decode().stream()
+                        .map(i -> ControlFlow.targets(i).length).toList());
+    }
+}
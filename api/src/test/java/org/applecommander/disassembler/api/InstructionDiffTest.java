@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InstructionDiffTest {
+    @Test
+    public void testInstructionDiff() {
+        // LDA #$00 / JSR SUB / JMP $0800 / SUB: STA $C030 / RTS
+        byte[] before = { (byte)0xa9, 0x00, 0x20, 0x08, 0x08, 0x4c, 0x00, 0x08, (byte)0x8d, 0x30, (byte)0xc0, 0x60 };
+        // LDA #$01 / JSR SUB / JMP $0800 / NOP / NOP / SUB: STA $C030 / RTS
+        byte[] after = { (byte)0xa9, 0x01, 0x20, 0x0a, 0x08, 0x4c, 0x00, 0x08, (byte)0xea, (byte)0xea,
+                (byte)0x8d, 0x30, (byte)0xc0, 0x60 };
+        List<InstructionDiff.Change> changes = new ArrayList<>();
+        InstructionDiff.diff(Disassembler.with(before).startingAddress(0x800).decode(),
+                Disassembler.with(after).startingAddress(0x800).decode(), changes::add);
+        assertEquals(List.of(InstructionDiff.Kind.CHANGED, InstructionDiff.Kind.SAME, InstructionDiff.Kind.SAME,
+                InstructionDiff.Kind.INSERTED, InstructionDiff.Kind.INSERTED, InstructionDiff.Kind.SAME,
+                InstructionDiff.Kind.SAME), changes.stream().map(InstructionDiff.Change::kind).toList());
+        assertEquals(0x80a, changes.get(5).right().address());
+
+        // Random edits: both streams survive the alignment and it is as long as a longest common subsequence
+        Random random = new Random(6502);
+        for (int round=0; round<200; round++) {
+            byte[] left = new byte[random.nextInt(1, 120)];
+            random.nextBytes(left);
+            byte[] right = left.clone();
+            for (int edits=random.nextInt(0, 8); edits>0; edits--) {
+                right[random.nextInt(right.length)] = (byte) random.nextInt(256);
+            }
+            List<Instruction> a = Disassembler.with(left).startingAddress(0x300).decode();
+            List<Instruction> b = Disassembler.with(right).startingAddress(0x300).decode();
+            List<Instruction> leftSide = new ArrayList<>();
+            List<Instruction> rightSide = new ArrayList<>();
+            int[] same = new int[1];
+            InstructionDiff.diff(a, b, change -> {
+                if (change.left() != null) leftSide.add(change.left());
+                if (change.right() != null) rightSide.add(change.right());
+                if (change.kind() == InstructionDiff.Kind.SAME) same[0]++;
+            });
+            assertEquals(a, leftSide);
+            assertEquals(b, rightSide);
+            long[] x = InstructionDiff.keys(a, 0x300, 0x300 + left.length);
+            long[] y = InstructionDiff.keys(b, 0x300, 0x300 + left.length);
+            int[][] lcs = new int[x.length+1][y.length+1];
+            for (int i=x.length-1; i>=0; i--) {
+                for (int j=y.length-1; j>=0; j--) {
+                    lcs[i][j] = x[i] == y[j] ? lcs[i+1][j+1] + 1 : Math.max(lcs[i+1][j], lcs[i][j+1]);
+                }
+            }
+            assertEquals(lcs[0][0], same[0]);
+        }
+    }
+}
@@ -19,7 +19,10 @@ package org.applecommander.disassembler.api;
 import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
 import org.applecommander.disassembler.api.pcode.InstructionSetPCode;
 import org.applecommander.disassembler.api.sweet16.InstructionSetSWEET16;
+import org.applecommander.disassembler.api.table.InstructionDecoder;
+import org.applecommander.disassembler.api.table.TableInstructionSet;
 import org.applecommander.disassembler.api.z80.InstructionSetZ80;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -28,8 +31,10 @@ import org.junit.jupiter.params.provider.ArgumentsSource;
 import org.junit.jupiter.params.support.ParameterDeclarations;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -37,6 +42,7 @@ import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class InstructionSetTest {
     @ParameterizedTest(name = "6502[{0}] => {3}")
@@ -81,9 +87,66 @@ public class InstructionSetTest {
         Instruction instruction = instructions.getFirst();
         assertArrayEquals(code, instruction.code());
         assertEquals(assembly, toAssembly(instruction));
+
+        // The streaming decode must agree, and report the instruction to the listener
+        List<Instruction> streamed = new ArrayList<>();
+        CountingDecodeListener listener = new CountingDecodeListener();
+        instructionSet.decode(new Program(code, address, listener), streamed::add);
+        assertEquals(1, streamed.size());
+        assertArrayEquals(code, streamed.getFirst().code());
+        assertEquals(assembly, toAssembly(streamed.getFirst()));
+        assertEquals(1, listener.decodes());
+        assertEquals(1, listener.instructions() + listener.dataEntries());
+        assertEquals(code.length, listener.bytes());
+    }
+
+    @Test
+    public void testTableDecoders() {
+        for (InstructionSet6502 instructionSet : List.of(InstructionSet6502.for6502(), InstructionSet6502.for65C02(),
+                InstructionSet6502.for6502withIllegalInstructions())) {
+            compareDecoders(instructionSet, TableInstructionSet.of(instructionSet.decoderSpec(), instructionSet.defaults()));
+        }
+        InstructionSetSWEET16 sweet16 = InstructionSetSWEET16.forSWEET16();
+        compareDecoders(sweet16, TableInstructionSet.of(sweet16.decoderSpec(), sweet16.defaults()));
+        InstructionSetZ80 z80 = InstructionSetZ80.forZ80();
+        compareDecoders(z80, TableInstructionSet.of(z80.decoderSpec(), z80.defaults()));
+    }
+
+    /**
+     * Every pair of leading bytes followed by operand bytes, then random code, must decode the same. The instruction
+     * sets decode through the decoders generated at build time, so the resource tests above cover those too.
+     */
+    void compareDecoders(InstructionSet expected, InstructionSet actual) {
+        assertTrue(InstructionDecoder.generated(expected.name()).isPresent(), expected.name());
+        byte[] code = { 0, 0, (byte)0x85, (byte)0xfa, 0x12, 0x7f };
+        for (int i=0; i<0x10000; i++) {
+            code[0] = (byte)(i >> 8);
+            code[1] = (byte)i;
+            compareDecoders(expected, actual, code, 0xff00);
+        }
+        Random random = new Random(6502);
+        for (int address : new int[] { 0x0000, 0x0300, 0xfff0 }) {
+            byte[] data = new byte[8192];
+            random.nextBytes(data);
+            compareDecoders(expected, actual, data, address);
+        }
+    }
+    void compareDecoders(InstructionSet expected, InstructionSet actual, byte[] code, int address) {
+        List<Instruction> expectedInstructions = expected.decode(new Program(code, address));
+        List<Instruction> actualInstructions = actual.decode(new Program(code, address));
+        assertEquals(expectedInstructions.size(), actualInstructions.size(), expected.name());
+        for (int i=0; i<expectedInstructions.size(); i++) {
+            Instruction e = expectedInstructions.get(i);
+            Instruction a = actualInstructions.get(i);
+            String where = String.format("%s at $%04X", expected.name(), e.address());
+            assertEquals(e.address(), a.address(), where);
+            assertArrayEquals(e.code(), a.code(), where);
+            assertEquals(e.mnemonic(), a.mnemonic(), where);
+            assertEquals(e.operands(), a.operands(), where);
+        }
     }
 
-    String toAssembly(Instruction instruction) {
+    public static String toAssembly(Instruction instruction) {
         StringBuilder builder = new StringBuilder(instruction.mnemonic());
         if (!instruction.operands().isEmpty()) {
             builder.append(' ');
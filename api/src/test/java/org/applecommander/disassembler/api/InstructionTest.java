@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InstructionTest {
+    @Test
+    public void testInstructionInterner() {
+        // LDA #$00 / BNE *+2 / JSR $FDED / RTS, twice at different addresses
+        byte[] code = { (byte)0xa9, 0x00, (byte)0xd0, 0x00, 0x20, (byte)0xed, (byte)0xfd, 0x60 };
+        List<Instruction> first = Disassembler.with(code).startingAddress(0x300).decode();
+        assertEquals(first, Disassembler.with(code).startingAddress(0x300).decode());
+        assertEquals(first.get(0).hashCode(), Disassembler.with(code).startingAddress(0x300).decode().get(0).hashCode());
+
+        InstructionInterner interner = new InstructionInterner();
+        List<Instruction> a = Disassembler.with(code).startingAddress(0x300).interner(interner).decode();
+        List<Instruction> b = Disassembler.with(code).startingAddress(0x300).interner(interner).decode();
+        List<Instruction> c = Disassembler.with(code).startingAddress(0x400).interner(interner).decode();
+        assertEquals(first, a);
+        for (int i=0; i<a.size(); i++) {
+            assertSame(a.get(i), b.get(i));
+        }
+        // Same bytes elsewhere share parts, except the relative branch whose target moved
+        assertSame(a.get(0).code(), c.get(0).code());
+        assertSame(a.get(2).operands(), c.get(2).operands());
+        assertNotEquals(a.get(1).operands(), c.get(1).operands());
+        assertEquals(0x404, c.get(1).operands().get(0).address().orElseThrow());
+        assertEquals(5, interner.size());
+    }
+
+    @Test
+    public void testPrimitiveAccessors() {
+        // LDA $1234,X / INX
+        List<Instruction> instructions = Disassembler.with(new byte[] { (byte)0xbd, 0x34, 0x12, (byte)0xe8 }).decode();
+        Instruction lda = instructions.get(0);
+        assertTrue(lda.hasAddressRef());
+        assertEquals(0x1234, lda.addressRefValue());
+        assertEquals(2, lda.operandCount());
+        assertEquals(0x1234, lda.operand(0).addressValue());
+        assertEquals(Instruction.NO_ADDRESS, lda.operand(1).addressValue());
+        assertEquals(lda.addressRef().flatMap(Instruction.Operand::address).orElseThrow(), lda.addressRefValue());
+        Instruction inx = instructions.get(1);
+        assertEquals(Instruction.NO_ADDRESS, inx.addressRefValue());
+        assertEquals(0, inx.operandCount());
+        assertNull(inx.descriptionOrNull());
+    }
+}
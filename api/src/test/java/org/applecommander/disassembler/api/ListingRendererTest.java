@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ListingRendererTest {
+    @Test
+    public void testListingRenderer() {
+        // LDA $0306 / JMP ($0300) / 4 bytes of .ASC, with a label and a description
+        Map<Integer,String> labels = new HashMap<>();
+        labels.put(0x306, "MESSAGE");
+        Instruction lda = Instruction.at(0x300).code(new byte[] { (byte)0xad, 0x06, 0x03 }).mnemonic("LDA")
+                .opAddress("%s", "$%04X", 0x306).description("load").get();
+        Instruction jmp = Instruction.at(0x303).code(new byte[] { 0x6c, 0x00, 0x03 }).mnemonic("JMP")
+                .opAddress("(%s)", "$%04X", 0x300).get();
+        Instruction asc = Instruction.at(0x306).code(new byte[] { (byte)0xc1, (byte)0xc2, (byte)0xc3, (byte)0xc4 })
+                .mnemonic(".ASC").opValue("\"ABCD\"").get();
+
+        ListingRenderer labeled = ListingRenderer.compile(ListingRenderer.LABELED, 3);
+        assertEquals(String.format("%04X- %s  %-10.10s %-5s %-30s ; load%n", 0x300, "AD 06 03", "", "LDA", "MESSAGE"),
+                labeled.render(lda, labels).toString());
+        assertEquals(String.format("%04X- %s  %-10.10s %-5s %-30s %n", 0x303, "6C 00 03", "", "JMP", "($0300)"),
+                labeled.render(jmp, labels).toString());
+        assertEquals(String.format("%04X- %s  %-10.10s %-5s %-30s %n0309- C4 %n", 0x306, "C1 C2 C3", "MESSAGE",
+                ".ASC", "\"ABCD\""), labeled.render(asc, labels).toString());
+
+        ListingRenderer quiet = ListingRenderer.compile(ListingRenderer.LABELED, 3, false);
+        assertEquals(String.format("%04X- %s  %-10.10s %-5s %-30s %n", 0x300, "AD 06 03", "", "LDA", "MESSAGE"),
+                quiet.render(lda, labels).toString());
+
+        ListingRenderer custom = ListingRenderer.compile("{label:4.4}|{mnemonic}|{operands:3.3}|{bytes}", 4);
+        assertEquals("MESS|.ASC|\"AB|C1 C2 C3 C4 " + System.lineSeparator(), custom.render(asc, labels).toString());
+        assertThrows(IllegalArgumentException.class, () -> ListingRenderer.compile("{address} {opcode}", 3));
+        assertThrows(IllegalArgumentException.class, () -> ListingRenderer.compile("{label:x}", 3));
+    }
+}
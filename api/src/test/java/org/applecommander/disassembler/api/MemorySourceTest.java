@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemorySourceTest {
+    @Test
+    public void testMemorySources(@TempDir Path directory) throws IOException {
+        // LDX #$00 / LDA $0310,X / BEQ $030D / JSR $FDED / INX / BNE $0302 / JMP ($03F2)
+        byte[] code = { (byte)0xa2, 0x00, (byte)0xbd, 0x10, 0x03, (byte)0xf0, 0x06, 0x20, (byte)0xed, (byte)0xfd,
+                (byte)0xe8, (byte)0xd0, (byte)0xf5, 0x6c, (byte)0xf2, 0x03 };
+        List<Instruction> expected = Disassembler.with(code).decode();
+        byte[] padded = Arrays.copyOf(code, code.length + 8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(code.length + 4).position(2);
+        direct.put(code).position(2).limit(2 + code.length);
+        Path file = directory.resolve("LOOP");
+        Files.write(file, code);
+        SparseMemory memory = SparseMemory.builder().put(0x300, Arrays.copyOf(code, 4))
+                .put(0x304, Arrays.copyOfRange(code, 4, code.length)).get();
+
+        for (MemorySource source : List.of(MemorySource.of(code), MemorySource.padded(padded, code.length),
+                MemorySource.of(direct), MemorySource.map(file), memory.slice(0x300, code.length))) {
+            assertEquals(code.length, source.length());
+            assertEquals(expected, Disassembler.with(source).decode());
+            assertArrayEquals(code, new Program(source, 0x300).read(code.length));
+            // Copies past either end are zero filled
+            assertArrayEquals(new byte[] { 0, 0, (byte)0xa2, 0x00 }, source.copy(-2, 4));
+            assertArrayEquals(new byte[] { (byte)0xf2, 0x03, 0, 0 }, source.copy(code.length - 2, 4));
+            assertArrayEquals(new byte[4], source.copy(code.length + 10, 4));
+        }
+        assertEquals(2, direct.position());
+        assertThrows(IllegalArgumentException.class, () -> MemorySource.padded(code, code.length - 1));
+
+        assertEquals(0x310, memory.length());
+        assertEquals(0x10bd, memory.getUnsignedShort(0x302));
+        assertEquals(0, memory.getUnsignedByte(0x2ff));
+        assertTrue(memory.isMapped(0x30f));
+        assertFalse(memory.isMapped(0x2ff));
+
+        // A program is a cursor; reads past the end give 0
+        Program program = new Program(MemorySource.padded(padded, code.length), 0x300);
+        program.seek(13);
+        assertEquals(0x030d, program.currentAddress());
+        assertEquals(0x03f2, program.peekUnsignedShort(1));
+        assertEquals(0, program.peekUnsignedByte(3));
+        assertEquals(0, new Program(memory, 0).getUnsignedByte(0x10000));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.mos6502.Opcode6502;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RegionClassifierTest {
+    @Test
+    public void testDataRegions() throws IOException {
+        ByteArrayOutputStream program = new ByteArrayOutputStream();
+        // LDX #0; LDA $031D,X; STA $3C; LDA $031E,X; STA $3D; JMP ($003C)
+        program.write(new byte[] { (byte)0xa2, 0x00, (byte)0xbd, 0x1d, 0x03, (byte)0x85, 0x3c, (byte)0xbd, 0x1e, 0x03,
+                (byte)0x85, 0x3d, 0x6c, 0x3c, 0x00 });
+        for (char ch : "HELLO, WORLD!".toCharArray()) program.write(ch | 0x80);
+        program.write(0x8d);
+        for (int i=0; i<7; i++) {
+            program.write(0x35 + i*5);
+            program.write(0x03);
+        }
+        program.write(new byte[10]);
+        for (int i=0; i<7; i++) {
+            // LDA #'A'+i; JMP $FDED
+            program.write(new byte[] { (byte)0xa9, (byte)(0xc1 + i), 0x4c, (byte)0xed, (byte)0xfd });
+        }
+
+        InstructionSet6502 instructionSet = InstructionSet6502.for6502();
+        RegionClassifier classifier = RegionClassifier.for6502(instructionSet);
+        List<RegionClassifier.Region> regions = classifier.classify(new Program(program.toByteArray(), 0x300));
+        assertEquals(List.of(new RegionClassifier.Region(0, 15, RegionClassifier.Kind.CODE),
+                new RegionClassifier.Region(15, 29, RegionClassifier.Kind.TEXT),
+                new RegionClassifier.Region(29, 43, RegionClassifier.Kind.WORDS),
+                new RegionClassifier.Region(43, 53, RegionClassifier.Kind.FILL),
+                new RegionClassifier.Region(53, 88, RegionClassifier.Kind.CODE)), regions);
+
+        List<String> assembly = Disassembler.with(program.toByteArray()).use(instructionSet).startingAddress(0x300)
+                .dataRegions(classifier).decode().stream().map(InstructionSetTest::toAssembly).toList();
+        assertEquals(".ASC \"HELLO, WORLD\"", assembly.get(6));
+        assertEquals(".ASC \"!\",$8D", assembly.get(7));
+        assertEquals(".ADDR $0335", assembly.get(8));
+        assertEquals(".FILL 10,$00", assembly.get(15));
+        assertEquals("JMP $FDED", assembly.get(assembly.size() - 1));
+
+        // The same table without the loads that reach it stays code
+        byte[] unreferenced = program.toByteArray();
+        unreferenced[3] = unreferenced[8] = 0x00;
+        assertTrue(classifier.classify(new Program(unreferenced, 0x300)).stream()
+                .noneMatch(region -> region.kind() == RegionClassifier.Kind.WORDS));
+    }
+
+    @Test
+    public void testDataRegionsInCode() {
+        InstructionSet6502 instructionSet = InstructionSet6502.for6502();
+        RegionClassifier classifier = RegionClassifier.for6502(instructionSet);
+        Random random = new Random(6502);
+        // Dense valid code: every opcode is a documented instruction
+        byte[] code = new byte[0x8000];
+        for (int i=0; i<code.length; ) {
+            int op = random.nextInt(256);
+            if (instructionSet.opcode(op) == Opcode6502.ZZZ) continue;
+            code[i++] = (byte) op;
+            for (int n=1; n<instructionSet.addressMode(op).getInstructionLength() && i<code.length; n++) {
+                code[i++] = (byte) random.nextInt(256);
+            }
+        }
+        assertTrue(classifier.classify(new Program(code, 0x800)).stream()
+                .noneMatch(region -> region.kind() == RegionClassifier.Kind.WORDS));
+        // A full address space, where every word points into the image
+        byte[] memory = new byte[Program.ADDRESS_SPACE];
+        random.nextBytes(memory);
+        assertTrue(classifier.classify(new Program(memory, 0)).stream()
+                .noneMatch(region -> region.kind() == RegionClassifier.Kind.WORDS));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RelocatingViewTest {
+    @Test
+    public void testRelocatingView() {
+        // Two filler bytes, then JMP $0009 / LDA $0012 / JSR $0056 / RTS
+        byte[] bytes = { (byte)0xff, (byte)0xff, 0x4c, 0x09, 0x00, (byte)0xad, 0x12, 0x00, 0x20, 0x56, 0x00, 0x60 };
+        byte[] original = bytes.clone();
+        RelocatingView view = RelocatingView.over(ByteBuffer.wrap(bytes), 2, bytes.length)
+                .relocate(new int[] { 3 }, 0x0300)
+                .symbol(new int[] { 6 }, "SEG")
+                .symbol(new int[] { 9, 20 }, "INTERP")
+                .get();
+        assertEquals(10, view.length());
+        assertEquals(0x09, view.getUnsignedByte(1));
+        assertEquals(0x03, view.getUnsignedByte(2));
+        assertArrayEquals(new byte[] { 0x09, 0x03, (byte)0xad }, view.copy(1, 3));
+        assertEquals(0x03, view.slice(2, 4).getUnsignedByte(0));
+
+        Map<Integer,String> labels = new HashMap<>();
+        List<Instruction> assembly = Disassembler.with(view).startingAddress(0x300).decode(labels);
+        assertEquals(List.of("JMP $0309", "LDA SEG+$0012", "JSR INTERP+$0056", "RTS"),
+                assembly.stream().map(InstructionSetTest::toAssembly).toList());
+        assertArrayEquals(new byte[] { 0x4c, 0x09, 0x03 }, assembly.get(0).code());
+        assertEquals(Map.of(0x309, "L0309"), labels);
+        assertArrayEquals(original, bytes);
+
+        assertEquals(List.of("LDA SEG+$0012", "JSR INTERP+$0056"),
+                Disassembler.with(view).startingAddress(0x300).bytesToSkip(3).bytesToDecode(6).decode().stream()
+                        .map(InstructionSetTest::toAssembly).toList());
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SignatureLibraryTest {
+    @Test
+    public void testSignatures() {
+        // A relocated copy of the SWEET16 entry and of PRBYTE
+        byte[] code = { 0x20, 0x03, 0x60,
+                0x20, 0x4a, 0x60, 0x68, (byte)0x85, 0x1e, 0x68, (byte)0x85, 0x1f, 0x20, 0x0f, 0x60, 0x4c, 0x0c, 0x60,
+                0x48, 0x4a, 0x4a, 0x4a, 0x4a, 0x20, 0x1d, 0x60, 0x68, 0x29, 0x0f, 0x09, (byte)0xb0, (byte)0xc9,
+                (byte)0xba, (byte)0x90, 0x02, 0x69, 0x06, 0x60 };
+        Map<Integer,String> labels = new HashMap<>();
+        labels.put(0x6012, "PRINTHEX");
+        Disassembler.with(code).startingAddress(0x6000).signatures(SignatureLibrary.defaults()).decode(labels);
+        assertEquals("SW16", labels.get(0x6003));
+        assertEquals("SW16B", labels.get(0x600c));
+        assertEquals("PRINTHEX", labels.get(0x6012));
+        assertEquals("PRHEX", labels.get(0x601b));
+        assertEquals("PRHEXZ", labels.get(0x601d));
+
+        assertThrows(IllegalArgumentException.class, () -> SignatureLibrary.Signature.parse("Test", "BAD", "20 ?? ?? 60"));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import org.applecommander.disassembler.api.Disassembler;
+import org.applecommander.disassembler.api.z80.InstructionSetZ80;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NgramIndexTest {
+    @Test
+    public void testNgramIndex(@TempDir Path directory) throws IOException {
+        // LDA $C0E9,X / JSR $03D9 / RTS, then a copy with LDA $C089,X and a Z80 program
+        byte[] first = { (byte)0xbd, (byte)0xe9, (byte)0xc0, 0x20, (byte)0xd9, 0x03, 0x60 };
+        byte[] second = { (byte)0xea, (byte)0xbd, (byte)0x89, (byte)0xc0, 0x20, (byte)0xd9, 0x03, 0x60 };
+        // LD HL,0C0E9H / CALL 03D9H / RET
+        byte[] z80 = { 0x21, (byte)0xe9, (byte)0xc0, (byte)0xcd, (byte)0xd9, 0x03, (byte)0xc9 };
+        Path file = directory.resolve("corpus.idx");
+        NgramIndex.builder(2)
+                .add("first", Disassembler.with(first).startingAddress(0x800).decode())
+                .add("second", Disassembler.with(second).startingAddress(0x900).decode())
+                .add("z80", Disassembler.with(z80).use(InstructionSetZ80.forZ80()).startingAddress(0x100).decode())
+                .write(file);
+
+        Map<String,Integer> labels = Map.of("RWTS", 0x3d9);
+        try (NgramIndex index = NgramIndex.open(file)) {
+            assertEquals(3, index.fileCount());
+            assertEquals(List.of(new NgramIndex.Hit("first", 0x800), new NgramIndex.Hit("second", 0x901)),
+                    index.search(InstructionKeys.parse("lda $1234,x; jsr RWTS; rts", false, labels), 10));
+            assertEquals(List.of(new NgramIndex.Hit("first", 0x800)),
+                    index.search(InstructionKeys.parse("LDA $C0E9,X\nJSR RWTS", true, labels), 10));
+            assertEquals(List.of(new NgramIndex.Hit("first", 0x803)),
+                    index.search(InstructionKeys.parse("JSR $3D9; RTS", true, labels), 1));
+            assertEquals(List.of(new NgramIndex.Hit("z80", 0x100)),
+                    index.search(InstructionKeys.parse("LD HL,0C0E9H; CALL RWTS; RET", true, labels), 10));
+            assertEquals(List.of(), index.search(InstructionKeys.parse("LDA $C0,X", false, labels), 10));
+            assertEquals(2, index.search(InstructionKeys.parse("RTS", false, labels), 10).size());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.index;
+
+import org.applecommander.disassembler.api.Disassembler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SimilarityIndexTest {
+    @Test
+    public void testRoutineSimilarity(@TempDir Path directory) throws IOException {
+        // JSR CLEAR / JSR PRINT / JSR MUL / RTS and the three routines; the second program prints without
+        // ORA #$80, clears the same way and waits for a key instead of multiplying
+        byte[] hello = { 0x20, 0x1a, 0x08, 0x20, 0x0a, 0x08, 0x20, 0x2e, 0x08, 0x60,
+                (byte)0xa2, 0x00, (byte)0xbd, 0x00, 0x09, (byte)0xf0, 0x08, 0x09, (byte)0x80, 0x20, (byte)0xed,
+                (byte)0xfd, (byte)0xe8, (byte)0xd0, (byte)0xf3, 0x60,
+                (byte)0xa9, (byte)0xa0, (byte)0xa2, 0x00, (byte)0x9d, 0x00, 0x04, (byte)0x9d, 0x00, 0x05,
+                (byte)0x9d, 0x00, 0x06, (byte)0x9d, 0x00, 0x07, (byte)0xe8, (byte)0xd0, (byte)0xf1, 0x60,
+                (byte)0xa9, 0x00, (byte)0xa2, 0x08, 0x46, 0x07, (byte)0x90, 0x03, 0x18, 0x65, 0x06, 0x6a, 0x66, 0x08,
+                (byte)0xca, (byte)0xd0, (byte)0xf3, (byte)0x85, 0x09, 0x60 };
+        byte[] greet = { 0x20, 0x18, 0x40, 0x20, 0x0a, 0x40, 0x20, 0x2c, 0x40, 0x60,
+                (byte)0xa2, 0x00, (byte)0xbd, 0x00, 0x41, (byte)0xf0, 0x06, 0x20, (byte)0xed, (byte)0xfd, (byte)0xe8,
+                (byte)0xd0, (byte)0xf5, 0x60,
+                (byte)0xa9, (byte)0xa0, (byte)0xa2, 0x00, (byte)0x9d, 0x00, 0x04, (byte)0x9d, 0x00, 0x05,
+                (byte)0x9d, 0x00, 0x06, (byte)0x9d, 0x00, 0x07, (byte)0xe8, (byte)0xd0, (byte)0xf1, 0x60,
+                (byte)0xad, 0x00, (byte)0xc0, 0x10, (byte)0xfb, (byte)0x8d, 0x10, (byte)0xc0, (byte)0xc9, (byte)0x9b,
+                (byte)0xf0, 0x04, (byte)0xc9, (byte)0x8d, (byte)0xd0, (byte)0xf0, 0x60 };
+        List<Routine> helloRoutines = Routine.split(Disassembler.with(hello).startingAddress(0x800).decode(), 1);
+        assertEquals(List.of(0x800, 0x80a, 0x81a, 0x82e), helloRoutines.stream().map(Routine::address).toList());
+        assertEquals(List.of(4, 8, 9, 12), helloRoutines.stream().map(r -> r.instructions().size()).toList());
+        List<Routine> greetRoutines = Routine.split(Disassembler.with(greet).startingAddress(0x4000).decode(), 6);
+        assertEquals(List.of(0x400a, 0x4018, 0x402c), greetRoutines.stream().map(Routine::address).toList());
+
+        MinHash minHash = new MinHash(3, 20, 3);
+        int[] print = minHash.sign(helloRoutines.get(1).instructions());
+        int[] clear = minHash.sign(helloRoutines.get(2).instructions());
+        List<int[]> signatures = greetRoutines.stream().map(r -> minHash.sign(r.instructions())).toList();
+        assertEquals(1.0, MinHash.similarity(clear, signatures.get(1)));
+        // Three of the eight shingles are shared
+        double printSimilarity = MinHash.similarity(print, signatures.get(0));
+        assertTrue(printSimilarity > 0.2 && printSimilarity < 0.6, "similarity " + printSimilarity);
+
+        Path file = directory.resolve("routines.rix");
+        SimilarityIndex.builder(minHash).add("greet", greetRoutines, signatures).write(file);
+        try (SimilarityIndex index = SimilarityIndex.open(file)) {
+            assertEquals(1, index.fileCount());
+            assertEquals(3, index.routineCount());
+            assertEquals(60, index.minHash().slots());
+            assertEquals(List.of(new SimilarityIndex.Match("greet", 0x4018, 9, 1.0)), index.search(clear, 0.5, 5));
+            assertEquals(List.of(), index.search(minHash.sign(helloRoutines.get(3).instructions()), 0.5, 5));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.pcode;
+
+import org.applecommander.disassembler.api.Disassembler;
+import org.applecommander.disassembler.api.Instruction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.applecommander.disassembler.api.InstructionSetTest.toAssembly;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InstructionSetPCodeTest {
+    @Test
+    public void testPCodeCallScan() {
+        // NOP / CLP 2 / LSA 'CXP' / CXP 7,1 / CBP 1 / RBP 0
+        byte[] code = { (byte)0xd7, (byte)0xce, 0x02, (byte)0xa6, 0x03, (byte)0xcd, 0x07, 0x01, (byte)0xcd, 0x07, 0x01,
+                (byte)0xc2, 0x01, (byte)0xc1, 0x00 };
+        assertEquals(List.of("$0201 CLP 2", "$0208 CXP 7,1", "$020B CBP 1"), scanCalls(code, 0x200));
+
+        // Any bytes that decode give the same calls as the full decode (which rejects unknown type numbers)
+        Random random = new Random(48);
+        int compared = 0;
+        for (int n=0; n<500; n++) {
+            byte[] bytes = new byte[random.nextInt(64) + 1];
+            random.nextBytes(bytes);
+            List<Instruction> instructions;
+            try {
+                instructions = Disassembler.with(bytes).startingAddress(0x200)
+                        .use(InstructionSetPCode.forApplePascal()).decode();
+            } catch (ArrayIndexOutOfBoundsException e) {
+                continue;
+            }
+            List<String> decoded = instructions.stream()
+                    .filter(i -> List.of("CBP", "CGP", "CIP", "CLP", "CXP").contains(i.mnemonic()))
+                    .map(i -> String.format("$%04X %s", i.address(), toAssembly(i))).toList();
+            assertEquals(decoded, scanCalls(bytes, 0x200));
+            compared++;
+        }
+        assertTrue(compared > 100, "compared " + compared);
+    }
+
+    List<String> scanCalls(byte[] code, int address) {
+        List<String> calls = new ArrayList<>();
+        InstructionSetPCode.scanCalls(code, address, (at, opcode, segment, procedure) ->
+                calls.add(String.format("$%04X %s %s%d", at, InstructionSetPCode.mnemonic(opcode),
+                        segment < 0 ? "" : segment + ",", procedure)));
+        return calls;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.api.symbols;
+
+import org.applecommander.disassembler.api.Disassembler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SymbolTableTest {
+    @Test
+    public void testSymbolFiles(@TempDir Path directory) throws IOException {
+        Path merlin = Files.writeString(directory.resolve("equates.s"), "* Merlin\nCLS      EQU   $FC58\nLOOP = $0302 ; loop\n]X EQU 1\n");
+        Path dbg = Files.writeString(directory.resolve("game.dbg"), "version\tmajor=2,minor=0\n" +
+                "sym\tid=0,name=\"start\",addrsize=absolute,scope=0,def=1,val=0x300,seg=0,type=lab\n" +
+                "sym\tid=1,name=\"LOOP2\",addrsize=absolute,val=0x302,type=lab\n");
+        Path vice = Files.writeString(directory.resolve("game.lbl"), "al C:0307 .print\r\nal 000309 .done\r\n");
+        Path sourceGen = Files.writeString(directory.resolve("rom.sym65"), "*SYNOPSIS ROM\nPUTC @ $FDF0 ;out\nPTR = $06\n");
+
+        SymbolCache cache = SymbolCache.directory(directory.resolve("cache"));
+        SymbolTable symbols = SymbolTable.load(List.of(merlin, dbg, vice, sourceGen), cache);
+        assertEquals(Map.of(0xfc58, "CLS", 0x302, "LOOP", 0x300, "start", 0x307, "print", 0x309, "done",
+                0xfdf0, "PUTC", 0x06, "PTR"), symbols.labels());
+        // A second cache over the same directory reads the saved entries
+        assertEquals(symbols.labels(), SymbolTable.load(List.of(merlin, dbg, vice, sourceGen),
+                SymbolCache.directory(directory.resolve("cache"))).labels());
+
+        // Symbols win over label groups, but labels passed in win over symbols
+        Map<Integer,String> labels = new HashMap<>();
+        labels.put(0x309, "FINISH");
+        Disassembler.with(new byte[16]).startingAddress(0x300).section(List.of("F800")).symbols(symbols).decode(labels);
+        assertEquals("CLS", labels.get(0xfc58));
+        assertEquals("PUTC", labels.get(0xfdf0));
+        assertEquals("FINISH", labels.get(0x309));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.applecommander.disassembler.api.Program;
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.pcode.InstructionSetPCode;
+import org.applecommander.disassembler.cli.codefile.AssemblyProcedure;
+import org.applecommander.disassembler.cli.codefile.CodeFile;
+import org.applecommander.disassembler.cli.codefile.PCodeProcedure;
+import org.applecommander.disassembler.cli.codefile.Segment;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+@Command(name = "analyze", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+         descriptionHeading = "%n",
+         optionListHeading = "%nOptions:%n",
+         description = { "Report the instruction mix of any number of files.",
+                         "CPU, origin and library options go before 'analyze', for example:",
+                         "  acdasm --z80 analyze *.COM%n" })
+public class Analyze implements Callable<Integer> {
+    @ParentCommand
+    private Main main;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = { "--top" }, description = "Number of opcodes and labels to list. Default is ${DEFAULT-VALUE}.")
+    private int top = 20;
+
+    @Option(names = { "--threads" }, description = "Number of worker threads. Defaults to the number of processors.")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameters(arity = "1..*", description = "Files or directories (searched recursively) to analyze.")
+    private List<Path> paths;
+
+    @Override
+    public Integer call() throws Exception {
+        InstructionMix.Totals totals = new InstructionMix.Totals(new InstructionMix.Labels(main.selectedLibraries()));
+        int startAddress = main.selectedStartAddress();
+        int failures = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            for (Path path : paths) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).forEach(file -> {
+                        files.add(file);
+                        results.add(executor.submit(() -> analyze(file, startAddress, totals)));
+                    });
+                }
+            }
+            for (int i=0; i<results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException ex) {
+                    failures++;
+                    spec.commandLine().getErr().printf("%s: %s\n", files.get(i), ex.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        totals.report(spec.commandLine().getOut(), top);
+        return failures == 0 ? 0 : 1;
+    }
+
+    private void analyze(Path file, int startAddress, InstructionMix.Totals totals) {
+        InstructionMix mix = new InstructionMix(totals.labels());
+        byte[] code;
+        try {
+            code = Files.readAllBytes(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (main.isCodeFile()) {
+            // Assembly procedures are analyzed as relocated
+            for (Segment segment : CodeFile.load(code).segments()) {
+                if (segment == null) continue;
+                for (Object proc : segment.dictionary()) {
+                    switch (proc) {
+                        case PCodeProcedure pcode -> mix.add(InstructionSetPCode.forApplePascal(),
+                                new Program(pcode.codeSource(), pcode.enterIC()));
+                        case AssemblyProcedure asm -> mix.add(InstructionSet6502.for6502(),
+                                new Program(asm.relocated(), asm.enterIC()));
+                        case null, default -> { }
+                    }
+                }
+            }
+        }
+        else {
+            mix.add(main.newInstructionSet(), new Program(code, startAddress));
+        }
+        mix.addFile();
+        totals.add(mix);
+    }
+}
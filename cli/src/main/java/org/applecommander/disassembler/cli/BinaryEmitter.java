@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+import org.applecommander.disassembler.api.Instruction;
+
+/**
+ * Writes a compact, length-prefixed binary record stream. All values are big-endian and strings are
+ * written with {@link DataOutputStream#writeUTF(String)} (a 2 byte length followed by the text), so the
+ * stream can be read back with a {@link java.io.DataInputStream}.
+ * <pre>
+ * header:      'A' 'C' 'D' 'B' u1:version
+ * record:      u1:type u4:length payload[length]
+ * 'I' payload: u2:address u2:n byte[n]:code utf:mnemonic
+ *              u2:n utf[n]:operands
+ *              u1:hasTarget [u2:target utf:targetLabel]
+ *              utf:label utf:description
+ * 'N' payload: utf:text
+ * </pre>
+ * Absent labels and descriptions are written as empty strings.
+ */
+public class BinaryEmitter implements Emitter {
+    public static final int VERSION = 1;
+    public static final int INSTRUCTION = 'I';
+    public static final int NOTE = 'N';
+
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream record = new DataOutputStream(buffer);
+    private final Map<Integer,String> labels;
+    private final boolean descriptions;
+
+    public BinaryEmitter(OutputStream out, Map<Integer,String> labels, boolean descriptions) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.labels = labels;
+        this.descriptions = descriptions;
+        try {
+            this.out.writeBytes("ACDB");
+            this.out.writeByte(VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(Instruction instruction) {
+        try {
+            record.writeShort(instruction.address());
+            record.writeShort(instruction.code().length);
+            record.write(instruction.code());
+            record.writeUTF(instruction.mnemonic());
+            List<Instruction.Operand> operands = instruction.operands();
+            record.writeShort(operands.size());
+            for (Instruction.Operand operand : operands) {
+                record.writeUTF(operand.format());
+            }
+            int target = instruction.addressRefValue();
+            record.writeBoolean(target != Instruction.NO_ADDRESS);
+            if (target != Instruction.NO_ADDRESS) {
+                record.writeShort(target);
+                record.writeUTF(labels.getOrDefault(target, ""));
+            }
+            record.writeUTF(labels.getOrDefault(instruction.address(), ""));
+            record.writeUTF(descriptions ? instruction.description().orElse("") : "");
+            writeRecord(INSTRUCTION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void note(String text) {
+        try {
+            record.writeUTF(text);
+            writeRecord(NOTE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void finish() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeRecord(int type) throws IOException {
+        out.writeByte(type);
+        out.writeInt(buffer.size());
+        buffer.writeTo(out);
+        buffer.reset();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+import org.applecommander.disassembler.api.pcode.InstructionSetPCode;
+import org.applecommander.disassembler.cli.codefile.CallGraph;
+import org.applecommander.disassembler.cli.codefile.CodeFile;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+@Command(name = "calls", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+         descriptionHeading = "%n",
+         optionListHeading = "%nOptions:%n",
+         description = { "Write the procedure call graph of a Pascal CODEFILE, starting from the main procedure.",
+                         "Procedures it does not reach are listed but not scanned unless --all is given.",
+                         "For example:",
+                         "  acdasm calls --format DOT SYSTEM.FILER | dot -Tsvg > filer.svg%n" })
+public class Calls implements Callable<Integer> {
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = { "--all" }, description = "Also scan the procedures the main procedure does not reach.")
+    private boolean everyProcedure;
+
+    @Option(names = { "--format" }, paramLabel = "<format>",
+            description = "Output format: ${COMPLETION-CANDIDATES}. Default is ${DEFAULT-VALUE}.")
+    private Format format = Format.TEXT;
+
+    @Parameters(index = "0", paramLabel = "<file>", description = "CODEFILE to graph.")
+    private Path file;
+
+    @Override
+    public Integer call() throws Exception {
+        CallGraph graph = CallGraph.build(CodeFile.load(file), everyProcedure);
+        PrintWriter out = spec.commandLine().getOut();
+        switch (format) {
+            case TEXT -> writeText(out, graph);
+            case DOT -> writeDot(out, graph);
+        }
+        out.flush();
+        return 0;
+    }
+
+    private void writeText(PrintWriter out, CallGraph graph) {
+        int reached = 0;
+        for (int node=0; node<graph.nodeCount(); node++) {
+            if (graph.reachable(node)) reached++;
+            if (!graph.scanned(node)) continue;
+            out.printf("%s%s%s\n", name(graph, node), node == graph.main() ? " (main)" : "",
+                    graph.reachable(node) ? "" : " (not reached)");
+            for (int e=graph.edgeStart(node); e<graph.edgeEnd(node); e++) {
+                out.printf("  $%04X  %-4s %s\n", graph.edgeAddress(e),
+                        InstructionSetPCode.mnemonic(graph.edgeOpcode(e)), target(graph, e));
+            }
+        }
+        out.printf("Reached %d of %d procedures.\n", reached, graph.nodeCount());
+    }
+
+    private void writeDot(PrintWriter out, CallGraph graph) {
+        out.printf("digraph \"%s\" {\n", file.getFileName());
+        out.println("  node [shape=box, fontname=\"Courier\"];");
+        for (int node=0; node<graph.nodeCount(); node++) {
+            out.printf("  p%d [label=\"%s\"%s];\n", node, name(graph, node),
+                    graph.reachable(node) ? "" : ", style=dashed");
+        }
+        for (int node=0; node<graph.nodeCount(); node++) {
+            for (int e=graph.edgeStart(node); e<graph.edgeEnd(node); e++) {
+                if (graph.edgeTarget(e) == CallGraph.EXTERNAL) {
+                    String external = String.format("x%d_%d", graph.edgeSegment(e), graph.edgeProcedure(e));
+                    out.printf("  %s [label=\"%s\", shape=ellipse];\n", external, target(graph, e));
+                    out.printf("  p%d -> %s;\n", node, external);
+                }
+                else {
+                    out.printf("  p%d -> p%d;\n", node, graph.edgeTarget(e));
+                }
+            }
+        }
+        out.println("}");
+    }
+
+    private static String name(CallGraph graph, int node) {
+        return String.format("%s #%d", graph.segment(node).name().trim(), graph.procedureNumber(node));
+    }
+
+    private static String target(CallGraph graph, int edge) {
+        if (graph.edgeTarget(edge) == CallGraph.EXTERNAL) {
+            return String.format("segment %d #%d (not in file)", graph.edgeSegment(edge), graph.edgeProcedure(edge));
+        }
+        return name(graph, graph.edgeTarget(edge));
+    }
+
+    enum Format { TEXT, DOT }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.applecommander.disassembler.api.ControlFlowGraph;
+import org.applecommander.disassembler.api.symbols.SymbolTable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+@Command(name = "cfg", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+         descriptionHeading = "%n",
+         optionListHeading = "%nOptions:%n",
+         description = { "Write the control flow graph of a file, as basic blocks and the edges between them.",
+                         "Each procedure of a CODEFILE is a separate graph. CPU, origin and library options",
+                         "go before 'cfg', for example:",
+                         "  acdasm -a 0x300 cfg HELLO | dot -Tsvg > hello.svg%n" })
+public class Cfg implements Callable<Integer> {
+    @ParentCommand
+    private Main main;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = { "--format" }, paramLabel = "<format>",
+            description = "Output format: ${COMPLETION-CANDIDATES}. Default is ${DEFAULT-VALUE}.")
+    private Format format = Format.DOT;
+
+    @Parameters(index = "0", paramLabel = "<file>", description = "File to graph.")
+    private Path file;
+
+    @Override
+    public Integer call() throws Exception {
+        SymbolTable symbols = main.selectedSymbols();
+        PrintWriter out = spec.commandLine().getOut();
+        if (main.isCodeFile()) {
+            for (Index.Entry entry : Index.decode(main, file, symbols)) {
+                write(out, entry.name(), ControlFlowGraph.build(entry.instructions()), Map.of());
+            }
+        }
+        else {
+            Map<Integer,String> labels = new HashMap<>();
+            ControlFlowGraph graph = ControlFlowGraph.build(main.decode(Files.readAllBytes(file), symbols, labels));
+            write(out, file.getFileName().toString(), graph, labels);
+        }
+        out.flush();
+        return 0;
+    }
+
+    private void write(PrintWriter out, String name, ControlFlowGraph graph, Map<Integer,String> labels)
+            throws IOException {
+        switch (format) {
+            case DOT -> graph.writeDot(out, name, labels);
+            case JSON -> graph.writeJson(out, name);
+        }
+    }
+
+    enum Format { DOT, JSON }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves acdasm requests on a Unix domain socket, one virtual thread per connection, and the matching
+ * client. All integers are big-endian and strings are in {@link DataOutputStream#writeUTF} form:
+ * <pre>
+ * request:  u4 argc, argc * utf argument, u4 length, length * u1 input
+ * response: u4 exit code, u4 length, length * u1 stdout, u4 length, length * u1 stderr
+ * </pre>
+ * A connection may carry any number of requests.
+ */
+final class Daemon {
+    /** Requests larger than this are refused; a CODEFILE is at most a few hundred KB. */
+    static final int MAX_INPUT = 16 * 1024 * 1024;
+    static final int MAX_ARGS = 256;
+
+    private Daemon() {
+        // Prevent construction
+    }
+
+    /** Serve until the process ends; debug prints the stack trace of a failed connection. */
+    static void serve(Path socket, boolean debug) throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            socket.toFile().deleteOnExit();
+            System.err.printf("Listening on %s\n", socket);
+            while (true) {
+                SocketChannel channel = server.accept();
+                Thread.ofVirtual().name("acdasm-connection").start(() -> handle(channel, debug));
+            }
+        }
+    }
+
+    static void handle(SocketChannel channel, boolean debug) {
+        try (channel;
+             DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+             DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel))) {
+            while (true) {
+                int argc;
+                try {
+                    argc = in.readInt();
+                } catch (EOFException ex) {
+                    return;
+                }
+                if (argc < 0 || argc > MAX_ARGS) {
+                    throw new IOException(String.format("argument count(%d) is out of range(0-%d).", argc, MAX_ARGS));
+                }
+                List<String> args = new ArrayList<>(argc);
+                for (int i=0; i<argc; i++) args.add(in.readUTF());
+                int length = in.readInt();
+                if (length < 0 || length > MAX_INPUT) {
+                    throw new IOException(String.format("input length(%d) is out of range(0-%d).", length, MAX_INPUT));
+                }
+                byte[] input = in.readNBytes(length);
+                if (input.length != length) throw new EOFException();
+
+                Invocation.Result result = Invocation.run(args, input);
+                out.writeInt(result.exitCode());
+                out.writeInt(result.out().length);
+                out.write(result.out());
+                out.writeInt(result.err().length);
+                out.write(result.err());
+                out.flush();
+            }
+        } catch (IOException ex) {
+            if (debug) ex.printStackTrace();
+        }
+    }
+
+    /** Send one request to a daemon, copy its output to out and err, and return its exit code. */
+    static int connect(Path socket, List<String> args, byte[] input, OutputStream out, OutputStream err)
+            throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+             DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+             DataInputStream response = new DataInputStream(Channels.newInputStream(channel))) {
+            request.writeInt(args.size());
+            for (String arg : args) request.writeUTF(arg);
+            request.writeInt(input.length);
+            request.write(input);
+            request.flush();
+
+            int exitCode = response.readInt();
+            out.write(response.readNBytes(response.readInt()));
+            out.flush();
+            err.write(response.readNBytes(response.readInt()));
+            err.flush();
+            return exitCode;
+        }
+    }
+}
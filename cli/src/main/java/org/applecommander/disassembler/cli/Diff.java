@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import org.applecommander.disassembler.api.Instruction;
+import org.applecommander.disassembler.api.InstructionDiff;
+import org.applecommander.disassembler.api.ListingRenderer;
+import org.applecommander.disassembler.api.symbols.SymbolTable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+@Command(name = "diff", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+         descriptionHeading = "%n",
+         optionListHeading = "%nOptions:%n",
+         description = { "Compare the disassembly of two files, such as two ROM revisions.",
+                         "Lines start with '-' when removed, '+' when inserted and '<' and '>' when changed.",
+                         "Addresses inside each file are ignored, so moved code only shows where it moved.",
+                         "CPU, origin and library options go before 'diff', for example:",
+                         "  acdasm -a 0xF800 diff monitor.rom autostart.rom%n" })
+public class Diff implements Callable<Integer> {
+    private static final String LAYOUT = "{address}- {bytes} {label:10.10} {mnemonic:5} {operands}";
+
+    @ParentCommand
+    private Main main;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = { "-U", "--context" }, description = "Unchanged instructions shown around each change. Default is ${DEFAULT-VALUE}.")
+    private int context = 3;
+
+    @Parameters(index = "0", description = "Original file.")
+    private Path original;
+
+    @Parameters(index = "1", description = "Changed file.")
+    private Path changed;
+
+    @Override
+    public Integer call() throws Exception {
+        if (main.isCodeFile()) {
+            throw new IllegalArgumentException("diff does not support CODEFILEs.");
+        }
+        SymbolTable symbols = main.selectedSymbols();
+        Map<Integer,String> leftLabels = new HashMap<>();
+        Map<Integer,String> rightLabels = new HashMap<>();
+        List<Instruction> left = main.decode(Files.readAllBytes(original), symbols, leftLabels);
+        List<Instruction> right = main.decode(Files.readAllBytes(changed), symbols, rightLabels);
+
+        Hunks hunks = new Hunks(spec.commandLine().getOut(), Math.max(0, context),
+                main.newInstructionSet().defaults().bytesPerInstruction(), leftLabels, rightLabels);
+        InstructionDiff.diff(left, right, hunks);
+        hunks.summary();
+        return hunks.differences() == 0 ? 0 : 1;
+    }
+
+    /** Prints changes as they arrive, with a few unchanged instructions around them. */
+    static class Hunks implements Consumer<InstructionDiff.Change> {
+        private final PrintWriter out;
+        private final int context;
+        private final ListingRenderer renderer;
+        private final Map<Integer,String> leftLabels;
+        private final Map<Integer,String> rightLabels;
+        private final TreeMap<Integer,String> leftIndex;
+        private final TreeMap<Integer,String> rightIndex;
+        private final ArrayDeque<InstructionDiff.Change> before = new ArrayDeque<>();
+        private int after;
+        private boolean skipped = true;
+        private int changedCount, removedCount, insertedCount;
+
+        Hunks(PrintWriter out, int context, int bytesPerLine, Map<Integer,String> leftLabels,
+              Map<Integer,String> rightLabels) {
+            this.out = out;
+            this.context = context;
+            this.renderer = ListingRenderer.compile(LAYOUT, bytesPerLine);
+            this.leftLabels = leftLabels;
+            this.rightLabels = rightLabels;
+            this.leftIndex = new TreeMap<>(leftLabels);
+            this.rightIndex = new TreeMap<>(rightLabels);
+        }
+
+        @Override
+        public void accept(InstructionDiff.Change change) {
+            if (change.kind() == InstructionDiff.Kind.SAME) {
+                if (after > 0) {
+                    print(' ', change.left(), leftLabels);
+                    after--;
+                }
+                else {
+                    before.addLast(change);
+                    if (before.size() > context) {
+                        before.removeFirst();
+                        skipped = true;
+                    }
+                }
+                return;
+            }
+            if (skipped) {
+                InstructionDiff.Change first = before.isEmpty() ? change : before.peekFirst();
+                out.printf("@@ %s | %s @@\n", where(first.left(), leftIndex), where(first.right(), rightIndex));
+                skipped = false;
+            }
+            while (!before.isEmpty()) {
+                print(' ', before.removeFirst().left(), leftLabels);
+            }
+            switch (change.kind()) {
+                case REMOVED -> {
+                    print('-', change.left(), leftLabels);
+                    removedCount++;
+                }
+                case INSERTED -> {
+                    print('+', change.right(), rightLabels);
+                    insertedCount++;
+                }
+                case CHANGED -> {
+                    print('<', change.left(), leftLabels);
+                    print('>', change.right(), rightLabels);
+                    changedCount++;
+                }
+                default -> throw new IllegalStateException(change.kind().name());
+            }
+            after = context;
+        }
+
+        int differences() {
+            return changedCount + removedCount + insertedCount;
+        }
+
+        void summary() {
+            out.printf("%d changed, %d removed, %d inserted\n", changedCount, removedCount, insertedCount);
+            out.flush();
+        }
+
+        private void print(char marker, Instruction instruction, Map<Integer,String> labels) {
+            out.print(marker);
+            out.print(' ');
+            out.print(renderer.render(instruction, labels));
+        }
+
+        /** The address and the nearest label at or before it, or '-' when this side has no instruction here. */
+        private static String where(Instruction instruction, TreeMap<Integer,String> index) {
+            if (instruction == null) {
+                return "-";
+            }
+            Map.Entry<Integer,String> label = index.floorEntry(instruction.address());
+            if (label == null) {
+                return String.format("$%04X", instruction.address());
+            }
+            int distance = instruction.address() - label.getKey();
+            return distance == 0
+                    ? String.format("$%04X %s", instruction.address(), label.getValue())
+                    : String.format("$%04X %s+%d", instruction.address(), label.getValue(), distance);
+        }
+    }
+}
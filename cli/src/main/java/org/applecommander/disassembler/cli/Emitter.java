@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.util.function.Consumer;
+
+import org.applecommander.disassembler.api.Instruction;
+
+/**
+ * An Emitter writes decoded instructions to the output. Notes are the informational lines
+ * that are not instructions, such as the CODEFILE segment and procedure headers.
+ */
+public interface Emitter extends Consumer<Instruction> {
+    /** Write an informational line. */
+    void note(String text);
+    /** Called once all instructions have been emitted. Any buffered output must be flushed. */
+    default void finish() {
+        // nothing buffered by default
+    }
+
+    /** Create an Emitter from a pair of functions. */
+    static Emitter of(Consumer<Instruction> instructions, Consumer<String> notes) {
+        return new Emitter() {
+            @Override
+            public void accept(Instruction instruction) {
+                instructions.accept(instruction);
+            }
+            @Override
+            public void note(String text) {
+                notes.accept(text);
+            }
+        };
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.applecommander.disassembler.api.Disassembler;
+import org.applecommander.disassembler.api.Instruction;
+import org.applecommander.disassembler.api.index.NgramIndex;
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.pcode.InstructionSetPCode;
+import org.applecommander.disassembler.api.symbols.SymbolTable;
+import org.applecommander.disassembler.cli.codefile.AssemblyProcedure;
+import org.applecommander.disassembler.cli.codefile.CodeFile;
+import org.applecommander.disassembler.cli.codefile.PCodeProcedure;
+import org.applecommander.disassembler.cli.codefile.Segment;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+@Command(name = "index", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+         descriptionHeading = "%n",
+         optionListHeading = "%nOptions:%n",
+         description = { "Index the instruction sequences of any number of files for 'search'.",
+                         "CPU, origin and library options go before 'index', for example:",
+                         "  acdasm --6502 index -o disks.idx disks/%n" })
+public class Index implements Callable<Integer> {
+    @ParentCommand
+    private Main main;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = { "-o", "--output" }, required = true, paramLabel = "<index>", description = "Index file to write.")
+    private Path output;
+
+    @Option(names = { "--ngram" }, paramLabel = "<n>",
+            description = "Longest instruction sequence indexed as one term. Default is ${DEFAULT-VALUE}.")
+    private int ngram = 3;
+
+    @Option(names = { "--threads" }, description = "Number of worker threads. Defaults to the number of processors.")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameters(arity = "1..*", description = "Files or directories (searched recursively) to index.")
+    private List<Path> paths;
+
+    @Override
+    public Integer call() throws Exception {
+        SymbolTable symbols = main.selectedSymbols();
+        long[] instructions = { 0 };
+        try (NgramIndex.Builder builder = NgramIndex.builder(ngram)) {
+            List<Path> files = files(paths);
+            int failures = inOrder(files, threads, file -> decode(main, file, symbols), entries -> {
+                for (Entry entry : entries) {
+                    builder.add(entry.name(), entry.instructions());
+                    instructions[0] += entry.instructions().size();
+                }
+            }, spec.commandLine().getErr());
+            builder.write(output);
+            spec.commandLine().getOut().printf("Indexed %,d files, %,d instructions.\n",
+                    files.size() - failures, instructions[0]);
+            return failures == 0 ? 0 : 1;
+        }
+    }
+
+    /** The regular files under the paths, each directory in name order. */
+    static List<Path> files(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            try (Stream<Path> walk = Files.walk(path)) {
+                walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Run the work on every file in parallel, but pass the results to the consumer in file order, so indexes list
+     * hits in file order; only a few files are worked on ahead so the results waiting to be added do not pile up.
+     * Files that fail are reported and skipped.
+     *
+     * @return The number of files that failed.
+     */
+    static <T> int inOrder(List<Path> files, int threads, Function<Path,T> work, ResultConsumer<T> consumer,
+                           PrintWriter err) throws IOException, InterruptedException {
+        int failures = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<T>> results = new ArrayList<>();
+            int ahead = 4 * Math.max(1, threads);
+            for (int i=0; i<files.size(); i++) {
+                while (results.size() < files.size() && results.size() <= i + ahead) {
+                    Path file = files.get(results.size());
+                    results.add(executor.submit(() -> work.apply(file)));
+                }
+                try {
+                    consumer.accept(results.get(i).get());
+                    results.set(i, null);
+                } catch (ExecutionException ex) {
+                    failures++;
+                    err.printf("%s: %s\n", files.get(i), ex.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+
+    interface ResultConsumer<T> {
+        void accept(T result) throws IOException;
+    }
+
+    /** Decode a file with the main options; a CODEFILE gives an entry for each procedure. */
+    static List<Entry> decode(Main main, Path file, SymbolTable symbols) {
+        byte[] code;
+        try {
+            code = Files.readAllBytes(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (!main.isCodeFile()) {
+            return List.of(new Entry(file.toString(), main.decode(code, symbols, new HashMap<>())));
+        }
+        // Each procedure is a separate entry; assembly procedures are indexed as relocated
+        List<Entry> entries = new ArrayList<>();
+        for (Segment segment : CodeFile.load(code).segments()) {
+            if (segment == null) continue;
+            for (Object proc : segment.dictionary()) {
+                switch (proc) {
+                    case PCodeProcedure pcode -> entries.add(new Entry(
+                            String.format("%s (%s, proc #%d)", file, segment.name(), pcode.procNum()),
+                            Disassembler.with(pcode.codeSource()).startingAddress(pcode.enterIC())
+                                    .use(InstructionSetPCode.forApplePascal()).decode()));
+                    case AssemblyProcedure asm -> entries.add(new Entry(
+                            String.format("%s (%s, asm proc #%d)", file, segment.name(), asm.procNum()),
+                            Disassembler.with(asm.relocated()).startingAddress(asm.enterIC())
+                                    .use(InstructionSet6502.for6502()).decode()));
+                    case null, default -> { }
+                }
+            }
+        }
+        return entries;
+    }
+
+    record Entry(String name, List<Instruction> instructions) {}
+}
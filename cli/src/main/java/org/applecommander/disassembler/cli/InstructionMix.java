@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.applecommander.disassembler.api.Disassembler;
+import org.applecommander.disassembler.api.Instruction;
+import org.applecommander.disassembler.api.InstructionSet;
+import org.applecommander.disassembler.api.Program;
+import org.applecommander.disassembler.api.mos6502.AddressMode6502;
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.pcode.InstructionSetPCode;
+import org.applecommander.disassembler.api.switching6502.InstructionSet6502Switching;
+import org.applecommander.disassembler.api.sweet16.InstructionSetSWEET16;
+import org.applecommander.disassembler.api.z80.InstructionSetZ80;
+
+/**
+ * Instruction mix counters for one input: opcodes (per opcode table, so Z80 prefixes and SWEET16 are
+ * separate), 6502 address modes, p-code standard procedure (CSP) calls and library label references.
+ * Instructions are counted as they are decoded and never collected. Each worker fills its own
+ * {@code InstructionMix} and adds it to the shared {@link Totals}, which are lock-free.
+ */
+final class InstructionMix {
+    /** Opcode tables. Z80 instructions are counted in the table selected by their prefix bytes. */
+    enum Table {
+        MOS6502("6502"), SWEET16("SWEET16"), Z80("Z80"), Z80_CB("Z80 CB"), Z80_ED("Z80 ED"),
+        Z80_DD("Z80 DD"), Z80_FD("Z80 FD"), Z80_DDCB("Z80 DDCB"), Z80_FDCB("Z80 FDCB"), PCODE("p-code"),
+        OTHER("other");
+
+        private final String label;
+
+        Table(String label) {
+            this.label = label;
+        }
+    }
+    private static final int TABLE_SIZE = 256;
+    private static final int CSP = 0x9e;
+    /** Address modes for the 6502 half of the switching instruction set. */
+    private static final InstructionSet6502 MOS6502 = InstructionSet6502.for6502();
+
+    private final Labels labels;
+    private final long[] opcodes = new long[Table.values().length * TABLE_SIZE];
+    private final String[] opcodeNames = new String[opcodes.length];
+    private final long[] addressModes = new long[AddressMode6502.values().length];
+    private final long[] csp = new long[256];
+    private final String[] cspNames = new String[csp.length];
+    private final long[] labelHits;
+    private long files;
+    private long instructions;
+    private long bytes;
+
+    InstructionMix(Labels labels) {
+        this.labels = labels;
+        this.labelHits = new long[labels.size()];
+    }
+
+    /** Decode the program and count every instruction. */
+    void add(InstructionSet instructionSet, Program program) {
+        switch (instructionSet) {
+            case InstructionSet6502 mos6502 -> mos6502.decode(program, i -> count6502(mos6502, i));
+            case InstructionSetSWEET16 sweet16 -> sweet16.decode(program, i -> count(Table.SWEET16, i));
+            case InstructionSet6502Switching switching -> {
+                // The switching set marks each change of CPU with a pseudo instruction
+                boolean[] sweet16 = { false };
+                switching.decode(program, i -> {
+                    switch (i.mnemonic()) {
+                        case ".SWEET16" -> sweet16[0] = true;
+                        case ".6502" -> sweet16[0] = false;
+                        default -> {
+                            if (sweet16[0]) count(Table.SWEET16, i);
+                            else count6502(MOS6502, i);
+                        }
+                    }
+                });
+            }
+            case InstructionSetZ80 z80 -> z80.decode(program, this::countZ80);
+            case InstructionSetPCode pcode -> pcode.decode(program, this::countPCode);
+            default -> instructionSet.decode(program, i -> count(Table.OTHER, i));
+        }
+    }
+
+    /** Count one input file. */
+    void addFile() {
+        files++;
+    }
+
+    private void count6502(InstructionSet6502 instructionSet, Instruction instruction) {
+        int op = instruction.code()[0] & 0xff;
+        addressModes[instructionSet.addressMode(op).ordinal()]++;
+        count(Table.MOS6502, op, instruction);
+    }
+    private void countZ80(Instruction instruction) {
+        byte[] code = instruction.code();
+        int b0 = code[0] & 0xff;
+        int b1 = code.length > 1 ? code[1] & 0xff : -1;
+        if (b0 == 0xcb && b1 >= 0) count(Table.Z80_CB, b1, instruction);
+        else if (b0 == 0xed && b1 >= 0) count(Table.Z80_ED, b1, instruction);
+        else if ((b0 == 0xdd || b0 == 0xfd) && b1 == 0xcb && code.length > 3) {
+            count(b0 == 0xdd ? Table.Z80_DDCB : Table.Z80_FDCB, code[3] & 0xff, instruction);
+        }
+        else if ((b0 == 0xdd || b0 == 0xfd) && b1 >= 0) {
+            count(b0 == 0xdd ? Table.Z80_DD : Table.Z80_FD, b1, instruction);
+        }
+        else count(Table.Z80, b0, instruction);
+    }
+    private void countPCode(Instruction instruction) {
+        byte[] code = instruction.code();
+        if ("J/T".equals(instruction.mnemonic())) {
+            return;     // jump table entries are data
+        }
+        int op = code[0] & 0xff;
+        if (op == CSP && code.length > 1) {
+            int routine = code[1] & 0xff;
+            csp[routine]++;
+            if (cspNames[routine] == null) cspNames[routine] = instruction.mnemonic();
+        }
+        // Name the opcode itself; the instruction mnemonic may include a type or procedure name
+        int index = Table.PCODE.ordinal() * TABLE_SIZE + op;
+        if (opcodeNames[index] == null) opcodeNames[index] = InstructionSetPCode.mnemonic(op);
+        count(Table.PCODE, op, instruction);
+    }
+    private void count(Table table, Instruction instruction) {
+        count(table, instruction.code()[0] & 0xff, instruction);
+    }
+    private void count(Table table, int op, Instruction instruction) {
+        int index = table.ordinal() * TABLE_SIZE + op;
+        opcodes[index]++;
+        if (opcodeNames[index] == null) opcodeNames[index] = instruction.mnemonic();
+        instructions++;
+        bytes += instruction.code().length;
+        int address = instruction.addressRefValue();
+        if (address != Instruction.NO_ADDRESS) {
+            int label = labels.indexOf(address);
+            if (label >= 0) labelHits[label]++;
+        }
+    }
+
+    /** The library labels being counted, indexed densely for the counters. */
+    static final class Labels {
+        private final int[] index = new int[0x10000];
+        private final List<Integer> addresses = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final Map<String,Map<Integer,String>> groups = new LinkedHashMap<>();
+
+        Labels(List<String> groupNames) {
+            Arrays.fill(index, -1);
+            for (String groupName : groupNames) {
+                Map<Integer,String> group = Disassembler.labelGroup(groupName);
+                groups.put(groupName, group);
+                group.forEach((address, name) -> {
+                    if (address >= 0 && address < index.length && index[address] < 0) {
+                        index[address] = addresses.size();
+                        addresses.add(address);
+                        names.add(name);
+                    }
+                });
+            }
+        }
+        int indexOf(int address) {
+            return address >= 0 && address < index.length ? index[address] : -1;
+        }
+        int size() {
+            return addresses.size();
+        }
+    }
+
+    /** Totals across all inputs; {@link #add(InstructionMix)} may be called from any thread without locking. */
+    static final class Totals {
+        private final Labels labels;
+        private final AtomicLongArray opcodes = new AtomicLongArray(Table.values().length * TABLE_SIZE);
+        private final AtomicReferenceArray<String> opcodeNames = new AtomicReferenceArray<>(opcodes.length());
+        private final AtomicLongArray addressModes = new AtomicLongArray(AddressMode6502.values().length);
+        private final AtomicLongArray csp = new AtomicLongArray(256);
+        private final AtomicReferenceArray<String> cspNames = new AtomicReferenceArray<>(csp.length());
+        private final AtomicLongArray labelHits;
+        /** files, instructions, bytes */
+        private final AtomicLongArray totals = new AtomicLongArray(3);
+
+        Totals(Labels labels) {
+            this.labels = labels;
+            this.labelHits = new AtomicLongArray(labels.size());
+        }
+        Labels labels() {
+            return labels;
+        }
+
+        void add(InstructionMix mix) {
+            add(opcodes, opcodeNames, mix.opcodes, mix.opcodeNames);
+            add(addressModes, null, mix.addressModes, null);
+            add(csp, cspNames, mix.csp, mix.cspNames);
+            add(labelHits, null, mix.labelHits, null);
+            totals.addAndGet(0, mix.files);
+            totals.addAndGet(1, mix.instructions);
+            totals.addAndGet(2, mix.bytes);
+        }
+        private static void add(AtomicLongArray totals, AtomicReferenceArray<String> totalNames,
+                                long[] counts, String[] names) {
+            for (int i=0; i<counts.length; i++) {
+                if (counts[i] != 0) {
+                    totals.addAndGet(i, counts[i]);
+                    if (totalNames != null) totalNames.compareAndSet(i, null, names[i]);
+                }
+            }
+        }
+
+        void report(PrintWriter out, int top) {
+            long instructions = totals.get(1);
+            out.printf("Files: %,d  Bytes: %,d  Instructions: %,d\n", totals.get(0), totals.get(2), instructions);
+
+            List<Integer> ops = nonZero(opcodes);
+            out.printf("\nOpcodes (top %d of %d):\n", Math.min(top, ops.size()), ops.size());
+            for (int i : ops.subList(0, Math.min(top, ops.size()))) {
+                out.printf("  %-9s %02X  %-8s %,12d %6.2f%%\n", Table.values()[i / TABLE_SIZE].label,
+                        i % TABLE_SIZE, opcodeNames.get(i), opcodes.get(i), percent(opcodes.get(i), instructions));
+            }
+
+            List<Integer> modes = nonZero(addressModes);
+            if (!modes.isEmpty()) {
+                out.println("\nAddress modes (6502):");
+                for (int i : modes) {
+                    out.printf("  %-9s %,12d %6.2f%%\n", AddressMode6502.values()[i], addressModes.get(i),
+                            percent(addressModes.get(i), instructions));
+                }
+            }
+
+            List<Integer> calls = nonZero(csp);
+            if (!calls.isEmpty()) {
+                out.println("\nStandard procedure calls (p-code CSP):");
+                for (int i : calls) {
+                    out.printf("  %3d %-6s %,12d\n", i, cspNames.get(i), csp.get(i));
+                }
+            }
+
+            if (labels.size() > 0) {
+                out.println("\nLibrary label references by group:");
+                labels.groups.forEach((name, group) -> {
+                    long hits = 0;
+                    for (int i=0; i<labels.size(); i++) {
+                        if (group.containsKey(labels.addresses.get(i))) hits += labelHits.get(i);
+                    }
+                    out.printf("  %-12s %,12d\n", name, hits);
+                });
+                List<Integer> hit = nonZero(labelHits);
+                out.printf("\nLibrary labels (top %d of %d referenced):\n", Math.min(top, hit.size()), hit.size());
+                for (int i : hit.subList(0, Math.min(top, hit.size()))) {
+                    out.printf("  %-12s $%04X %,12d\n", labels.names.get(i), labels.addresses.get(i), labelHits.get(i));
+                }
+            }
+            out.flush();
+        }
+
+        /** Indexes of the non-zero counters, largest count first. */
+        private static List<Integer> nonZero(AtomicLongArray counts) {
+            List<Integer> indexes = new ArrayList<>();
+            for (int i=0; i<counts.length(); i++) {
+                if (counts.get(i) != 0) indexes.add(i);
+            }
+            indexes.sort((a, b) -> Long.compare(counts.get(b), counts.get(a)));
+            return indexes;
+        }
+        private static double percent(long count, long total) {
+            return total == 0 ? 0.0 : 100.0 * count / total;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import picocli.CommandLine;
+
+/**
+ * Runs one acdasm command line in-process against bytes already in memory, capturing what it writes.
+ * Each invocation has its own {@code Main} and {@code CommandLine}; the instruction set tables and
+ * library label groups are static and shared by all of them.
+ */
+final class Invocation {
+    private Invocation() {
+        // Prevent construction
+    }
+
+    static Result run(List<String> args, byte[] input) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream outStream = new PrintStream(out, false, StandardCharsets.UTF_8);
+        PrintWriter errWriter = new PrintWriter(new PrintStream(err, false, StandardCharsets.UTF_8));
+
+        CommandLine cl = Main.commandLine(new Main(outStream, input));
+        cl.setOut(new PrintWriter(outStream));
+        cl.setErr(errWriter);
+        int exitCode = cl.execute(args.toArray(String[]::new));
+        cl.getOut().flush();
+        errWriter.flush();
+        return new Result(exitCode, out.toByteArray(), err.toByteArray());
+    }
+
+    record Result(int exitCode, byte[] out, byte[] err) {}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.applecommander.disassembler.api.Instruction;
+
+/**
+ * Writes one JSON object per line (JSON Lines). Each instruction is written as it is received:
+ * <pre>
+ * {"address":768,"bytes":"20EDFD","mnemonic":"JSR","operands":["$FDED"],"target":65005,"targetLabel":"COUT"}
+ * </pre>
+ * The {@code label}, {@code target}, {@code targetLabel} and {@code description} fields are only present
+ * when they apply. Notes are written as <code>{"note":"..."}</code>.
+ */
+public class JsonLinesEmitter implements Emitter {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Writer out;
+    private final Map<Integer,String> labels;
+    private final boolean descriptions;
+
+    public JsonLinesEmitter(OutputStream out, Map<Integer,String> labels, boolean descriptions) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        this.labels = labels;
+        this.descriptions = descriptions;
+    }
+
+    @Override
+    public void accept(Instruction instruction) {
+        try {
+            out.write("{\"address\":");
+            out.write(Integer.toString(instruction.address()));
+            out.write(",\"bytes\":\"");
+            for (byte b : instruction.code()) {
+                out.write(HEX[(b >> 4) & 0x0f]);
+                out.write(HEX[b & 0x0f]);
+            }
+            out.write('"');
+            String label = labels.get(instruction.address());
+            if (label != null) {
+                out.write(",\"label\":");
+                string(label);
+            }
+            out.write(",\"mnemonic\":");
+            string(instruction.mnemonic());
+            out.write(",\"operands\":[");
+            boolean first = true;
+            for (Instruction.Operand operand : instruction.operands()) {
+                if (!first) out.write(',');
+                string(operand.format());
+                first = false;
+            }
+            out.write(']');
+            int target = instruction.addressRefValue();
+            if (target != Instruction.NO_ADDRESS) {
+                out.write(",\"target\":");
+                out.write(Integer.toString(target));
+                String targetLabel = labels.get(target);
+                if (targetLabel != null) {
+                    out.write(",\"targetLabel\":");
+                    string(targetLabel);
+                }
+            }
+            String description = descriptions ? instruction.descriptionOrNull() : null;
+            if (description != null) {
+                out.write(",\"description\":");
+                string(description);
+            }
+            out.write("}\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void note(String text) {
+        try {
+            out.write("{\"note\":");
+            string(text);
+            out.write("}\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void finish() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void string(String value) throws IOException {
+        out.write('"');
+        for (int i=0; i<value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (ch < 0x20) {
+                        out.write("\\u00");
+                        out.write(HEX[(ch >> 4) & 0x0f]);
+                        out.write(HEX[ch & 0x0f]);
+                    } else {
+                        out.write(ch);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -16,37 +16,48 @@
  */
 package org.applecommander.disassembler.cli;
 
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.function.BiConsumer;
-import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import org.applecommander.disassembler.api.Disassembler;
 import org.applecommander.disassembler.api.Instruction;
 import org.applecommander.disassembler.api.InstructionSet;
+import org.applecommander.disassembler.api.ListingRenderer;
 import org.applecommander.disassembler.api.Program;
+import org.applecommander.disassembler.api.RegionClassifier;
+import org.applecommander.disassembler.api.SignatureLibrary;
 import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
 import org.applecommander.disassembler.api.pcode.InstructionSetPCode;
 import org.applecommander.disassembler.api.sweet16.InstructionSetSWEET16;
+import org.applecommander.disassembler.api.symbols.SymbolCache;
+import org.applecommander.disassembler.api.symbols.SymbolTable;
 import org.applecommander.disassembler.api.switching6502.InstructionSet6502Switching;
 import org.applecommander.disassembler.api.z80.InstructionSetZ80;
 import org.applecommander.disassembler.cli.codefile.AssemblyProcedure;
 import org.applecommander.disassembler.cli.codefile.CodeFile;
 import org.applecommander.disassembler.cli.codefile.PCodeProcedure;
 import org.applecommander.disassembler.cli.codefile.Segment;
+import org.applecommander.disassembler.cli.jfr.EmitEvent;
+import org.applecommander.disassembler.cli.jfr.ProcedureEvent;
+import org.applecommander.disassembler.cli.jfr.SegmentEvent;
 import picocli.CommandLine;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Help.*;
 
 import static picocli.CommandLine.Model.UsageMessageSpec.*;
@@ -54,10 +65,13 @@ import static picocli.CommandLine.Model.UsageMessageSpec.*;
 @Command(name = "acdasm", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
          descriptionHeading = "%n",
          optionListHeading = "%nOptions:%n",
+         commandListHeading = "%nCommands:%n",
+         subcommands = { Analyze.class, Calls.class, Cfg.class, Diff.class, Index.class, RoutineIndex.class, Search.class,
+                         Similar.class },
          description = "AppleCommander Disassembler.%n")
 public class Main implements Callable<Integer> {
     @Option(names = "--debug", description = "Print stack traces")
-    public static boolean debug;
+    boolean debug;
 
     @Option(names = { "-a", "--addr", "--origin" }, converter = IntegerTypeConverter.class,
             description = "Set start address for application.")
@@ -72,30 +86,98 @@ public class Main implements Callable<Integer> {
     private int length;
     
     @Option(names = { "--labels" }, negatable = true, description = "Show or hide labels.")
-    public void selectLabelEmitter(boolean flag) {
-        emitter = flag ? this::emitWithLabels : this::emitRaw;
+    public void selectLabels(boolean flag) {
+        showLabels = flag;
     }
-    private Consumer<Instruction> emitter = this::emitWithLabels;
+    private boolean showLabels = true;
+
+    @Option(names = { "--format" }, paramLabel = "<format>",
+            description = "Output format: ${COMPLETION-CANDIDATES}. Default is ${DEFAULT-VALUE}.")
+    private Format format = Format.TEXT;
     
+    @Option(names = { "--layout" }, paramLabel = "<template>", description =
+            "Text listing layout from {address}, {bytes}, {label}, {mnemonic}, {operands} and {description}; " +
+            "a field may add a width, as in {label:10} or {label:10.10} to also cut it.")
+    private String layout;
+
     @Option(names = { "-l", "--library" }, split = ",", paramLabel = "<library>", description =
             "Select which library labels to load. Each CPU has a default set. " +
             "Use 'All' to select all. 'None' may also be used to turn library labels off.")
     private List<String> libraries;
 
+    @Option(names = { "--symbols" }, split = ",", paramLabel = "<file>", description =
+            "Import labels from symbol files: Merlin equates, ca65 .dbg, VICE labels or SourceGen .sym65. " +
+            "Earlier files win, and all of them win over library labels.")
+    private List<Path> symbolFiles;
+    private SymbolTable symbols = SymbolTable.EMPTY;
+
     @ArgGroup(heading = "%nCPU Selection:%n")
     private final CpuSelection cpuSelection = new CpuSelection();
 
     @Option(names = { "--descriptions" }, negatable = true, description = "Include opcode descriptions.")
     private Boolean descriptions;
+
+    @Option(names = { "--data-regions" }, negatable = true, description =
+            "Emit likely text, address tables and fills as data (6502 family only). Default is off: " +
+            "a region misread as data hides its code, and the heuristics are not yet proven on real images.")
+    private Boolean dataRegions;
+
+    @Option(names = { "--signatures" }, negatable = true,
+            description = "Label known routines found by signature, even when relocated. Default is on for the 6502 family.")
+    private Boolean signatures;
     
-    @Parameters(arity = "1", description = "File to disassemble.")
+    @Option(names = { "--stats" }, arity = "0..1", paramLabel = "<format>",
+            parameterConsumer = Stats.FormatConsumer.class,
+            description = "Print time, allocation and throughput by phase to stderr: ${COMPLETION-CANDIDATES}.")
+    private Stats.Format statsFormat;
+
+    @Option(names = { "--daemon" }, paramLabel = "<socket>",
+            description = "Serve disassembly requests on a Unix domain socket.")
+    private Path daemonSocket;
+
+    @Option(names = { "--connect" }, paramLabel = "<socket>",
+            description = "Send this request to a daemon listening on the socket.")
+    private Path connectSocket;
+
+    @Option(names = { "--serve" }, paramLabel = "<port>",
+            description = "Serve disassembly requests over HTTP on localhost.")
+    private Integer servePort;
+
+    @Parameters(arity = "0..1", description = "File to disassemble.")
     private Path file;
 
+    @Spec
+    private CommandSpec spec;
+
     // Locals
     private final Map<Integer,String> labels = new HashMap<>();
+    private final PrintStream out;
+    private final byte[] input;
+    private Emitter emitter;
+    private ListingRenderer renderer;
+    private Stats stats = Stats.disabled();
+
+    public Main() {
+        this(System.out, null);
+    }
+    /** Write to the given stream and disassemble the given bytes instead of a file. */
+    Main(PrintStream out, byte[] input) {
+        this.out = out;
+        this.input = input;
+    }
     
     public static void main(String[] args) {
-        CommandLine cl = new CommandLine(new Main());
+        int exitCode = commandLine().execute(args);
+        System.exit(exitCode);
+    }
+
+    /** Create a fully configured command line. */
+    static CommandLine commandLine() {
+        return commandLine(new Main());
+    }
+    static CommandLine commandLine(Main main) {
+        CommandLine cl = new CommandLine(main);
+        cl.setCaseInsensitiveEnumValuesAllowed(true);
         cl.getHelpSectionMap().put(SECTION_KEY_FOOTER, help -> {
             StringWriter sw = new StringWriter();
             PrintWriter pw = new PrintWriter(sw);
@@ -128,16 +210,32 @@ public class Main implements Callable<Integer> {
             pw.printf("  %s\n", String.join(", ", Disassembler.labelGroups()));
             return sw.toString();
         });
-        cl.setExecutionExceptionHandler(new PrintExceptionMessageHandler());
-
-        int exitCode = cl.execute(args);
-        System.exit(exitCode);
+        cl.setExecutionExceptionHandler(new PrintExceptionMessageHandler(main));
+        return cl;
     }
 
     @Override
     public Integer call() throws Exception {
         final int MAX_ADDRESS = 0xFFFF;
 
+        if (input != null && (daemonSocket != null || connectSocket != null || servePort != null)) {
+            throw new IllegalArgumentException("--daemon, --connect and --serve are not available in a request.");
+        }
+        if (daemonSocket != null) {
+            Daemon.serve(daemonSocket, debug);
+            return 0;
+        }
+        if (servePort != null) {
+            Service.serve(servePort);
+            return 0;
+        }
+        if (input == null && file == null) {
+            throw new ParameterException(spec.commandLine(), "Missing required parameter: '<file>'");
+        }
+        if (connectSocket != null) {
+            return Daemon.connect(connectSocket, forwardedArgs(), Files.readAllBytes(file), out, System.err);
+        }
+
         if (startAddress == null) {
             startAddress = cpuSelection.instructionSet.defaults().startAddress();
         }
@@ -147,48 +245,180 @@ public class Main implements Callable<Integer> {
             throw new IllegalArgumentException(errormsg);
         }
 
-        final byte[] code = Files.readAllBytes(file);
+        if (statsFormat != null) {
+            stats = Stats.enabled();
+        }
+
+        stats.start("read");
+        final byte[] code = input != null ? input : Files.readAllBytes(file);
+        stats.end("read");
 
         if (offset < 0 || offset > code.length) {
             String errormsg = String.format("offset(%d) is out of range(0-%d).", offset, code.length);
             throw new IllegalArgumentException(errormsg);
         }
 
-        // CPU library labels defaults:
-        if (libraries == null) {
-            libraries = cpuSelection.instructionSet.defaults().libraryLabels();
-        }
-        // Remap the keywords:  (note: Most libraries will be defined with "List.of('All|None')" which is immutable)
-        if (libraries.contains("All")) {
-            libraries = new ArrayList<>();
-            libraries.addAll(Disassembler.labelGroups());
-        }
-        else if (libraries.contains("None")) {
-            libraries = new ArrayList<>();
+        libraries = selectedLibraries();
+        if (symbolFiles != null) {
+            stats.start("load-symbols");
+            symbols = selectedSymbols();
+            stats.end("load-symbols");
         }
 
         if (descriptions == null) {
             descriptions = cpuSelection.instructionSet.defaults().includeDescription();
         }
 
-        switch (this.cpuSelection.type) {
-            case ASSEMBLY -> disassemble(code);
-            case CODEFILE -> disassemble(CodeFile.load(code));
+        if (layout == null) {
+            layout = showLabels ? ListingRenderer.LABELED : ListingRenderer.RAW;
+        }
+        ListingRenderer.compile(layout, 0);     // report layout errors before decoding
+        emitter = switch (format) {
+            case TEXT -> Emitter.of(this::emitText, out::println);
+            case JSONL -> new JsonLinesEmitter(out, showLabels ? labels : Map.of(), descriptions);
+            case BINARY -> new BinaryEmitter(out, showLabels ? labels : Map.of(), descriptions);
+        };
+        try {
+            switch (this.cpuSelection.type) {
+                case ASSEMBLY -> disassemble(code);
+                case CODEFILE -> {
+                    stats.start("load-codefile");
+                    CodeFile codeFile = CodeFile.load(code);
+                    stats.end("load-codefile");
+                    disassemble(codeFile);
+                }
+            }
+        } finally {
+            stats.start("emit");
+            emitter.finish();
+            stats.end("emit");
+        }
+        if (statsFormat != null) {
+            stats.report(statsFormat, spec.commandLine().getErr());
         }
 
         return 0;
     }
 
+    /** Where parsed files are cached between runs: {@code $XDG_CACHE_HOME/acdasm}, else {@code ~/.cache/acdasm}. */
+    static Path cacheDirectory() {
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        Path base = xdg != null && !xdg.isBlank() ? Path.of(xdg) : Path.of(System.getProperty("user.home"), ".cache");
+        return base.resolve("acdasm");
+    }
+
+    /** The library label groups: the CPU defaults unless given, with 'All' and 'None' expanded. */
+    List<String> selectedLibraries() {
+        // CPU library labels defaults:
+        List<String> names = libraries != null ? libraries : cpuSelection.instructionSet.defaults().libraryLabels();
+        // Remap the keywords:  (note: Most libraries will be defined with "List.of('All|None')" which is immutable)
+        if (names.contains("All")) {
+            return new ArrayList<>(Disassembler.labelGroups());
+        }
+        else if (names.contains("None")) {
+            return new ArrayList<>();
+        }
+        return names;
+    }
+    /** The symbol files given, loaded through the cache, or an empty table. */
+    SymbolTable selectedSymbols() throws IOException {
+        if (symbolFiles == null) {
+            return SymbolTable.EMPTY;
+        }
+        return SymbolTable.load(symbolFiles, SymbolCache.directory(cacheDirectory().resolve("symbols")));
+    }
+    /** Decode the code the way the listing does, but with a new instance of the selected instruction set. */
+    List<Instruction> decode(byte[] code, SymbolTable symbols, Map<Integer,String> labels) {
+        return Disassembler.with(code)
+                .startingAddress(selectedStartAddress())
+                .bytesToSkip(offset)
+                .bytesToDecode(length)
+                .use(newInstructionSet())
+                .dataRegions(regionClassifier())
+                .signatures(signatureLibrary())
+                .symbols(symbols)
+                .section(selectedLibraries())
+                .decode(labels);
+    }
+    /** A new instance of the selected instruction set; needed per thread since some keep state. */
+    InstructionSet newInstructionSet() {
+        return cpuSelection.factory.get();
+    }
+    boolean isCodeFile() {
+        return cpuSelection.type == CpuSelection.Type.CODEFILE;
+    }
+    /** The start address given, or the default for the selected CPU. */
+    int selectedStartAddress() {
+        return startAddress != null ? startAddress : cpuSelection.instructionSet.defaults().startAddress();
+    }
+
+    /**
+     * The original arguments without '--connect' and the file name, which the daemon does not need, and with symbol
+     * files as absolute paths.
+     */
+    private List<String> forwardedArgs() {
+        CommandLine.ParseResult parseResult = spec.commandLine().getParseResult();
+        List<String> args = new ArrayList<>();
+        for (Iterator<String> it = parseResult.originalArgs().iterator(); it.hasNext(); ) {
+            String arg = it.next();
+            if ("--connect".equals(arg) || "--symbols".equals(arg)) {
+                it.next();
+            }
+            else if (!arg.startsWith("--connect=") && !arg.startsWith("--symbols=")) {
+                args.add(arg);
+            }
+        }
+        args.remove(args.lastIndexOf(parseResult.matchedPositional(0).originalStringValues().get(0)));
+        // The daemon resolves paths from its own directory
+        if (symbolFiles != null) {
+            args.add("--symbols=" + String.join(",",
+                    symbolFiles.stream().map(path -> path.toAbsolutePath().toString()).toList()));
+        }
+        return args;
+    }
+
+    private RegionClassifier regionClassifier() {
+        if (cpuSelection.get() instanceof InstructionSet6502 instructionSet && Boolean.TRUE.equals(dataRegions)) {
+            return RegionClassifier.for6502(instructionSet);
+        }
+        return null;
+    }
+
+    private SignatureLibrary signatureLibrary() {
+        boolean family6502 = cpuSelection.get() instanceof InstructionSet6502
+                || cpuSelection.get() instanceof InstructionSet6502Switching;
+        return family6502 && !Boolean.FALSE.equals(signatures) ? SignatureLibrary.defaults() : null;
+    }
+
     public void disassemble(byte[] code) {
-        List<Instruction> assembly = Disassembler.with(code)
+        disassemble(Disassembler.with(code));
+    }
+
+    private void disassemble(Disassembler.Builder disassembler) {
+        List<Instruction> assembly = disassembler
                 .startingAddress(startAddress)
                 .bytesToSkip(offset)
                 .bytesToDecode(length)
                 .use(cpuSelection.get())
+                .dataRegions(regionClassifier())
+                .signatures(signatureLibrary())
+                .symbols(symbols)
                 .section(libraries)
+                .listener(stats)
                 .decode(labels);
+        stats.count(assembly);
 
+        stats.start("emit");
+        EmitEvent emitEvent = new EmitEvent();
+        emitEvent.begin();
         assembly.forEach(emitter);
+        emitEvent.end();
+        if (emitEvent.shouldCommit()) {
+            emitEvent.format = format.name();
+            emitEvent.instructions = assembly.size();
+            emitEvent.commit();
+        }
+        stats.end("emit");
     }
 
     public void disassemble(CodeFile codeFile) {
@@ -196,7 +426,7 @@ public class Main implements Callable<Integer> {
         offset = 0;
         length = 0;
         if (codeFile.comment() != null && !codeFile.comment().isEmpty()) {
-            System.out.printf("Comment:  %s\n", codeFile.comment());
+            emitter.note(String.format("Comment:  %s", codeFile.comment()));
         }
         for (Segment segment : codeFile.segments()) {
             if (segment != null) disassemble(segment);
@@ -204,44 +434,73 @@ public class Main implements Callable<Integer> {
     }
 
     public void disassemble(Segment segment) {
-        System.out.printf(">> Seg #%02d: FROM=$%04x, TO=$%04x, N='%s', %-10s, T=$%04x, M=%-10s, Ver=%d\n",
+        emitter.note(String.format(">> Seg #%02d: FROM=$%04x, TO=$%04x, N='%s', %-10s, T=$%04x, M=%-10s, Ver=%d",
                 segment.segNum(), segment.data().position(), segment.data().limit(), segment.name(),
-                segment.kind(), segment.textAddr(), segment.machineType(), segment.version());
+                segment.kind(), segment.textAddr(), segment.machineType(), segment.version()));
         if (segment.textInterface() != null && !segment.textInterface().isEmpty()) {
-            System.out.println(">  Interface text:");
-            System.out.println(segment.textInterface().indent(5));
+            emitter.note(">  Interface text:");
+            emitter.note(segment.textInterface().indent(5));
         }
+        SegmentEvent segmentEvent = new SegmentEvent();
+        segmentEvent.begin();
         for (var proc : segment.dictionary()) {
             if (proc == null) {
-                System.out.println(">  Invalid procedure header.");
+                emitter.note(">  Invalid procedure header.");
                 continue;
             }
+            ProcedureEvent procedureEvent = new ProcedureEvent();
+            procedureEvent.begin();
             switch (proc) {
-                case PCodeProcedure pcode -> disassemble(pcode);
-                case AssemblyProcedure asm -> disassemble(asm);
+                case PCodeProcedure pcode -> {
+                    disassemble(pcode);
+                    procedureEvent.procNum = pcode.procNum();
+                    procedureEvent.type = "p-code";
+                    procedureEvent.bytes = pcode.jumpTable() - pcode.enterIC();
+                }
+                case AssemblyProcedure asm -> {
+                    disassemble(asm);
+                    procedureEvent.procNum = asm.procNum();
+                    procedureEvent.type = "assembly";
+                    procedureEvent.bytes = asm.endIC() - asm.enterIC();
+                }
                 default -> throw new RuntimeException("Unexpected procedure type: " + proc.getClass().getName());
             }
+            procedureEvent.end();
+            if (procedureEvent.shouldCommit()) {
+                procedureEvent.segNum = segment.segNum();
+                procedureEvent.commit();
+            }
+        }
+        segmentEvent.end();
+        if (segmentEvent.shouldCommit()) {
+            segmentEvent.segNum = segment.segNum();
+            segmentEvent.name = segment.name();
+            segmentEvent.kind = segment.kind().name();
+            segmentEvent.machineType = segment.machineType().name();
+            segmentEvent.procedures = segment.dictionary().length;
+            segmentEvent.commit();
         }
     }
 
     public void disassemble(PCodeProcedure pcode) {
-        System.out.printf(">  Proc#%d, Lex Lvl %d, Enter $%04x, Exit $%04x, Param %d, Data %d, JTAB=$%04x\n",
+        emitter.note(String.format(">  Proc#%d, Lex Lvl %d, Enter $%04x, Exit $%04x, Param %d, Data %d, JTAB=$%04x",
                 pcode.procNum(), pcode.lexLevel(), pcode.enterIC(), pcode.exitIC(),
-                pcode.paramsSize(), pcode.dataSize(), pcode.jumpTable());
+                pcode.paramsSize(), pcode.dataSize(), pcode.jumpTable()));
         cpuSelection.instructionSet = InstructionSetPCode.forApplePascal();
         startAddress = pcode.enterIC();
-        disassemble(pcode.codeBytes());
+        disassemble(Disassembler.with(pcode.codeSource()));
     }
 
     public void disassemble(AssemblyProcedure asm) {
-        System.out.printf(">  ASM Proc, Relocation Segment #%d, Enter $%04x\n",
-                asm.relocSegNum(), asm.enterIC());
+        emitter.note(String.format(">  ASM Proc, Relocation Segment #%d, Enter $%04x",
+                asm.relocSegNum(), asm.enterIC()));
 
         BiConsumer<int[], String> formatter = (table, name) -> {
             if (table.length > 0) {
-                System.out.printf("\t%s-relative relocation table: ", name);
-                for (int addr : table) System.out.printf("$%04X ", addr);
-                System.out.println();
+                StringBuilder sb = new StringBuilder();
+                sb.append(String.format("\t%s-relative relocation table: ", name));
+                for (int addr : table) sb.append(String.format("$%04X ", addr));
+                emitter.note(sb.toString());
             }
         };
         formatter.accept(asm.baseRelativeReloc(), "base");
@@ -249,128 +508,64 @@ public class Main implements Callable<Integer> {
         formatter.accept(asm.procRelativeReloc(), "procedure");
         formatter.accept(asm.interpRelativeReloc(), "interpreter");
 
-        var bb = ByteBuffer.wrap(asm.codeBytes());
-        bb.order(ByteOrder.LITTLE_ENDIAN);
-        for (int addr : asm.procRelativeReloc()) {
-            int offset = addr - asm.enterIC();
-            bb.putShort(offset, (short) (bb.getShort(offset) + asm.endIC()));
-        }
-
         cpuSelection.instructionSet = InstructionSet6502.for6502();
         startAddress = asm.enterIC();
-        disassemble(bb.array());
+        disassemble(Disassembler.with(asm.relocated()));
     }
 
-    public void emitWithLabels(Instruction instruction) {
-        int bytesPerLine = cpuSelection.instructionSet.defaults().bytesPerInstruction();
-        System.out.printf("%04X- ", instruction.address());
-        
-        byte[] code = instruction.code();
-        for (int i=0; i<bytesPerLine; i++) {
-            if (i >= code.length) {
-                System.out.print("   ");
-            } else {
-                System.out.printf("%02X ", code[i]);
-            }
-        }
-        System.out.printf(" %-10.10s ", labels.getOrDefault(instruction.address(), ""));
-        System.out.printf("%-5s ", instruction.mnemonic());
-        System.out.printf("%-30s ", instruction.operands().stream().map(operand -> {
-                if (operand.address().isPresent() && labels.containsKey(operand.address().get())) {
-                    return operand.format(labels.get(operand.address().get()));
-                }
-                else {
-                    return operand.format();
-                }
-            })
-            .collect(Collectors.joining(",")));
-        if (descriptions) {
-            instruction.description().ifPresent(description -> {
-                System.out.printf("; %s", description);
-            });
-        }
-        System.out.println();
-
-        if (code.length > bytesPerLine) {
-            for (int i=bytesPerLine; i<code.length; i++) {
-                if (i % bytesPerLine == 0) {
-                    if (i > bytesPerLine) System.out.println();
-                    System.out.printf("%04X- ", instruction.address()+i);
-                }
-                System.out.printf("%02X ", code[i]);
-            }
-            System.out.println();
-        }
-    }
-    public void emitRaw(Instruction instruction) {
+    /** Write an instruction as text, in the selected layout. */
+    public void emitText(Instruction instruction) {
         int bytesPerLine = cpuSelection.instructionSet.defaults().bytesPerInstruction();
-        System.out.printf("%04X- ", instruction.address());
-        
-        byte[] code = instruction.code();
-        for (int i=0; i<bytesPerLine; i++) {
-            if (i >= code.length) {
-                System.out.print("   ");
-            } else {
-                System.out.printf("%02X ", code[i]);
-            }
+        if (renderer == null || renderer.bytesPerLine() != bytesPerLine) {
+            renderer = ListingRenderer.compile(layout, bytesPerLine, descriptions);
         }
-        System.out.printf(" %-5s ", instruction.mnemonic());
-        System.out.printf("%-30s", instruction.operands().stream().map(Instruction.Operand::format)
-                .collect(Collectors.joining(",")));
-        if (descriptions) {
-            instruction.description().ifPresent(description -> {
-                System.out.printf("; %s", description);
-            });
-        }
-        System.out.println();
-
-        if (code.length > bytesPerLine) {
-            for (int i=bytesPerLine; i<code.length; i++) {
-                if (i % bytesPerLine == 0) {
-                    if (i > bytesPerLine) System.out.println();
-                    System.out.printf("%04X- ", instruction.address()+i);
-                }
-                System.out.printf("%02X ", code[i]);
-            }
-            System.out.println();
+        try {
+            renderer.render(instruction, showLabels ? labels : Map.of()).writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
     
     private static class CpuSelection {
         private InstructionSet instructionSet = InstructionSet6502.for6502();
+        private Supplier<InstructionSet> factory = InstructionSet6502::for6502;
         private Type type = Type.ASSEMBLY;
         
         public InstructionSet get() {
             return this.instructionSet;
         }
+        private void select(Supplier<InstructionSet> factory) {
+            this.factory = factory;
+            this.instructionSet = factory.get();
+        }
         
         @Option(names = { "--6502" }, description = "MOS 6502.")
         public void select6502(boolean flag) {
-            this.instructionSet = InstructionSet6502.for6502();
+            select(InstructionSet6502::for6502);
         }
         @Option(names = { "--65c02", "--65C02" }, description = "WDC 65C02.")
         public void select65C02(boolean flag) {
-            this.instructionSet = InstructionSet6502.for65C02();
+            select(InstructionSet6502::for65C02);
         }
         @Option(names = { "--6502x", "--6502X" }, description = "MOS 6502 + 'illegal' instructions.")
         public void select6502X(boolean flag) {
-            this.instructionSet = InstructionSet6502.for6502withIllegalInstructions();
+            select(InstructionSet6502::for6502withIllegalInstructions);
         }
         @Option(names = { "--sweet16", "--SWEET16" }, description = "SWEET16.")
         public void selectSWEET16(boolean flag) {
-            this.instructionSet = InstructionSetSWEET16.forSWEET16();
+            select(InstructionSetSWEET16::forSWEET16);
         }
         @Option(names = { "--6502s", "--6502S" }, description = "MOS 6502 with SWEET16 switching.")
         public void select6502Switching(boolean flag) {
-            this.instructionSet = InstructionSet6502Switching.withSwitching();
+            select(InstructionSet6502Switching::withSwitching);
         }
         @Option(names = { "--z80", "--Z80" }, description = "Zilog Z80.")
         public void selectZ80(boolean flag) {
-            this.instructionSet = InstructionSetZ80.forZ80();
+            select(InstructionSetZ80::forZ80);
         }
         @Option(names = { "--pcode", "--PCODE" }, description = "Apple Pascal p-code")
         public void selectPCODE(boolean flag) {
-            this.instructionSet = InstructionSetPCode.forApplePascal();
+            select(InstructionSetPCode::forApplePascal);
         }
         @Option(names = { "--codefile", "--CODEFILE" }, description = "Apple Pascal CODEFILE")
         public void selectCODEFILE(boolean flag) {
@@ -400,6 +595,10 @@ public class Main implements Callable<Integer> {
         }
     }
 
+    enum Format {
+        TEXT, JSONL, BINARY;
+    }
+
     static class TableBuilder {
         public static TableBuilder with(CommandLine.Help help) {
             return new TableBuilder(help);
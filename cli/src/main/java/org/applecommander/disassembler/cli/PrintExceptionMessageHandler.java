@@ -22,12 +22,18 @@ import picocli.CommandLine.ParseResult;
 
 // Note: Taken from https://picocli.info/#_business_logic_exceptions
 class PrintExceptionMessageHandler implements IExecutionExceptionHandler {
+    private final Main main;
+
+    PrintExceptionMessageHandler(Main main) {
+        this.main = main;
+    }
+
     public int handleExecutionException(Exception ex,
                                         CommandLine cmd,
                                         ParseResult parseResult) {
 
         // bold red error message
-        if (Main.debug) {
+        if (main.debug) {
             ex.printStackTrace(cmd.getOut());
         }
         else {
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.applecommander.disassembler.api.index.MinHash;
+import org.applecommander.disassembler.api.index.Routine;
+import org.applecommander.disassembler.api.index.SimilarityIndex;
+import org.applecommander.disassembler.api.symbols.SymbolTable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+@Command(name = "routine-index", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+         descriptionHeading = "%n",
+         optionListHeading = "%nOptions:%n",
+         description = { "Index the routines of any number of files for 'similar'.",
+                         "Files are split into routines at their start and at subroutine call targets;",
+                         "each procedure of a CODEFILE is split on its own. CPU, origin and library options",
+                         "go before 'routine-index', for example:",
+                         "  acdasm --6502 routine-index -o disks.rix disks/%n" })
+public class RoutineIndex implements Callable<Integer> {
+    @ParentCommand
+    private Main main;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = { "-o", "--output" }, required = true, paramLabel = "<index>", description = "Index file to write.")
+    private Path output;
+
+    @Option(names = { "--min-length" }, paramLabel = "<n>",
+            description = "Fewest instructions in an indexed routine. Default is ${DEFAULT-VALUE}.")
+    private int minLength = 6;
+
+    @Option(names = { "--shingle" }, paramLabel = "<n>",
+            description = "Instructions compared as one unit. Default is ${DEFAULT-VALUE}.")
+    private int shingle = 3;
+
+    @Option(names = { "--bands" }, paramLabel = "<n>",
+            description = "Bands of the signature; more find less similar routines. Default is ${DEFAULT-VALUE}.")
+    private int bands = 20;
+
+    @Option(names = { "--rows" }, paramLabel = "<n>",
+            description = "Signature values per band; more find fewer. Default is ${DEFAULT-VALUE}.")
+    private int rows = 3;
+
+    @Option(names = { "--threads" }, description = "Number of worker threads. Defaults to the number of processors.")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameters(arity = "1..*", description = "Files or directories (searched recursively) to index.")
+    private List<Path> paths;
+
+    @Override
+    public Integer call() throws Exception {
+        SymbolTable symbols = main.selectedSymbols();
+        MinHash minHash = new MinHash(shingle, bands, rows);
+        long[] routines = { 0 };
+        try (SimilarityIndex.Builder builder = SimilarityIndex.builder(minHash)) {
+            List<Path> files = Index.files(paths);
+            int failures = Index.inOrder(files, threads, file -> sign(file, symbols, minHash), signed -> {
+                for (Signed entry : signed) {
+                    builder.add(entry.name(), entry.routines(), entry.signatures());
+                    routines[0] += entry.routines().size();
+                }
+            }, spec.commandLine().getErr());
+            builder.write(output);
+            spec.commandLine().getOut().printf("Indexed %,d files, %,d routines.\n",
+                    files.size() - failures, routines[0]);
+            return failures == 0 ? 0 : 1;
+        }
+    }
+
+    private List<Signed> sign(Path file, SymbolTable symbols, MinHash minHash) {
+        List<Signed> signed = new ArrayList<>();
+        for (Index.Entry entry : Index.decode(main, file, symbols)) {
+            List<Routine> routines = Routine.split(entry.instructions(), minLength);
+            List<int[]> signatures = new ArrayList<>();
+            for (Routine routine : routines) {
+                signatures.add(minHash.sign(routine.instructions()));
+            }
+            signed.add(new Signed(entry.name(), routines, signatures));
+        }
+        return signed;
+    }
+
+    private record Signed(String name, List<Routine> routines, List<int[]> signatures) {}
+}
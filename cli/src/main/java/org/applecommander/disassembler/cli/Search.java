@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.applecommander.disassembler.api.Disassembler;
+import org.applecommander.disassembler.api.index.InstructionKeys;
+import org.applecommander.disassembler.api.index.NgramIndex;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+@Command(name = "search", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+         descriptionHeading = "%n",
+         optionListHeading = "%nOptions:%n",
+         description = { "Find a sequence of instructions in an index written by 'index'.",
+                         "Separate instructions with ';'. Operands match by class (byte, word, decimal) unless",
+                         "--exact is given. Library labels and symbols may stand for addresses, for example:",
+                         "  acdasm search disks.idx 'LDA $C0E9,X; JSR RWTS'%n" })
+public class Search implements Callable<Integer> {
+    @ParentCommand
+    private Main main;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = { "--exact" }, description = "Match operand values, not just their classes.")
+    private boolean exact;
+
+    @Option(names = { "--limit" }, description = "Most hits to list. Default is ${DEFAULT-VALUE}.")
+    private int limit = 1000;
+
+    @Parameters(index = "0", paramLabel = "<index>", description = "Index file.")
+    private Path indexFile;
+
+    @Parameters(index = "1", paramLabel = "<query>", description = "Instructions to find.")
+    private String query;
+
+    @Override
+    public Integer call() throws Exception {
+        // Symbols win over library labels, as in listings
+        Map<String,Integer> labels = new HashMap<>();
+        for (String library : main.selectedLibraries()) {
+            Disassembler.labelGroup(library).forEach((address, name) -> labels.put(name.toUpperCase(), address));
+        }
+        main.selectedSymbols().labels().forEach((address, name) -> labels.put(name.toUpperCase(), address));
+
+        long[] keys = InstructionKeys.parse(query, exact, labels);
+        List<NgramIndex.Hit> hits;
+        try (NgramIndex index = NgramIndex.open(indexFile)) {
+            hits = index.search(keys, limit);
+        }
+        PrintWriter out = spec.commandLine().getOut();
+        for (NgramIndex.Hit hit : hits) {
+            out.printf("%s $%04X\n", hit.name(), hit.address());
+        }
+        out.flush();
+        return hits.isEmpty() ? 1 : 0;
+    }
+}
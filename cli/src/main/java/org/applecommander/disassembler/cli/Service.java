@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP service (loopback only) with a virtual thread per request:
+ * <ul>
+ * <li>{@code POST /disassemble?cpu=6502&origin=0x2a0&...} disassembles the request body;</li>
+ * <li>{@code POST /codefile?...} disassembles the request body as an Apple Pascal CODEFILE;</li>
+ * <li>{@code GET /metrics} reports counters in the Prometheus text format.</li>
+ * </ul>
+ * Query parameters mirror the command line options: cpu, origin, offset, length, library, labels, descriptions,
+ * data-regions, signatures, format and layout. Output is the same as the command line; errors are returned as 400
+ * with the message as text.
+ */
+final class Service {
+    private static final Set<String> CPUS = Set.of("6502", "6502x", "65c02", "6502s", "sweet16", "z80", "pcode");
+    private static final Set<String> NUMBERS = Set.of("origin", "offset", "length");
+    private static final Set<String> FLAGS = Set.of("labels", "descriptions", "data-regions", "signatures");
+    /** Decode latency histogram bucket upper bounds, in seconds. */
+    private static final double[] BUCKETS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5 };
+    private static final int CACHE_ENTRIES = 256;
+    /** Results larger than this are not cached. */
+    private static final int CACHE_MAX_RESULT = 1024 * 1024;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytesDecoded = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS.length + 1);
+    private final LongAdder latencyNanos = new LongAdder();
+    private final Map<String,Invocation.Result> cache = new LinkedHashMap<>(CACHE_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Invocation.Result> eldest) {
+            return size() > CACHE_ENTRIES;
+        }
+    };
+
+    private Service() {
+        // Use serve
+    }
+
+    static void serve(int port) throws IOException, InterruptedException {
+        Service service = new Service();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/disassemble", exchange -> service.disassemble(exchange, false));
+        server.createContext("/codefile", exchange -> service.disassemble(exchange, true));
+        server.createContext("/metrics", service::metrics);
+        server.start();
+        System.err.printf("Listening on http://%s:%d/\n",
+                server.getAddress().getHostString(), server.getAddress().getPort());
+        // The server threads are daemon threads; keep the JVM running
+        Thread.currentThread().join();
+    }
+
+    void disassemble(HttpExchange exchange, boolean codefile) throws IOException {
+        try (exchange) {
+            requests.increment();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                errors.increment();
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, "text/plain", "Use POST.\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            List<String> args;
+            byte[] input;
+            try {
+                args = toArgs(exchange.getRequestURI().getRawQuery(), codefile);
+                input = readBody(exchange.getRequestBody());
+            } catch (IllegalArgumentException ex) {
+                errors.increment();
+                send(exchange, 400, "text/plain", (ex.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            String key = cacheKey(args, input);
+            Invocation.Result result;
+            synchronized (cache) {
+                result = cache.get(key);
+            }
+            if (result != null) {
+                cacheHits.increment();
+            }
+            else {
+                cacheMisses.increment();
+                long start = System.nanoTime();
+                result = Invocation.run(args, input);
+                record(System.nanoTime() - start);
+                if (result.exitCode() == 0) bytesDecoded.add(input.length);
+                if (result.out().length <= CACHE_MAX_RESULT) {
+                    synchronized (cache) {
+                        cache.put(key, result);
+                    }
+                }
+            }
+
+            if (result.exitCode() == 0) {
+                send(exchange, 200, contentType(args), result.out());
+            }
+            else {
+                errors.increment();
+                send(exchange, 400, "text/plain", result.err());
+            }
+        }
+    }
+
+    void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            StringBuilder sb = new StringBuilder();
+            counter(sb, "acdasm_requests_total", "Disassembly requests.", requests.sum());
+            counter(sb, "acdasm_request_errors_total", "Disassembly requests that failed.", errors.sum());
+            counter(sb, "acdasm_bytes_decoded_total", "Input bytes decoded.", bytesDecoded.sum());
+            counter(sb, "acdasm_cache_hits_total", "Requests answered from the result cache.", cacheHits.sum());
+            counter(sb, "acdasm_cache_misses_total", "Requests not in the result cache.", cacheMisses.sum());
+            long hits = cacheHits.sum();
+            long lookups = hits + cacheMisses.sum();
+            sb.append("# HELP acdasm_cache_hit_ratio Fraction of requests answered from the result cache.\n");
+            sb.append("# TYPE acdasm_cache_hit_ratio gauge\n");
+            sb.append(String.format("acdasm_cache_hit_ratio %.4f\n", lookups == 0 ? 0.0 : (double) hits / lookups));
+
+            sb.append("# HELP acdasm_decode_seconds Time to disassemble a request that missed the cache.\n");
+            sb.append("# TYPE acdasm_decode_seconds histogram\n");
+            long cumulative = 0;
+            for (int i=0; i<BUCKETS.length; i++) {
+                cumulative += latencyBuckets.get(i);
+                sb.append(String.format("acdasm_decode_seconds_bucket{le=\"%s\"} %d\n",
+                        BigDecimal.valueOf(BUCKETS[i]).stripTrailingZeros().toPlainString(), cumulative));
+            }
+            cumulative += latencyBuckets.get(BUCKETS.length);
+            sb.append(String.format("acdasm_decode_seconds_bucket{le=\"+Inf\"} %d\n", cumulative));
+            sb.append(String.format("acdasm_decode_seconds_sum %.6f\n", latencyNanos.sum() / 1e9));
+            sb.append(String.format("acdasm_decode_seconds_count %d\n", cumulative));
+
+            send(exchange, 200, "text/plain; version=0.0.4", sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void record(long nanos) {
+        double seconds = nanos / 1e9;
+        int bucket = 0;
+        while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) bucket++;
+        latencyBuckets.incrementAndGet(bucket);
+        latencyNanos.add(nanos);
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        sb.append(String.format("# HELP %s %s\n# TYPE %s counter\n%s %d\n", name, help, name, name, value));
+    }
+
+    /** Map the query parameters onto command line arguments, accepting only the documented parameters. */
+    static List<String> toArgs(String query, boolean codefile) {
+        List<String> args = new ArrayList<>();
+        if (codefile) args.add("--codefile");
+        if (query == null || query.isEmpty()) return args;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            if ("cpu".equals(name) && !codefile) {
+                if (!CPUS.contains(value.toLowerCase())) {
+                    throw new IllegalArgumentException(String.format("Unknown cpu '%s'; expecting one of %s.",
+                            value, String.join(", ", new TreeSet<>(CPUS))));
+                }
+                args.add("--" + value.toLowerCase());
+            }
+            else if (NUMBERS.contains(name) || "library".equals(name) || "format".equals(name)
+                    || "layout".equals(name)) {
+                args.add(String.format("--%s=%s", name, value));
+            }
+            else if (FLAGS.contains(name)) {
+                args.add(switch (value) {
+                    case "", "true" -> "--" + name;
+                    case "false" -> "--no-" + name;
+                    default -> throw new IllegalArgumentException(
+                            String.format("Parameter '%s' expects true or false.", name));
+                });
+            }
+            else {
+                throw new IllegalArgumentException(String.format("Unknown parameter '%s'.", name));
+            }
+        }
+        return args;
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(Daemon.MAX_INPUT + 1);
+        if (body.length > Daemon.MAX_INPUT) {
+            throw new IllegalArgumentException(
+                    String.format("Request body is larger than %d bytes.", Daemon.MAX_INPUT));
+        }
+        return body;
+    }
+
+    private static String cacheKey(List<String> args, byte[] input) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(input);
+            return String.join("\0", args) + "\0" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String contentType(List<String> args) {
+        for (String arg : args) {
+            switch (arg.toLowerCase()) {
+                case "--format=jsonl": return "application/x-ndjson";
+                case "--format=binary": return "application/octet-stream";
+                default: break;
+            }
+        }
+        return "text/plain; charset=utf-8";
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
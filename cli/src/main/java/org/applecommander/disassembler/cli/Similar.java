@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.applecommander.disassembler.api.index.MinHash;
+import org.applecommander.disassembler.api.index.Routine;
+import org.applecommander.disassembler.api.index.SimilarityIndex;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+import picocli.CommandLine.Spec;
+
+@Command(name = "similar", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+         descriptionHeading = "%n",
+         optionListHeading = "%nOptions:%n",
+         description = { "Find routines like those of a file in an index written by 'routine-index'.",
+                         "The file is split into routines the same way; CPU, origin and library options go before",
+                         "'similar', for example:",
+                         "  acdasm --6502 --origin 0x800 similar disks.rix game.bin --address 0x0C42%n" })
+public class Similar implements Callable<Integer> {
+    @ParentCommand
+    private Main main;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = { "--address" }, converter = IntegerTypeConverter.class,
+            description = "Only look up the routine that starts at this address.")
+    private Integer address;
+
+    @Option(names = { "--min-length" }, paramLabel = "<n>",
+            description = "Fewest instructions in a routine looked up. Default is ${DEFAULT-VALUE}.")
+    private int minLength = 6;
+
+    @Option(names = { "--threshold" }, paramLabel = "<similarity>",
+            description = "Least estimated similarity, from 0 to 1. Default is ${DEFAULT-VALUE}.")
+    private double threshold = 0.5;
+
+    @Option(names = { "--top" }, paramLabel = "<n>",
+            description = "Most matches to list for each routine. Default is ${DEFAULT-VALUE}.")
+    private int top = 5;
+
+    @Parameters(index = "0", paramLabel = "<index>", description = "Index file.")
+    private Path indexFile;
+
+    @Parameters(index = "1", paramLabel = "<file>", description = "File with the routines to look up.")
+    private Path file;
+
+    @Override
+    public Integer call() throws Exception {
+        List<Index.Entry> entries = Index.decode(main, file, main.selectedSymbols());
+        int lookedUp = 0;
+        boolean found = false;
+        PrintWriter out = spec.commandLine().getOut();
+        try (SimilarityIndex index = SimilarityIndex.open(indexFile)) {
+            MinHash minHash = index.minHash();
+            for (Index.Entry entry : entries) {
+                for (Routine routine : Routine.split(entry.instructions(), address == null ? minLength : 1)) {
+                    if (address != null && routine.address() != address) continue;
+                    lookedUp++;
+                    found |= lookUp(index, minHash, entry.name(), routine, out);
+                }
+            }
+        }
+        out.flush();
+        if (lookedUp == 0 && address != null) {
+            throw new IllegalArgumentException(String.format("No routine starts at $%04X.", address));
+        }
+        return found ? 0 : 1;
+    }
+
+    private boolean lookUp(SimilarityIndex index, MinHash minHash, String name, Routine routine, PrintWriter out)
+            throws IOException {
+        List<SimilarityIndex.Match> matches = index.search(minHash.sign(routine.instructions()), threshold, top);
+        if (!matches.isEmpty()) {
+            out.printf("%s $%04X (%d instructions)\n", name, routine.address(), routine.instructions().size());
+            for (SimilarityIndex.Match match : matches) {
+                out.printf("  %3.0f%%  %s $%04X (%d instructions)\n", 100 * match.similarity(),
+                        match.name(), match.address(), match.length());
+            }
+        }
+        return !matches.isEmpty();
+    }
+}
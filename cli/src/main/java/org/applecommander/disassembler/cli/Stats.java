@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.applecommander.disassembler.api.Disassembler;
+import org.applecommander.disassembler.api.Instruction;
+import picocli.CommandLine;
+import picocli.CommandLine.Model.ArgSpec;
+import picocli.CommandLine.Model.CommandSpec;
+
+/**
+ * Collects wall time and allocated bytes per phase for {@code --stats}. Phases are named; a phase that runs
+ * more than once (such as "decode" for each CODEFILE procedure) accumulates. Allocation is measured on the
+ * current thread and is reported as unavailable when the JVM does not support it.
+ */
+final class Stats implements Disassembler.PhaseListener {
+    enum Format { TEXT, JSON }
+
+    /** Makes the format optional without consuming a following file name: "--stats file.bin" is TEXT. */
+    static class FormatConsumer implements CommandLine.IParameterConsumer {
+        @Override
+        public void consumeParameters(Stack<String> args, ArgSpec argSpec, CommandSpec commandSpec) {
+            Format format = Format.TEXT;
+            if (!args.isEmpty()) {
+                for (Format candidate : Format.values()) {
+                    if (candidate.name().equalsIgnoreCase(args.peek())) {
+                        format = candidate;
+                        args.pop();
+                        break;
+                    }
+                }
+            }
+            argSpec.setValue(format);
+        }
+    }
+
+    /** Holds the thread bean, so it is only looked up once stats are enabled. */
+    private static final class Threads {
+        static final com.sun.management.ThreadMXBean BEAN = threadBean();
+    }
+
+    private final boolean enabled;
+    private final long startNanos;
+    private final long startAllocated;
+    /** Phase name to { nanos, allocated bytes, calls }. */
+    private final Map<String,long[]> phases = new LinkedHashMap<>();
+    /** Open phase name to { start nanos, start allocated bytes }. */
+    private final Map<String,long[]> open = new HashMap<>();
+    private long instructions;
+    private long bytes;
+
+    private Stats(boolean enabled) {
+        this.enabled = enabled;
+        this.startNanos = enabled ? System.nanoTime() : 0;
+        this.startAllocated = enabled ? allocatedBytes() : 0;
+    }
+
+    static Stats enabled() {
+        return new Stats(true);
+    }
+    static Stats disabled() {
+        return new Stats(false);
+    }
+
+    @Override
+    public void start(Disassembler.Phase phase) {
+        start(phase.label());
+    }
+    @Override
+    public void end(Disassembler.Phase phase) {
+        end(phase.label());
+    }
+
+    void start(String phase) {
+        if (!enabled) return;
+        open.put(phase, new long[] { System.nanoTime(), allocatedBytes() });
+    }
+    void end(String phase) {
+        if (!enabled) return;
+        long nanos = System.nanoTime();
+        long allocated = allocatedBytes();
+        long[] started = open.remove(phase);
+        if (started == null) return;
+        long[] totals = phases.computeIfAbsent(phase, name -> new long[3]);
+        totals[0] += nanos - started[0];
+        totals[1] += allocated - started[1];
+        totals[2]++;
+    }
+
+    void count(List<Instruction> assembly) {
+        if (!enabled) return;
+        instructions += assembly.size();
+        for (Instruction instruction : assembly) bytes += instruction.code().length;
+    }
+
+    void report(Format format, PrintWriter err) {
+        if (!enabled) return;
+        long totalNanos = System.nanoTime() - startNanos;
+        long totalAllocated = allocatedBytes() - startAllocated;
+        double seconds = totalNanos / 1e9;
+        switch (format) {
+            case TEXT -> {
+                err.printf("%-16s %10s %15s %6s\n", "Phase", "Time (ms)", "Allocated (KB)", "Calls");
+                phases.forEach((name, totals) -> err.printf("%-16s %10.3f %15s %6d\n",
+                        name, totals[0] / 1e6, kilobytes(totals[1]), totals[2]));
+                err.printf("%-16s %10.3f %15s\n", "total", totalNanos / 1e6, kilobytes(totalAllocated));
+                err.printf("%d bytes, %d instructions; %.1f KB/s, %.0f instructions/s\n",
+                        bytes, instructions, bytes / 1024.0 / seconds, instructions / seconds);
+            }
+            case JSON -> {
+                StringBuilder sb = new StringBuilder("{\"phases\":{");
+                String separator = "";
+                for (Map.Entry<String,long[]> entry : phases.entrySet()) {
+                    long[] totals = entry.getValue();
+                    sb.append(String.format("%s\"%s\":{\"nanos\":%d,\"allocatedBytes\":%s,\"calls\":%d}",
+                            separator, entry.getKey(), totals[0], allocatedJson(totals[1]), totals[2]));
+                    separator = ",";
+                }
+                sb.append(String.format("},\"totalNanos\":%d,\"allocatedBytes\":%s,\"instructions\":%d,\"bytes\":%d}",
+                        totalNanos, allocatedJson(totalAllocated), instructions, bytes));
+                err.println(sb);
+            }
+        }
+        err.flush();
+    }
+
+    private static String kilobytes(long bytes) {
+        return Threads.BEAN == null ? "n/a" : String.format("%.1f", bytes / 1024.0);
+    }
+    private static String allocatedJson(long bytes) {
+        return Threads.BEAN == null ? "null" : Long.toString(bytes);
+    }
+
+    private static long allocatedBytes() {
+        return Threads.BEAN == null ? 0 : Threads.BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        } catch (UnsupportedOperationException | LinkageError ex) {
+            // Not available (for instance in some native images); report allocation as unavailable
+        }
+        return null;
+    }
+}
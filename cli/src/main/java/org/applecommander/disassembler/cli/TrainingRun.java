@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import picocli.CommandLine;
+
+/**
+ * A representative workload for building an AppCDS archive: every CPU, a CODEFILE, labels on and off, each
+ * output format and the help text. All output is discarded. See the 'acdasm' launcher in {@code src/dist/bin}.
+ */
+public class TrainingRun {
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("acdasm-training");
+        try {
+            byte[] opcodes = new byte[16 * 256];
+            for (int i=0; i<opcodes.length; i++) opcodes[i] = (byte) i;
+            String binary = Files.write(dir.resolve("opcodes.bin"), opcodes).toString();
+            String codefile = Files.write(dir.resolve("hello.code"), helloWorldCodeFile()).toString();
+
+            List<String[]> workload = List.of(
+                    new String[] { "--6502", binary },
+                    new String[] { "--6502x", binary },
+                    new String[] { "--65c02", binary },
+                    new String[] { "--6502s", binary },
+                    new String[] { "--sweet16", binary },
+                    new String[] { "--z80", binary },
+                    new String[] { "--6502", "--no-labels", "--descriptions", binary },
+                    new String[] { "--6502", "--library", "None", "--offset", "0x100", "--length", "256", binary },
+                    new String[] { "--6502", "--format", "jsonl", binary },
+                    new String[] { "--6502", "--format", "binary", binary },
+                    new String[] { "--pcode", "--offset", "0x200", "--length", "0x24", codefile },
+                    new String[] { "--codefile", codefile },
+                    new String[] { "--codefile", "--format", "jsonl", codefile }
+                );
+
+            PrintStream stdout = System.out;
+            PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+            System.setOut(discard);
+            try {
+                for (String[] arguments : workload) {
+                    CommandLine cl = Main.commandLine();
+                    cl.setErr(new PrintWriter(discard));
+                    cl.execute(arguments);
+                }
+                Main.commandLine().usage(discard);
+            } finally {
+                System.setOut(stdout);
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /** A one segment, one procedure CODEFILE: "WRITELN('HELLO WORLD!')". */
+    static byte[] helloWorldCodeFile() {
+        ByteBuffer buf = ByteBuffer.allocate(0x232).order(ByteOrder.LITTLE_ENDIAN);
+        // Segment dictionary (block 0): segment 0 is at block 1 and is $32 bytes long.
+        buf.putShort(0, (short) 1).putShort(2, (short) 0x32);
+        buf.put(0x40, "HELLOWOR".getBytes(StandardCharsets.US_ASCII));
+        buf.putShort(0xc0 + 64, (short) (1 | 2 << 8 | 6 << 13));   // seg #1, P_CODE_LSB, version 6
+        // Segment (block 1): code, procedure attributes, procedure dictionary
+        buf.position(0x200);
+        buf.put(new byte[] { (byte)0xd7, (byte)0xd7, (byte)0xb6, 1, 3, (byte)0xa6, 12 });
+        buf.put("HELLO WORLD!".getBytes(StandardCharsets.US_ASCII));
+        buf.put(new byte[] { (byte)0xd7, 0, (byte)0xcd, 0, 0x13, (byte)0x9e, 0, (byte)0xb6, 1, 3,
+                             (byte)0xcd, 0, 0x16, (byte)0x9e, 0, (byte)0xc1, 0 });
+        buf.putShort((short) 0).putShort((short) 4).putShort((short) 6).putShort((short) 0x2a);
+        buf.put((byte) 1).put((byte) 0);            // proc #1, lex level 0
+        buf.putShort((short) 2);                    // self-relative pointer to the attributes
+        buf.put((byte) 1).put((byte) 1);            // segment #1, 1 procedure
+        return buf.array();
+    }
+}
@@ -18,6 +18,8 @@ package org.applecommander.disassembler.cli.codefile;
 
 import java.nio.ByteBuffer;
 
+import org.applecommander.disassembler.api.RelocatingView;
+
 public record AssemblyProcedure(ByteBuffer data, int procNum, int relocSegNum, int enterIC, int attrs, int endIC,
                                 int[] baseRelativeReloc, int[] segRelativeReloc, int[] procRelativeReloc,
                                 int[] interpRelativeReloc) {
@@ -27,6 +29,18 @@ public record AssemblyProcedure(ByteBuffer data, int procNum, int relocSegNum, i
         data.get(enterIC, bytes);
         return bytes;
     }
+    /**
+     * The code as the system loads it, read in place. Procedure-relative words are relocated as they are read; the
+     * others depend on where things are loaded, so their operands are shown as BASE, SEG and INTERP.
+     */
+    public RelocatingView relocated() {
+        return RelocatingView.over(data, enterIC, endIC)
+                .relocate(procRelativeReloc, endIC)
+                .symbol(baseRelativeReloc, "BASE")
+                .symbol(segRelativeReloc, "SEG")
+                .symbol(interpRelativeReloc, "INTERP")
+                .get();
+    }
 
     public static AssemblyProcedure load(ByteBuffer data, int attrs) {
         int relocSegNum = data.get(attrs);
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli.codefile;
+
+import java.util.Arrays;
+
+import org.applecommander.disassembler.api.pcode.InstructionSetPCode;
+
+/**
+ * The procedure call graph of a CODEFILE.
+ * <p/>
+ * Every procedure of every segment is a node, numbered in segment and then procedure order. Edges come from the
+ * {@code CBP}, {@code CGP}, {@code CIP} and {@code CLP} calls within a segment and the {@code CXP} calls between
+ * segments, found with {@link InstructionSetPCode#scanCalls} so procedures are never disassembled. Each callee is
+ * listed once per caller, at its first call. A call to a segment that is not in the file, such as the operating
+ * system's segment 0, is {@link #EXTERNAL}.
+ * <p/>
+ * Procedures are scanned breadth first from the main procedure, procedure 1 of segment 1 (or of the first segment
+ * when there is no segment 1). Procedures it cannot reach are only scanned when asked for.
+ */
+public final class CallGraph {
+    /** The target of a call outside the file. */
+    public static final int EXTERNAL = -1;
+
+    private final CodeFile codeFile;
+    private final int[] firstNodes;     // by segment slot, with the node count last
+    private final int[] slots;          // by segment number, or -1
+    private final int main;
+    private final boolean[] reachable;
+    private final boolean[] scanned;
+    private final int[] edgeStarts;
+    private final int[] edgeCounts;
+    private int[] edgeTargets = new int[16];
+    private int[] edgeSegments = new int[16];
+    private int[] edgeProcedures = new int[16];
+    private int[] edgeAddresses = new int[16];
+    private byte[] edgeOpcodes = new byte[16];
+    private int edgeCount;
+
+    private CallGraph(CodeFile codeFile) {
+        this.codeFile = codeFile;
+        Segment[] segments = codeFile.segments();
+        this.firstNodes = new int[segments.length + 1];
+        this.slots = new int[256];
+        Arrays.fill(slots, -1);
+        int first = -1;
+        for (int slot=0; slot<segments.length; slot++) {
+            int procedures = segments[slot] == null ? 0 : segments[slot].dictionary().length;
+            firstNodes[slot+1] = firstNodes[slot] + procedures;
+            if (segments[slot] != null) {
+                if (slots[segments[slot].segNum()] < 0) slots[segments[slot].segNum()] = slot;
+                if (first < 0) first = slot;
+            }
+        }
+        int mainSlot = slots[1] >= 0 ? slots[1] : first;
+        this.main = mainSlot < 0 ? -1 : slotNode(mainSlot, 1);
+        int nodes = firstNodes[segments.length];
+        this.reachable = new boolean[nodes];
+        this.scanned = new boolean[nodes];
+        this.edgeStarts = new int[nodes];
+        this.edgeCounts = new int[nodes];
+    }
+
+    /**
+     * Build the call graph of the procedures reachable from the main procedure.
+     *
+     * @param everyProcedure Also scan the procedures that cannot be reached.
+     */
+    public static CallGraph build(CodeFile codeFile, boolean everyProcedure) {
+        CallGraph graph = new CallGraph(codeFile);
+        int[] queue = new int[graph.nodeCount()];
+        int head = 0, tail = 0;
+        if (graph.main >= 0) {
+            graph.reachable[graph.main] = true;
+            queue[tail++] = graph.main;
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            graph.scan(node);
+            for (int e=graph.edgeStart(node); e<graph.edgeEnd(node); e++) {
+                int target = graph.edgeTargets[e];
+                if (target != EXTERNAL && !graph.reachable[target]) {
+                    graph.reachable[target] = true;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        if (everyProcedure) {
+            for (int node=0; node<graph.nodeCount(); node++) {
+                graph.scan(node);
+            }
+        }
+        return graph;
+    }
+
+    public CodeFile codeFile() {
+        return codeFile;
+    }
+
+    public int nodeCount() {
+        return reachable.length;
+    }
+
+    /** The node of the main procedure, or -1 when the file has no segments. */
+    public int main() {
+        return main;
+    }
+
+    /** The node of a procedure, or -1 when the segment or procedure is not in the file. */
+    public int node(int segmentNumber, int procedureNumber) {
+        int slot = segmentNumber >= 0 && segmentNumber < slots.length ? slots[segmentNumber] : -1;
+        return slot < 0 ? -1 : slotNode(slot, procedureNumber);
+    }
+
+    public Segment segment(int node) {
+        return codeFile.segments()[slot(node)];
+    }
+
+    /** Procedure number within the segment, from 1. */
+    public int procedureNumber(int node) {
+        return node - firstNodes[slot(node)] + 1;
+    }
+
+    /** The {@link PCodeProcedure} or {@link AssemblyProcedure} of a node, or null when its header is invalid. */
+    public Object procedure(int node) {
+        return segment(node).dictionary()[procedureNumber(node) - 1];
+    }
+
+    public boolean reachable(int node) {
+        return reachable[node];
+    }
+
+    /** True when the calls of the node are known. */
+    public boolean scanned(int node) {
+        return scanned[node];
+    }
+
+    public int edgeStart(int node) {
+        return edgeStarts[node];
+    }
+
+    public int edgeEnd(int node) {
+        return edgeStarts[node] + edgeCounts[node];
+    }
+
+    /** The node called, or {@link #EXTERNAL}. */
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    /** Segment number called, as given by the call. */
+    public int edgeSegment(int edge) {
+        return edgeSegments[edge];
+    }
+
+    public int edgeProcedure(int edge) {
+        return edgeProcedures[edge];
+    }
+
+    /** Address of the first call. */
+    public int edgeAddress(int edge) {
+        return edgeAddresses[edge];
+    }
+
+    public int edgeOpcode(int edge) {
+        return Byte.toUnsignedInt(edgeOpcodes[edge]);
+    }
+
+    private int slotNode(int slot, int procedureNumber) {
+        Segment segment = codeFile.segments()[slot];
+        if (procedureNumber < 1 || procedureNumber > segment.dictionary().length) {
+            return -1;
+        }
+        return firstNodes[slot] + procedureNumber - 1;
+    }
+
+    private int slot(int node) {
+        int found = Arrays.binarySearch(firstNodes, node);
+        // Skip empty slots, which share their first node with the next one
+        if (found >= 0) {
+            while (firstNodes[found+1] == node) found++;
+            return found;
+        }
+        return -found - 2;
+    }
+
+    private void scan(int node) {
+        if (scanned[node]) {
+            return;
+        }
+        scanned[node] = true;
+        edgeStarts[node] = edgeCount;
+        if (procedure(node) instanceof PCodeProcedure pcode) {
+            int segmentNumber = segment(node).segNum();
+            InstructionSetPCode.scanCalls(pcode.codeBytes(), pcode.enterIC(), (address, opcode, segment, procedure) -> {
+                int calledSegment = segment < 0 ? segmentNumber : segment;
+                for (int e=edgeStarts[node]; e<edgeCount; e++) {
+                    if (edgeSegments[e] == calledSegment && edgeProcedures[e] == procedure) return;
+                }
+                if (edgeCount == edgeTargets.length) {
+                    edgeTargets = Arrays.copyOf(edgeTargets, 2 * edgeCount);
+                    edgeSegments = Arrays.copyOf(edgeSegments, 2 * edgeCount);
+                    edgeProcedures = Arrays.copyOf(edgeProcedures, 2 * edgeCount);
+                    edgeAddresses = Arrays.copyOf(edgeAddresses, 2 * edgeCount);
+                    edgeOpcodes = Arrays.copyOf(edgeOpcodes, 2 * edgeCount);
+                }
+                int target = segment < 0 ? slotNode(slot(node), procedure) : node(segment, procedure);
+                edgeTargets[edgeCount] = target < 0 ? EXTERNAL : target;
+                edgeSegments[edgeCount] = calledSegment;
+                edgeProcedures[edgeCount] = procedure;
+                edgeOpcodes[edgeCount] = (byte) opcode;
+                edgeAddresses[edgeCount++] = address;
+            });
+        }
+        edgeCounts[node] = edgeCount - edgeStarts[node];
+    }
+}
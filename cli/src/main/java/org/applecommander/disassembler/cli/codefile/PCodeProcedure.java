@@ -18,6 +18,8 @@ package org.applecommander.disassembler.cli.codefile;
 
 import java.nio.ByteBuffer;
 
+import org.applecommander.disassembler.api.MemorySource;
+
 public record PCodeProcedure(int procNum, int lexLevel, int enterIC, int exitIC, int paramsSize,
                              int dataSize, int jumpTable, ByteBuffer data) {
 
@@ -26,6 +28,10 @@ public record PCodeProcedure(int procNum, int lexLevel, int enterIC, int exitIC,
         data.get(enterIC(), bytes);
         return bytes;
     }
+    /** The same bytes as {@link #codeBytes()}, read in place. */
+    public MemorySource codeSource() {
+        return MemorySource.of(data.slice(enterIC(), jumpTable()-enterIC()));
+    }
     public static PCodeProcedure load(ByteBuffer data, int attrs) {
         int lexLevel = data.get(attrs);
         int procNum = data.get(attrs-1);
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.cli.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event for disassembling one CODEFILE segment, including all of its procedures. */
+@Name("org.applecommander.disassembler.Segment")
+@Label("CODEFILE Segment")
+@Description("Disassembling a CODEFILE segment")
+@Category({ "AppleCommander", "Disassembler", "CODEFILE" })
+@StackTrace(false)
+public class SegmentEvent extends Event {
+    @Label("Segment Number")
+    public int segNum;
+
+    @Label("Name")
+    public String name;
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Machine Type")
+    public String machineType;
+
+    @Label("Procedures")
+    public int procedures;
+}
@@ -0,0 +1,53 @@
+#!/bin/bash
+
+# Measures process startup for one or more acdasm commands: the time until the first line of output
+# appears and the peak resident set size. Requires bash 5 (for EPOCHREALTIME) and /usr/bin/time.
+#
+# Usage: startup-benchmark.sh <sample file> <name>=<command> [<name>=<command> ...]
+# Example: startup-benchmark.sh sample.bin "jvm=java -jar acdasm.jar" "native=./acdasm"
+# Set RUNS to change the number of runs per command (default 10).
+
+set -euo pipefail
+
+RUNS=${RUNS:-10}
+sample="$1"
+shift
+
+# Time (ms) until the first line of the listing is written.
+first_line_ms() {
+    local start
+    start=${EPOCHREALTIME/./}
+    "$@" "${sample}" | {
+        IFS= read -r _
+        local end=${EPOCHREALTIME/./}
+        echo $(( (end - start) / 1000 ))
+        cat > /dev/null
+    }
+}
+
+# Peak RSS (KB). GNU time reports KB; BSD time reports bytes.
+peak_rss_kb() {
+    if /usr/bin/time -f %M true > /dev/null 2>&1; then
+        /usr/bin/time -f %M "$@" "${sample}" 2>&1 > /dev/null | tail -1
+    else
+        /usr/bin/time -l "$@" "${sample}" 2>&1 > /dev/null | awk '/maximum resident set size/ { print int($1 / 1024) }'
+    fi
+}
+
+# Prints "min median max" of the numbers on stdin.
+summarize() {
+    sort -n | awk '{ v[NR] = $1 } END { printf "%d %d %d", v[1], v[int((NR + 1) / 2)], v[NR] }'
+}
+
+printf "%-10s %28s %20s\n" "Command" "First line ms (min/med/max)" "Peak RSS KB (median)"
+for target in "$@"; do
+    name="${target%%=*}"
+    read -ra command <<< "${target#*=}"
+    "${command[@]}" "${sample}" > /dev/null      # warm the file system cache
+    times=$(for ((i = 0; i < RUNS; i++)); do first_line_ms "${command[@]}"; done | summarize)
+    rss="n/a"
+    if [ -x /usr/bin/time ]; then
+        rss=$(for ((i = 0; i < RUNS; i++)); do peak_rss_kb "${command[@]}"; done | summarize | cut -d' ' -f2)
+    fi
+    printf "%-10s %28s %20s\n" "${name}" "${times// //}" "${rss}"
+done
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.applecommander.disassembler.api.ByteClass;
+import org.applecommander.disassembler.api.ByteScanner;
+import org.applecommander.disassembler.api.mos6502.InstructionSet6502;
+import org.applecommander.disassembler.api.mos6502.Opcode6502;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Scalar versus vector scanning over a 4 MiB image: invalid 6502 opcodes per 256 byte window, high-bit text
+ * bytes, zero bytes, and every {@code JSR $FDED}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ByteScannerBenchmark {
+    private static final int[] JSR_COUT = { 0x20, 0xed, 0xfd };
+
+    @Param({ "scalar", "vector" })
+    public String scanner;
+
+    private byte[] image;
+    private ByteScanner byteScanner;
+    private ByteClass invalidOpcodes;
+    private ByteClass text;
+    private ByteClass zero;
+
+    @Setup
+    public void setup() {
+        image = new byte[4 * 1024 * 1024];
+        new Random(6502).nextBytes(image);
+        byteScanner = switch (scanner) {
+            case "scalar" -> ByteScanner.scalar();
+            case "vector" -> new VectorByteScanner();
+            default -> throw new IllegalArgumentException(scanner);
+        };
+        InstructionSet6502 instructionSet = InstructionSet6502.for6502();
+        invalidOpcodes = ByteClass.of(op -> instructionSet.opcode(op) == Opcode6502.ZZZ);
+        text = ByteClass.range(0xa0, 0xfe).or(ByteClass.of(0x8d));
+        zero = ByteClass.of(0);
+    }
+
+    @Benchmark
+    public int[] invalidOpcodeWindows() {
+        return byteScanner.windowCounts(image, 0, image.length, 256, invalidOpcodes);
+    }
+
+    @Benchmark
+    public int textBytes() {
+        return byteScanner.count(image, 0, image.length, text);
+    }
+
+    @Benchmark
+    public int zeroBytes() {
+        return byteScanner.count(image, 0, image.length, zero);
+    }
+
+    @Benchmark
+    public int[] jsrCout() {
+        return byteScanner.indexesOf(image, 0, image.length, JSR_COUT);
+    }
+}
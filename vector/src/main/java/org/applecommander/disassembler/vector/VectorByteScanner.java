@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.vector;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.applecommander.disassembler.api.ByteClass;
+import org.applecommander.disassembler.api.ByteScanner;
+
+/**
+ * A {@link ByteScanner} using the incubating Vector API. Class membership is a nibble table lookup: the low nibble
+ * selects 8 bits of high nibbles from one of two 16 entry tables, and the high nibble selects the bit. Pattern
+ * search compares the first fixed byte of the pattern a vector at a time and checks candidates one by one.
+ */
+public class VectorByteScanner implements ByteScanner {
+    // Table lookups need at least 16 lanes, and match masks are read as a long (at most 64 lanes)
+    private static final VectorSpecies<Byte> SPECIES = switch (ByteVector.SPECIES_PREFERRED.length()) {
+        case 16, 32, 64 -> ByteVector.SPECIES_PREFERRED;
+        default -> ByteVector.SPECIES_PREFERRED.length() < 16 ? ByteVector.SPECIES_128 : ByteVector.SPECIES_512;
+    };
+    private static final byte[] BITS = { 1, 2, 4, 8, 16, 32, 64, (byte) 128, 1, 2, 4, 8, 16, 32, 64, (byte) 128 };
+    private static final ByteVector BIT_TABLE = table(BITS);
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public int count(byte[] data, int from, int to, ByteClass bytes) {
+        return count(data, from, to, bytes, table(bytes.nibbleTable(0)), table(bytes.nibbleTable(1)));
+    }
+
+    @Override
+    public int[] windowCounts(byte[] data, int from, int to, int window, ByteClass bytes) {
+        if (window <= 0) throw new IllegalArgumentException("Window must be positive: " + window);
+        // Build the lookup tables once rather than per window
+        ByteVector low = table(bytes.nibbleTable(0));
+        ByteVector high = table(bytes.nibbleTable(1));
+        int[] counts = new int[(to - from + window - 1) / window];
+        for (int i=0; i<counts.length; i++) {
+            int start = from + i * window;
+            counts[i] = count(data, start, Math.min(to, start + window), bytes, low, high);
+        }
+        return counts;
+    }
+
+    private static int count(byte[] data, int from, int to, ByteClass bytes, ByteVector low, ByteVector high) {
+        ByteVector bits = BIT_TABLE;
+        int count = 0;
+        int i = from;
+        for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, data, i);
+            ByteVector lowNibble = v.and((byte) 0x0f);
+            ByteVector highNibble = v.lanewise(VectorOperators.LSHR, 4);
+            VectorMask<Byte> upperHalf = highNibble.compare(VectorOperators.GE, (byte) 8);
+            ByteVector matches = lowNibble.selectFrom(low).blend(lowNibble.selectFrom(high), upperHalf)
+                    .and(highNibble.selectFrom(bits));
+            count += matches.compare(VectorOperators.NE, (byte) 0).trueCount();
+        }
+        for (; i < to; i++) {
+            if (bytes.contains(data[i])) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int indexOf(byte[] data, int from, int to, int[] pattern) {
+        int last = Math.min(to, data.length - pattern.length + 1);
+        int i = Math.max(0, from);
+        int anchor = 0;
+        while (anchor < pattern.length && pattern[anchor] < 0) anchor++;
+        if (anchor == pattern.length) {
+            return i < last ? i : -1;
+        }
+        byte value = (byte) pattern[anchor];
+        for (int upper = i + SPECIES.loopBound(Math.max(0, last - i)); i < upper; i += SPECIES.length()) {
+            long candidates = ByteVector.fromArray(SPECIES, data, i + anchor)
+                    .compare(VectorOperators.EQ, value).toLong();
+            while (candidates != 0) {
+                int offset = i + Long.numberOfTrailingZeros(candidates);
+                if (matches(data, offset, pattern)) return offset;
+                candidates &= candidates - 1;
+            }
+        }
+        for (; i < last; i++) {
+            if (matches(data, i, pattern)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] data, int offset, int[] pattern) {
+        for (int j=0; j<pattern.length; j++) {
+            if (pattern[j] >= 0 && (data[offset + j] & 0xff) != pattern[j]) return false;
+        }
+        return true;
+    }
+
+    /** A 16 entry table repeated across all lanes, so any nibble indexes it. */
+    private static ByteVector table(byte[] entries) {
+        byte[] lanes = new byte[SPECIES.length()];
+        for (int i=0; i<lanes.length; i++) lanes[i] = entries[i % 16];
+        return ByteVector.fromArray(SPECIES, lanes, 0);
+    }
+}
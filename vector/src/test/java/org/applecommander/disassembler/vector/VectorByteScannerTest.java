@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2025  rob at applecommander.org
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.applecommander.disassembler.vector;
+
+import org.applecommander.disassembler.api.ByteClass;
+import org.applecommander.disassembler.api.ByteScanner;
+import org.applecommander.disassembler.api.Program;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The vector scanner must agree with the scalar one. Inputs are several vectors long, and the ranges and windows
+ * start and end away from lane boundaries so both the vector loops and their scalar tails are exercised.
+ */
+public class VectorByteScannerTest {
+    private static final List<ByteClass> CLASSES = List.of(
+            ByteClass.range(0xa0, 0xfe),
+            ByteClass.of(0x00),
+            ByteClass.of(0x20, 0x4c, 0x6c, 0x60),
+            ByteClass.of(b -> (b & 0x81) == 0x81),
+            ByteClass.range(0x00, 0x1f).or(ByteClass.range(0xf0, 0xff)),
+            ByteClass.of(b -> false),
+            ByteClass.of(b -> true));
+    private static final int[] WINDOWS = { 1, 3, 7, 17, 33, 63, 100, 129 };
+
+    private final ByteScanner vector = new VectorByteScanner();
+    private final ByteScanner scalar = ByteScanner.scalar();
+
+    @Test
+    public void testCount() {
+        Random random = new Random(6502);
+        for (int n=0; n<50; n++) {
+            byte[] data = data(random);
+            int from = random.nextInt(70);
+            int to = data.length - random.nextInt(70);
+            for (ByteClass bytes : CLASSES) {
+                String where = String.format("%d..%d of %d", from, to, data.length);
+                assertEquals(scalar.count(data, from, to, bytes), vector.count(data, from, to, bytes), where);
+                assertEquals(scalar.count(new Program(data, 0x300), bytes),
+                        vector.count(new Program(data, 0x300), bytes), where);
+            }
+        }
+    }
+
+    @Test
+    public void testWindowCounts() {
+        Random random = new Random(6502);
+        for (int n=0; n<50; n++) {
+            byte[] data = data(random);
+            int from = random.nextInt(70);
+            int to = data.length - random.nextInt(70);
+            for (ByteClass bytes : CLASSES) {
+                for (int window : WINDOWS) {
+                    String where = String.format("%d..%d of %d, window %d", from, to, data.length, window);
+                    assertArrayEquals(scalar.windowCounts(data, from, to, window, bytes),
+                            vector.windowCounts(data, from, to, window, bytes), where);
+                    assertArrayEquals(scalar.windowCounts(new Program(data, 0x300), window, bytes),
+                            vector.windowCounts(new Program(data, 0x300), window, bytes), where);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexOf() {
+        Random random = new Random(6502);
+        for (int n=0; n<50; n++) {
+            byte[] data = data(random);
+            int from = random.nextInt(70);
+            int to = data.length - random.nextInt(70);
+            for (int p=0; p<20; p++) {
+                int[] pattern = pattern(random, data);
+                String where = String.format("%s in %d..%d of %d", Arrays.toString(pattern), from, to, data.length);
+                assertEquals(scalar.indexOf(data, from, to, pattern), vector.indexOf(data, from, to, pattern), where);
+                assertArrayEquals(scalar.indexesOf(data, from, to, pattern),
+                        vector.indexesOf(data, from, to, pattern), where);
+                assertArrayEquals(scalar.indexesOf(new Program(data, 0x300), pattern),
+                        vector.indexesOf(new Program(data, 0x300), pattern), where);
+            }
+        }
+    }
+
+    /** Several hundred bytes, half the time from a small alphabet so that patterns recur. */
+    private static byte[] data(Random random) {
+        byte[] data = new byte[300 + random.nextInt(700)];
+        if (random.nextBoolean()) {
+            random.nextBytes(data);
+        } else {
+            for (int i=0; i<data.length; i++) data[i] = (byte) (0x20 + random.nextInt(4));
+        }
+        return data;
+    }
+
+    /** A run taken from the data with some bytes wildcarded (-1), occasionally with its last byte changed. */
+    private static int[] pattern(Random random, byte[] data) {
+        int[] pattern = new int[1 + random.nextInt(6)];
+        int offset = random.nextInt(data.length - pattern.length);
+        for (int i=0; i<pattern.length; i++) {
+            pattern[i] = random.nextInt(4) == 0 ? -1 : data[offset + i] & 0xff;
+        }
+        if (random.nextInt(10) == 0) {
+            pattern[pattern.length - 1] = random.nextInt(256);
+        }
+        return pattern;
+    }
+}